@@ -2,8 +2,10 @@ package com.mariusz.book_collection;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
+@EnableScheduling
 public class BookCollectionApplication {
 
     public static void main(String[] args) {
@@ -0,0 +1,65 @@
+package com.mariusz.book_collection.catalog;
+
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/***
+ * Version of the whole catalog, changed after every committed write of a book, author or shelf.
+ * Collections are too expensive to compare row by row, so their validators are built from it.
+ * Starts from the startup time, so tags given out before a restart do not match after it.
+ */
+@Component
+public class CatalogVersion {
+
+    private final long startedAt;
+    private final AtomicReference<Snapshot> current;
+
+    public CatalogVersion() {
+        long now = System.currentTimeMillis();
+        this.startedAt = now;
+        this.current = new AtomicReference<>(new Snapshot(now, now));
+    }
+
+    /***
+     * @return startup time in epoch milliseconds, rendered pages are not older than it
+     * because templates and asset names can change with a new deployment
+     */
+    public long getStartedAt() {
+        return startedAt;
+    }
+
+    /***
+     * @return version with the time it was made, read together so a tag never goes out with the time of another version
+     */
+    public Snapshot current() {
+        return current.get();
+    }
+
+    public void increment() {
+        long now = System.currentTimeMillis();
+        current.updateAndGet(previous -> new Snapshot(previous.getVersion() + 1, Math.max(now, previous.getLastModified())));
+    }
+
+    public static final class Snapshot {
+
+        private final long version;
+        private final long lastModified;
+
+        public Snapshot(long version, long lastModified) {
+            this.version = version;
+            this.lastModified = lastModified;
+        }
+
+        public long getVersion() {
+            return version;
+        }
+
+        /***
+         * @return time of the change in epoch milliseconds
+         */
+        public long getLastModified() {
+            return lastModified;
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package com.mariusz.book_collection.catalog;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.persistence.EntityManagerFactory;
+
+/***
+ * Moves the catalog version after every committed insert, update and delete of any entity.
+ */
+@Component
+public class CatalogVersionSynchronizer extends PostCommitEntityListener {
+
+    private final CatalogVersion catalogVersion;
+
+    @Autowired
+    public CatalogVersionSynchronizer(CatalogVersion catalogVersion, EntityManagerFactory entityManagerFactory) {
+        super(entityManagerFactory);
+        this.catalogVersion = catalogVersion;
+    }
+
+    @Override
+    protected void saved(Object entity) {
+        catalogVersion.increment();
+    }
+
+    @Override
+    protected void deleted(Object entity) {
+        catalogVersion.increment();
+    }
+}
@@ -0,0 +1,96 @@
+package com.mariusz.book_collection.catalog;
+
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostCommitDeleteEventListener;
+import org.hibernate.event.spi.PostCommitInsertEventListener;
+import org.hibernate.event.spi.PostCommitUpdateEventListener;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.persister.entity.EntityPersister;
+
+import javax.annotation.PostConstruct;
+import javax.persistence.EntityManagerFactory;
+import java.util.Arrays;
+import java.util.List;
+
+/***
+ * Base of components following committed inserts, updates and deletes of the given entity types,
+ * or of every entity when no type is given. Writes rolled back are never passed on.
+ * Bulk JPQL statements do not fire these events, code running them updates the followers itself.
+ */
+public abstract class PostCommitEntityListener implements PostCommitInsertEventListener,
+        PostCommitUpdateEventListener, PostCommitDeleteEventListener {
+
+    private final EntityManagerFactory entityManagerFactory;
+    private final List<Class<?>> types;
+
+    protected PostCommitEntityListener(EntityManagerFactory entityManagerFactory, Class<?>... types) {
+        this.entityManagerFactory = entityManagerFactory;
+        this.types = Arrays.asList(types);
+    }
+
+    @PostConstruct
+    public void registerListeners() {
+        EventListenerRegistry registry = entityManagerFactory
+                .unwrap(SessionFactoryImplementor.class)
+                .getServiceRegistry()
+                .getService(EventListenerRegistry.class);
+        registry.appendListeners(EventType.POST_COMMIT_INSERT, this);
+        registry.appendListeners(EventType.POST_COMMIT_UPDATE, this);
+        registry.appendListeners(EventType.POST_COMMIT_DELETE, this);
+    }
+
+    /***
+     * Inserted or updated entity of one of the types.
+     */
+    protected abstract void saved(Object entity);
+
+    /***
+     * Deleted entity of one of the types.
+     */
+    protected abstract void deleted(Object entity);
+
+    @Override
+    public void onPostInsert(PostInsertEvent event) {
+        if (requiresPostCommitHanding(event.getPersister())) {
+            saved(event.getEntity());
+        }
+    }
+
+    @Override
+    public void onPostUpdate(PostUpdateEvent event) {
+        if (requiresPostCommitHanding(event.getPersister())) {
+            saved(event.getEntity());
+        }
+    }
+
+    @Override
+    public void onPostDelete(PostDeleteEvent event) {
+        if (requiresPostCommitHanding(event.getPersister())) {
+            deleted(event.getEntity());
+        }
+    }
+
+    /***
+     * Hibernate also calls the listeners after commit of cached entities of other types.
+     */
+    @Override
+    public boolean requiresPostCommitHanding(EntityPersister persister) {
+        return types.isEmpty() || types.contains(persister.getMappedClass());
+    }
+
+    @Override
+    public void onPostInsertCommitFailed(PostInsertEvent event) {
+    }
+
+    @Override
+    public void onPostUpdateCommitFailed(PostUpdateEvent event) {
+    }
+
+    @Override
+    public void onPostDeleteCommitFailed(PostDeleteEvent event) {
+    }
+}
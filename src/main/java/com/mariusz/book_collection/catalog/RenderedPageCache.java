@@ -0,0 +1,106 @@
+package com.mariusz.book_collection.catalog;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/***
+ * Rendered HTML pages by request, each valid only for the catalog version it was rendered at.
+ * Least recently used pages are dropped above maxEntries, 0 turns the cache off.
+ */
+@Component
+public class RenderedPageCache {
+
+    private final int maxEntries;
+    private final Map<String, RenderedPage> pages;
+
+    public RenderedPageCache(@Value("${book.page-cache.max-entries:256}") int maxEntries) {
+        this.maxEntries = maxEntries;
+        this.pages = new LinkedHashMap<String, RenderedPage>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, RenderedPage> eldest) {
+                return size() > RenderedPageCache.this.maxEntries;
+            }
+        };
+    }
+
+    public boolean isEnabled() {
+        return maxEntries > 0;
+    }
+
+    /***
+     * @return page rendered at the given catalog version, null when there is none
+     */
+    public synchronized RenderedPage get(String key, long catalogVersion) {
+        RenderedPage page = pages.get(key);
+        if (page == null) {
+            return null;
+        }
+        if (page.getCatalogVersion() != catalogVersion) {
+            pages.remove(key);
+            return null;
+        }
+        return page;
+    }
+
+    public synchronized void put(String key, RenderedPage page) {
+        if (isEnabled()) {
+            pages.put(key, page);
+        }
+    }
+
+    public synchronized int size() {
+        return pages.size();
+    }
+
+    public synchronized void clear() {
+        pages.clear();
+    }
+
+    public static final class RenderedPage {
+
+        private final long catalogVersion;
+        private final String contentType;
+        private final byte[] body;
+        private final String etag;
+        private final long lastModified;
+
+        public RenderedPage(long catalogVersion, String contentType, byte[] body) {
+            this(catalogVersion, contentType, body, null, -1);
+        }
+
+        /***
+         * @param etag - ETag the page was rendered with, null when it has none
+         * @param lastModified - Last-Modified in epoch milliseconds, -1 when it has none
+         */
+        public RenderedPage(long catalogVersion, String contentType, byte[] body, String etag, long lastModified) {
+            this.catalogVersion = catalogVersion;
+            this.contentType = contentType;
+            this.body = body;
+            this.etag = etag;
+            this.lastModified = lastModified;
+        }
+
+        public long getCatalogVersion() {
+            return catalogVersion;
+        }
+
+        public String getContentType() {
+            return contentType;
+        }
+
+        public byte[] getBody() {
+            return body;
+        }
+
+        public String getEtag() {
+            return etag;
+        }
+
+        public long getLastModified() {
+            return lastModified;
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.mariusz.book_collection.catalog;
+
+import com.mariusz.book_collection.catalog.RenderedPageCache.RenderedPage;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.regex.Pattern;
+
+/***
+ * Serves read only HTML pages from RenderedPageCache while the catalog has not changed,
+ * a hit touches neither JPA nor Thymeleaf. The version is read before rendering,
+ * so a page rendered during a write is stored with the old version and never served.
+ * Validators of the rendered page are kept with it, a hit still answers conditional requests with 304.
+ */
+@Component
+public class RenderedPageCacheFilter extends OncePerRequestFilter {
+
+    private static final Pattern CACHED_PATHS = Pattern.compile("/|/books/(bookList|\\d+)|/authors/(authorList|\\d+)");
+    private static final String HTML = "text/html";
+
+    private final RenderedPageCache renderedPageCache;
+    private final CatalogVersion catalogVersion;
+
+    @Autowired
+    public RenderedPageCacheFilter(RenderedPageCache renderedPageCache, CatalogVersion catalogVersion) {
+        this.renderedPageCache = renderedPageCache;
+        this.catalogVersion = catalogVersion;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !renderedPageCache.isEnabled()
+                || !"GET".equals(request.getMethod())
+                || !CACHED_PATHS.matcher(request.getRequestURI().substring(request.getContextPath().length())).matches();
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        String key = request.getQueryString() == null
+                ? request.getRequestURI()
+                : request.getRequestURI() + '?' + request.getQueryString();
+        long version = catalogVersion.current().getVersion();
+        RenderedPage cached = renderedPageCache.get(key, version);
+        if (cached != null) {
+            if (cached.getEtag() != null
+                    && new ServletWebRequest(request, response).checkNotModified(cached.getEtag(), cached.getLastModified())) {
+                return;
+            }
+            response.setContentType(cached.getContentType());
+            response.setContentLength(cached.getBody().length);
+            response.getOutputStream().write(cached.getBody());
+            return;
+        }
+        ContentCachingResponseWrapper rendered = new ContentCachingResponseWrapper(response);
+        filterChain.doFilter(request, rendered);
+        String contentType = rendered.getContentType();
+        if (rendered.getStatus() == HttpStatus.OK.value() && contentType != null && contentType.startsWith(HTML)) {
+            renderedPageCache.put(key, new RenderedPage(version, contentType, rendered.getContentAsByteArray(),
+                    rendered.getHeader(HttpHeaders.ETAG), lastModified(rendered.getHeader(HttpHeaders.LAST_MODIFIED))));
+        }
+        rendered.copyBodyToResponse();
+    }
+
+    private static long lastModified(String header) {
+        if (header == null) {
+            return -1;
+        }
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(HttpHeaders.LAST_MODIFIED, header);
+        return headers.getLastModified();
+    }
+}
@@ -0,0 +1,63 @@
+package com.mariusz.book_collection.concurrency;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/***
+ * Lets at most as many threads into database work as the connection pool has connections.
+ * Others wait in arrival order before their transaction starts, instead of all of them blocking inside
+ * the pool at once, and give up with DatabaseBusyException after the acquire timeout.
+ * Needed with virtual threads, which do not bound concurrency the way Tomcat's worker pool does,
+ * so it is on by default in that mode.
+ * Permits are taken only by LimitedTransactionManager, which also decides when nested work reuses one.
+ */
+@Component
+public class ConnectionPoolLimiter {
+
+    private final boolean enabled;
+    private final int permits;
+    private final long acquireTimeout;
+    private final Semaphore semaphore;
+
+    @Autowired
+    public ConnectionPoolLimiter(
+            @Value("${book.limiter.enabled:${book.threads.virtual:false}}") boolean enabled,
+            @Value("${book.limiter.permits:${spring.datasource.hikari.maximum-pool-size:10}}") int permits,
+            @Value("${book.limiter.acquire-timeout:${spring.datasource.hikari.connection-timeout:30000}}") long acquireTimeout) {
+        this.enabled = enabled;
+        this.permits = permits;
+        this.acquireTimeout = acquireTimeout;
+        this.semaphore = new Semaphore(permits, true);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public int getAvailablePermits() {
+        return semaphore.availablePermits();
+    }
+
+    /***
+     * Takes a permit for work which gives it back with release, possibly from a callback.
+     * @throws DatabaseBusyException - when no permit was free within the acquire timeout (milliseconds)
+     */
+    public void acquire() {
+        try {
+            if (!semaphore.tryAcquire(acquireTimeout, TimeUnit.MILLISECONDS)) {
+                throw new DatabaseBusyException("All " + permits + " database connections busy for " + acquireTimeout + " ms");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DatabaseBusyException("Interrupted while waiting for a database connection");
+        }
+    }
+
+    public void release() {
+        semaphore.release();
+    }
+}
@@ -0,0 +1,11 @@
+package com.mariusz.book_collection.concurrency;
+
+/***
+ * No database connection could be promised to the request in time, answered with 503.
+ */
+public class DatabaseBusyException extends RuntimeException {
+
+    public DatabaseBusyException(String message) {
+        super(message);
+    }
+}
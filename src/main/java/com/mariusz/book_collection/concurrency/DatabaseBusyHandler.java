@@ -0,0 +1,23 @@
+package com.mariusz.book_collection.concurrency;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+
+/***
+ * Requests turned away by the ConnectionPoolLimiter of any controller get 503 with a hint to retry.
+ */
+@ControllerAdvice
+public class DatabaseBusyHandler {
+
+    static final String RETRY_AFTER_SECONDS = "1";
+
+    @ExceptionHandler(DatabaseBusyException.class)
+    public ResponseEntity<Void> databaseBusy() {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(HttpHeaders.RETRY_AFTER, RETRY_AFTER_SECONDS);
+        return new ResponseEntity<>(headers, HttpStatus.SERVICE_UNAVAILABLE);
+    }
+}
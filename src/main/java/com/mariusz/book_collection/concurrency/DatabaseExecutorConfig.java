@@ -0,0 +1,31 @@
+package com.mariusz.book_collection.concurrency;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/***
+ * Threads for database work of asynchronous requests (/api/v2), one per pooled connection.
+ * The request thread is returned to Tomcat while the work waits here, so slow clients and slow queries
+ * do not hold a request thread each.
+ */
+@Configuration
+public class DatabaseExecutorConfig {
+
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService databaseExecutor(
+            @Value("${book.limiter.permits:${spring.datasource.hikari.maximum-pool-size:10}}") int threads) {
+        AtomicInteger number = new AtomicInteger();
+        ThreadFactory threadFactory = task -> {
+            Thread thread = new Thread(task, "database-" + number.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+        return Executors.newFixedThreadPool(threads, threadFactory);
+    }
+}
@@ -0,0 +1,62 @@
+package com.mariusz.book_collection.concurrency;
+
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/***
+ * Transaction manager taking a ConnectionPoolLimiter permit before a transaction starts
+ * and giving it back once the transaction completes.
+ * Every database access starts its transaction here: @Transactional services, TransactionTemplate
+ * of the batch, update and export services and repository methods called outside a transaction,
+ * while work which never touches the database takes no permit.
+ * A transaction started inside another one runs on the permit of the outer transaction.
+ */
+public class LimitedTransactionManager implements PlatformTransactionManager {
+
+    private final PlatformTransactionManager target;
+    private final ConnectionPoolLimiter limiter;
+
+    public LimitedTransactionManager(PlatformTransactionManager target, ConnectionPoolLimiter limiter) {
+        this.target = target;
+        this.limiter = limiter;
+    }
+
+    @Override
+    public TransactionStatus getTransaction(TransactionDefinition definition) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            return target.getTransaction(definition);
+        }
+        limiter.acquire();
+        TransactionStatus status;
+        try {
+            status = target.getTransaction(definition);
+        } catch (RuntimeException | Error e) {
+            limiter.release();
+            throw e;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCompletion(int status) {
+                    limiter.release();
+                }
+            });
+        } else {
+            limiter.release();
+        }
+        return status;
+    }
+
+    @Override
+    public void commit(TransactionStatus status) {
+        target.commit(status);
+    }
+
+    @Override
+    public void rollback(TransactionStatus status) {
+        target.rollback(status);
+    }
+}
@@ -0,0 +1,29 @@
+package com.mariusz.book_collection.concurrency;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+
+/***
+ * Puts every transaction manager behind LimitedTransactionManager while the limiter is enabled.
+ */
+@Component
+public class LimitedTransactionManagerWrapper implements BeanPostProcessor {
+
+    private final ConnectionPoolLimiter limiter;
+
+    @Autowired
+    public LimitedTransactionManagerWrapper(ConnectionPoolLimiter limiter) {
+        this.limiter = limiter;
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (limiter.isEnabled() && bean instanceof PlatformTransactionManager
+                && !(bean instanceof LimitedTransactionManager)) {
+            return new LimitedTransactionManager((PlatformTransactionManager) bean, limiter);
+        }
+        return bean;
+    }
+}
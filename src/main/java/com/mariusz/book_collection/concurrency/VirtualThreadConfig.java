@@ -0,0 +1,37 @@
+package com.mariusz.book_collection.concurrency;
+
+import org.apache.coyote.AbstractProtocol;
+import org.apache.coyote.ProtocolHandler;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.embedded.tomcat.TomcatServletWebServerFactory;
+import org.springframework.boot.web.server.WebServerFactoryCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ExecutorService;
+
+/***
+ * Opt-in mode, book.threads.virtual=true: Tomcat hands every request to a new virtual thread
+ * instead of its fixed worker pool. Tomcat 8.5 still processes the request inside a synchronized block,
+ * so a request blocked on MySQL keeps its carrier thread, see RequestThreadsBenchmark.
+ * Transactions still go through the ConnectionPoolLimiter, turned on by the same property.
+ * Needs a Java 21 runtime, startup fails on older ones rather than quietly running in platform mode.
+ */
+@Configuration
+@ConditionalOnProperty(name = "book.threads.virtual", havingValue = "true")
+public class VirtualThreadConfig {
+
+    @Bean
+    public WebServerFactoryCustomizer<TomcatServletWebServerFactory> virtualThreadExecutorCustomizer() {
+        return factory -> factory.addConnectorCustomizers(connector -> {
+            ExecutorService executor = VirtualThreads.newVirtualThreadPerTaskExecutor()
+                    .orElseThrow(() -> new IllegalStateException(
+                            "book.threads.virtual needs Java 21, running on " + System.getProperty("java.version")));
+            ProtocolHandler protocolHandler = connector.getProtocolHandler();
+            if (!(protocolHandler instanceof AbstractProtocol)) {
+                throw new IllegalStateException("Can not set executor of " + protocolHandler.getClass().getName());
+            }
+            ((AbstractProtocol<?>) protocolHandler).setExecutor(executor);
+        });
+    }
+}
@@ -0,0 +1,26 @@
+package com.mariusz.book_collection.concurrency;
+
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/***
+ * Virtual threads of Java 21 while the code is still compiled for Java 8.
+ * The executor is looked up at runtime, on older runtimes there is none.
+ */
+public final class VirtualThreads {
+
+    private VirtualThreads() {
+    }
+
+    /***
+     * @return executor starting a new virtual thread for every task, empty before Java 21
+     */
+    public static Optional<ExecutorService> newVirtualThreadPerTaskExecutor() {
+        try {
+            return Optional.of((ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null));
+        } catch (ReflectiveOperationException e) {
+            return Optional.empty();
+        }
+    }
+}
@@ -0,0 +1,221 @@
+package com.mariusz.book_collection.config;
+
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.util.FileCopyUtils;
+import org.springframework.util.StringUtils;
+import org.springframework.web.servlet.HandlerMapping;
+import org.springframework.web.servlet.resource.HttpResource;
+import org.springframework.web.servlet.resource.ResourceTransformer;
+import org.springframework.web.servlet.resource.ResourceTransformerChain;
+
+import javax.servlet.http.HttpServletRequest;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.zip.GZIPOutputStream;
+
+/***
+ * Serves stylesheets minified and text assets gzipped to clients accepting it.
+ * Runs after the rest of the chain, so links in stylesheets are already rewritten when the content is gzipped.
+ * The work is done once per request path, separately for clients with and without gzip.
+ * A fingerprinted name (style-{content hash}.css) never gets other content, so it is cached as immutable.
+ * Headers of the resolved resource, like the ETag of a fingerprinted one, are kept.
+ */
+public class AssetResourceTransformer implements ResourceTransformer {
+
+    static final String IMMUTABLE = "public, max-age=31536000, immutable";
+
+    private static final Set<String> COMPRESSIBLE = new HashSet<>(Arrays.asList("css", "js", "map", "svg"));
+    private static final String PUNCTUATION = "{};,>";
+    private static final String URL = "url(";
+
+    private final ConcurrentMap<String, Resource> assets = new ConcurrentHashMap<>();
+
+    @Override
+    public Resource transform(HttpServletRequest request, Resource resource, ResourceTransformerChain chain)
+            throws IOException {
+        String filename = resource.getFilename();
+        Object pathAttribute = request.getAttribute(HandlerMapping.PATH_WITHIN_HANDLER_MAPPING_ATTRIBUTE);
+        String requestPath = pathAttribute != null ? pathAttribute.toString() : filename;
+        boolean gzip = COMPRESSIBLE.contains(StringUtils.getFilenameExtension(filename))
+                && acceptsGzip(request.getHeader(HttpHeaders.ACCEPT_ENCODING));
+        String key = gzip ? requestPath + "+encoding=gzip" : requestPath;
+        Resource asset = assets.get(key);
+        if (asset == null) {
+            asset = process(chain.transform(request, resource), resource, requestPath, gzip);
+            assets.putIfAbsent(key, asset);
+        }
+        return asset;
+    }
+
+    private static Resource process(Resource transformed, Resource resource, String requestPath, boolean gzip)
+            throws IOException {
+        String filename = resource.getFilename();
+        HttpHeaders headers = new HttpHeaders();
+        if (resource instanceof HttpResource) {
+            headers.putAll(((HttpResource) resource).getResponseHeaders());
+        }
+        if (filename != null && !filename.equals(StringUtils.getFilename(requestPath))) {
+            headers.setCacheControl(IMMUTABLE);
+        }
+        byte[] content = FileCopyUtils.copyToByteArray(transformed.getInputStream());
+        if (isMinifiable(filename)) {
+            content = minifyCss(new String(content, StandardCharsets.UTF_8)).getBytes(StandardCharsets.UTF_8);
+        }
+        if (COMPRESSIBLE.contains(StringUtils.getFilenameExtension(filename))) {
+            headers.set(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        }
+        if (gzip) {
+            headers.set(HttpHeaders.CONTENT_ENCODING, "gzip");
+            content = gzip(content);
+        }
+        return new AssetResource(content, resource, headers);
+    }
+
+    /***
+     * Drops comments, collapses whitespace and removes it around {};,> .
+     * Quoted strings and unquoted url() values are copied as they are. Not a full CSS parser:
+     * whitespace is still collapsed inside other functions and selectors, which keeps their meaning.
+     */
+    static String minifyCss(String css) {
+        StringBuilder minified = new StringBuilder(css.length());
+        boolean space = false;
+        int i = 0;
+        while (i < css.length()) {
+            char c = css.charAt(i);
+            if (c == '/' && css.startsWith("*", i + 1)) {
+                int end = css.indexOf("*/", i + 2);
+                i = end < 0 ? css.length() : end + 2;
+                continue;
+            }
+            if (Character.isWhitespace(c)) {
+                space = true;
+                i++;
+                continue;
+            }
+            if (space && minified.length() > 0 && PUNCTUATION.indexOf(c) < 0
+                    && PUNCTUATION.indexOf(minified.charAt(minified.length() - 1)) < 0) {
+                minified.append(' ');
+            }
+            space = false;
+            int end;
+            if (c == '"' || c == '\'') {
+                end = endOfString(css, i, c);
+            } else if (css.regionMatches(true, i, URL, 0, URL.length()) && !isQuoted(css, i + URL.length())) {
+                int close = css.indexOf(')', i);
+                end = close < 0 ? css.length() : close + 1;
+            } else {
+                end = i + 1;
+            }
+            minified.append(css, i, end);
+            i = end;
+        }
+        return minified.toString();
+    }
+
+    /***
+     * @return index after the closing quote, escaped quotes do not close the string
+     */
+    private static int endOfString(String css, int start, char quote) {
+        for (int i = start + 1; i < css.length(); i++) {
+            char c = css.charAt(i);
+            if (c == '\\') {
+                i++;
+            } else if (c == quote || c == '\n') {
+                return i + 1;
+            }
+        }
+        return css.length();
+    }
+
+    private static boolean isQuoted(String css, int from) {
+        int i = from;
+        while (i < css.length() && Character.isWhitespace(css.charAt(i))) {
+            i++;
+        }
+        return i < css.length() && (css.charAt(i) == '"' || css.charAt(i) == '\'');
+    }
+
+    private static boolean isMinifiable(String filename) {
+        return filename != null && filename.endsWith(".css") && !filename.endsWith(".min.css");
+    }
+
+    /***
+     * gzip (or x-gzip) listed with a non zero q, or not listed while * is accepted.
+     */
+    static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        boolean any = false;
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parameters = coding.split(";");
+            String name = parameters[0].trim().toLowerCase(Locale.ROOT);
+            boolean accepted = quality(parameters) > 0;
+            if (name.equals("gzip") || name.equals("x-gzip")) {
+                return accepted;
+            }
+            if (name.equals("*")) {
+                any = accepted;
+            }
+        }
+        return any;
+    }
+
+    private static double quality(String[] parameters) {
+        for (int i = 1; i < parameters.length; i++) {
+            String parameter = parameters[i].trim().toLowerCase(Locale.ROOT);
+            if (parameter.startsWith("q=")) {
+                try {
+                    return Double.parseDouble(parameter.substring(2).trim());
+                } catch (NumberFormatException e) {
+                    return 0;
+                }
+            }
+        }
+        return 1;
+    }
+
+    private static byte[] gzip(byte[] content) throws IOException {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(content.length / 3 + 64);
+        try (GZIPOutputStream out = new GZIPOutputStream(compressed)) {
+            out.write(content);
+        }
+        return compressed.toByteArray();
+    }
+
+    private static final class AssetResource extends ByteArrayResource implements HttpResource {
+
+        private final Resource original;
+        private final HttpHeaders headers;
+
+        private AssetResource(byte[] content, Resource original, HttpHeaders headers) {
+            super(content, original.getDescription());
+            this.original = original;
+            this.headers = headers;
+        }
+
+        @Override
+        public String getFilename() {
+            return original.getFilename();
+        }
+
+        @Override
+        public long lastModified() throws IOException {
+            return original.lastModified();
+        }
+
+        @Override
+        public HttpHeaders getResponseHeaders() {
+            return headers;
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package com.mariusz.book_collection.config;
+
+import org.ehcache.jsr107.EhcacheCachingProvider;
+import org.ehcache.xml.XmlConfiguration;
+import org.hibernate.cache.CacheException;
+import org.hibernate.cache.jcache.JCacheRegionFactory;
+
+import javax.cache.CacheManager;
+import javax.cache.spi.CachingProvider;
+import java.net.URI;
+import java.net.URL;
+import java.util.Properties;
+import java.util.UUID;
+
+/***
+ * Second level cache regions configured by ehcache.xml from the classpath.
+ * Every session factory gets its own cache manager, so two application contexts in one JVM
+ * (tests) never see each other's entries, and closing one does not close the other's caches.
+ */
+public class EhcacheRegionFactory extends JCacheRegionFactory {
+
+    static final String CONFIG = "/ehcache.xml";
+
+    @Override
+    protected CacheManager getCacheManager(Properties properties) {
+        CachingProvider cachingProvider = getCachingProvider(properties);
+        if (!(cachingProvider instanceof EhcacheCachingProvider)) {
+            throw new CacheException("Ehcache JCache provider expected, found " + cachingProvider.getClass().getName());
+        }
+        URL config = EhcacheRegionFactory.class.getResource(CONFIG);
+        if (config == null) {
+            throw new CacheException("Missing " + CONFIG + " on the classpath");
+        }
+        return ((EhcacheCachingProvider) cachingProvider).getCacheManager(
+                URI.create("urn:book-collection:hibernate:" + UUID.randomUUID()),
+                new XmlConfiguration(config, EhcacheRegionFactory.class.getClassLoader()));
+    }
+}
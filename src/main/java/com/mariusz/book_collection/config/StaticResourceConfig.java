@@ -0,0 +1,40 @@
+package com.mariusz.book_collection.config;
+
+import org.springframework.cache.concurrent.ConcurrentMapCache;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.CacheControl;
+import org.springframework.web.servlet.config.annotation.ResourceHandlerRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import org.springframework.web.servlet.resource.CachingResourceResolver;
+import org.springframework.web.servlet.resource.CssLinkResourceTransformer;
+import org.springframework.web.servlet.resource.ResourceUrlEncodingFilter;
+import org.springframework.web.servlet.resource.VersionResourceResolver;
+
+/***
+ * Stylesheets and scripts under /css are linked from templates by names with a hash of their content,
+ * rewritten by ResourceUrlEncodingFilter in every th:href and th:src. Those names are cached for a year,
+ * the plain names are revalidated on every use.
+ * The chain is built by hand: the default caching transformer keeps one copy per resource, which would hand
+ * the gzipped stylesheet to clients refusing gzip.
+ */
+@Configuration
+public class StaticResourceConfig implements WebMvcConfigurer {
+
+    @Override
+    public void addResourceHandlers(ResourceHandlerRegistry registry) {
+        registry.addResourceHandler("/css/**")
+                .addResourceLocations("classpath:/static/css/")
+                .setCacheControl(CacheControl.noCache())
+                .resourceChain(false)
+                .addResolver(new CachingResourceResolver(new ConcurrentMapCache("assets")))
+                .addResolver(new VersionResourceResolver().addContentVersionStrategy("/**"))
+                .addTransformer(new AssetResourceTransformer())
+                .addTransformer(new CssLinkResourceTransformer());
+    }
+
+    @Bean
+    public ResourceUrlEncodingFilter resourceUrlEncodingFilter() {
+        return new ResourceUrlEncodingFilter();
+    }
+}
@@ -1,37 +1,72 @@
 package com.mariusz.book_collection.controller;
 
+import com.mariusz.book_collection.catalog.CatalogVersion;
+import com.mariusz.book_collection.controllerRest.ConditionalRequests;
+import com.mariusz.book_collection.entity.Author;
 import com.mariusz.book_collection.entity.AuthorForm;
-import com.mariusz.book_collection.entity.BookForm;
+import com.mariusz.book_collection.entity.AuthorView;
 import com.mariusz.book_collection.service.AuthorService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Optional;
+import java.util.Set;
 
 @Controller
 @RequestMapping(value = "/authors")
 public class AuthorController {
 
+    private static final Set<String> SORTABLE = new HashSet<>(Arrays.asList("authorId", "firstName", "lastName"));
 
     @Autowired
     private final AuthorService authorService;
+    private final CatalogVersion catalogVersion;
 
 
-    public AuthorController(AuthorService authorService) {
+    public AuthorController(AuthorService authorService, CatalogVersion catalogVersion) {
         this.authorService = authorService;
+        this.catalogVersion = catalogVersion;
     }
 
+    /***
+     * One page of authors, at most ListPages.MAX_PAGE_SIZE rows.
+     * @param sort - authorId, firstName or lastName
+     * @param dir - asc or desc
+     */
     @GetMapping(value = "authorList")
-    public String getAuthors(Model model){
-        model.addAttribute("authors", authorService.findAll());
+    public String getAuthors(@RequestParam(value = "page", defaultValue = "0") int page,
+                             @RequestParam(value = "size", defaultValue = ListPages.DEFAULT_PAGE_SIZE) int size,
+                             @RequestParam(value = "sort", defaultValue = "authorId") String sort,
+                             @RequestParam(value = "dir", defaultValue = "asc") String dir,
+                             WebRequest request, Model model){
+        if (ConditionalRequests.isCatalogNotModified(request, catalogVersion)) {
+            return null;
+        }
+        Page<AuthorView> authors = authorService.findAuthorsPage(
+                ListPages.pageRequest(page, size, sort, dir, SORTABLE, "authorId"));
+        model.addAttribute("authors", authors.getContent());
+        ListPages.addPageAttributes(model, authors);
         return "author_list";
     }
 
+    /***
+     * Author comes from the second level cache, a matching validator returns 304 before rendering.
+     */
     @GetMapping(value = "/{id}")
-    public String getAuthorDetails(@PathVariable("id") Long authorId, Model model){
-        authorService
-                .findAuthorById(authorId)
-                .map(foundAuthor ->  model.addAttribute("author", foundAuthor));
+    public String getAuthorDetails(@PathVariable("id") Long authorId, WebRequest request, Model model){
+        Optional<Author> author = authorService.findAuthorById(authorId);
+        if (author.isPresent() && request.checkNotModified(
+                PageTags.entityTag(catalogVersion, "author", authorId, author.get().getVersion()),
+                PageTags.lastModified(catalogVersion, author.get().getUpdated()))) {
+            return null;
+        }
+        author.map(foundAuthor ->  model.addAttribute("author", foundAuthor));
         return "author_details";
     }
 
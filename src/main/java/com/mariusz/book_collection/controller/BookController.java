@@ -1,31 +1,59 @@
 package com.mariusz.book_collection.controller;
 
+import com.mariusz.book_collection.catalog.CatalogVersion;
+import com.mariusz.book_collection.controllerRest.ConditionalRequests;
+import com.mariusz.book_collection.entity.Book;
 import com.mariusz.book_collection.entity.BookForm;
+import com.mariusz.book_collection.entity.BookModification;
+import com.mariusz.book_collection.entity.BookView;
 import com.mariusz.book_collection.service.AuthorService;
 import com.mariusz.book_collection.service.BookService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Optional;
+import java.util.Set;
 
 @Controller
 @RequestMapping("/books")
 public class BookController {
 
+    private static final Set<String> SORTABLE = new HashSet<>(Arrays.asList("id", "title", "isbn"));
+
     private final BookService bookService;
     private final AuthorService authorService;
+    private final CatalogVersion catalogVersion;
 
     @Autowired
-    public BookController(BookService bookService, AuthorService authorService) {
+    public BookController(BookService bookService, AuthorService authorService, CatalogVersion catalogVersion) {
         this.bookService = bookService;
         this.authorService = authorService;
+        this.catalogVersion = catalogVersion;
     }
 
+    /***
+     * A conditional request is checked against versions of the book, its author and shelf
+     * before the book is loaded, 304 costs one small select and no rendering.
+     */
     @GetMapping(value = "/{id}")
-    public String getBook(@PathVariable("id") Long bookId, Model model){
-        bookService
-                .findBookById(bookId)
-                .map(foundBook ->  model.addAttribute("book", foundBook));
+    public String getBook(@PathVariable("id") Long bookId, WebRequest request, Model model){
+        if (ConditionalRequests.isConditional(request)) {
+            Optional<BookModification> modification = bookService.findBookModificationById(bookId);
+            if (modification.isPresent() && isNotModified(request, modification.get())) {
+                return null;
+            }
+        }
+        Optional<Book> book = bookService.findBookDetailsById(bookId);
+        if (book.isPresent() && isNotModified(request, book.get())) {
+            return null;
+        }
+        book.map(foundBook ->  model.addAttribute("book", foundBook));
         return "book_details";
     }
 
@@ -44,9 +72,23 @@ public class BookController {
         return "redirect:/books/bookList";
     }
 
+    /***
+     * One page of books, at most ListPages.MAX_PAGE_SIZE rows.
+     * @param sort - id, title or isbn
+     * @param dir - asc or desc
+     */
     @GetMapping(value = "/bookList")
-    public String getAllBooks(Model model){
-        model.addAttribute("books", bookService.findAllBooks());
+    public String getAllBooks(@RequestParam(value = "page", defaultValue = "0") int page,
+                              @RequestParam(value = "size", defaultValue = ListPages.DEFAULT_PAGE_SIZE) int size,
+                              @RequestParam(value = "sort", defaultValue = "id") String sort,
+                              @RequestParam(value = "dir", defaultValue = "asc") String dir,
+                              WebRequest request, Model model){
+        if (ConditionalRequests.isCatalogNotModified(request, catalogVersion)) {
+            return null;
+        }
+        Page<BookView> books = bookService.findBooksPage(ListPages.pageRequest(page, size, sort, dir, SORTABLE, "id"));
+        model.addAttribute("books", books.getContent());
+        ListPages.addPageAttributes(model, books);
         return "book_list";
     }
 
@@ -63,5 +105,19 @@ public class BookController {
         return "redirect:/books/bookList";
     }
 
+    private boolean isNotModified(WebRequest request, BookModification book) {
+        return request.checkNotModified(
+                PageTags.entityTag(catalogVersion, "book", book.getId(), book.getVersion(), book.getAuthorVersion(), book.getShelfVersion()),
+                PageTags.lastModified(catalogVersion, book.getUpdated(), book.getAuthorUpdated(), book.getShelfUpdated()));
+    }
 
+    private boolean isNotModified(WebRequest request, Book book) {
+        Long authorVersion = book.getAuthor() == null ? null : book.getAuthor().getVersion();
+        Long shelfVersion = book.getShelf() == null ? null : book.getShelf().getVersion();
+        return request.checkNotModified(
+                PageTags.entityTag(catalogVersion, "book", book.getId(), book.getVersion(), authorVersion, shelfVersion),
+                PageTags.lastModified(catalogVersion, book.getUpdated(),
+                        book.getAuthor() == null ? null : book.getAuthor().getUpdated(),
+                        book.getShelf() == null ? null : book.getShelf().getUpdated()));
+    }
 }
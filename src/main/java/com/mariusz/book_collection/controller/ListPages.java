@@ -0,0 +1,41 @@
+package com.mariusz.book_collection.controller;
+
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.ui.Model;
+
+import java.util.Set;
+
+/***
+ * Page of an HTML list built from request parameters.
+ * Only the given properties can be sorted on, anything else sorts by id. The id is always the last sort key,
+ * so rows with equal values do not move between pages.
+ */
+final class ListPages {
+
+    static final int MAX_PAGE_SIZE = 200;
+    static final String DEFAULT_PAGE_SIZE = "50";
+
+    private ListPages() {
+    }
+
+    static Pageable pageRequest(int page, int size, String sort, String dir, Set<String> sortable, String id) {
+        Sort.Direction direction = "desc".equalsIgnoreCase(dir) ? Sort.Direction.DESC : Sort.Direction.ASC;
+        Sort order = sortable.contains(sort) && !sort.equals(id)
+                ? Sort.by(direction, sort).and(Sort.by(direction, id))
+                : Sort.by(direction, id);
+        return PageRequest.of(Math.max(page, 0), Math.min(Math.max(size, 1), MAX_PAGE_SIZE), order);
+    }
+
+    /***
+     * Page and its first sort key for the pagination and sort links of the template.
+     */
+    static void addPageAttributes(Model model, Page<?> page) {
+        Sort.Order order = page.getSort().iterator().next();
+        model.addAttribute("page", page);
+        model.addAttribute("sort", order.getProperty());
+        model.addAttribute("dir", order.getDirection().isDescending() ? "desc" : "asc");
+    }
+}
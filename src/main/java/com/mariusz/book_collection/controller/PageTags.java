@@ -0,0 +1,28 @@
+package com.mariusz.book_collection.controller;
+
+import com.mariusz.book_collection.catalog.CatalogVersion;
+import com.mariusz.book_collection.controllerRest.ConditionalRequests;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+
+/***
+ * Validators of rendered pages. A page depends on the templates as well as on the data,
+ * so the tag of an entity page contains the startup time and Last-Modified is never older than it.
+ * Collection pages use the catalog tag, which starts from the startup time anyway.
+ */
+final class PageTags {
+
+    private PageTags() {
+    }
+
+    static String entityTag(CatalogVersion catalogVersion, String kind, Long id, Long... versions) {
+        Long[] withStartup = Arrays.copyOf(versions, versions.length + 1);
+        withStartup[versions.length] = catalogVersion.getStartedAt();
+        return ConditionalRequests.entityTag(kind + "-page", id, withStartup);
+    }
+
+    static long lastModified(CatalogVersion catalogVersion, LocalDateTime... updated) {
+        return Math.max(ConditionalRequests.lastModified(updated), catalogVersion.getStartedAt());
+    }
+}
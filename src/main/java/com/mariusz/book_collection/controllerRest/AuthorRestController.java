@@ -1,6 +1,9 @@
 package com.mariusz.book_collection.controllerRest;
 
+import com.mariusz.book_collection.catalog.CatalogVersion;
 import com.mariusz.book_collection.entity.Author;
+import com.mariusz.book_collection.entity.AuthorSuggestion;
+import com.mariusz.book_collection.entity.AuthorView;
 import com.mariusz.book_collection.service.AuthorService;
 import lombok.val;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -9,7 +12,9 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 
 import java.util.List;
 
@@ -17,28 +22,59 @@ import java.util.List;
 @RequestMapping("api/authors")
 public class AuthorRestController {
 
+    static final int MAX_SUGGEST_LIMIT = 100;
+    static final String DEFAULT_SUGGEST_LIMIT = "10";
+
     private final AuthorService authorService;
+    private final CatalogVersion catalogVersion;
 
     @Autowired
-    public AuthorRestController(AuthorService authorService) {
+    public AuthorRestController(AuthorService authorService, CatalogVersion catalogVersion) {
         this.authorService = authorService;
+        this.catalogVersion = catalogVersion;
     }
 
 
     @GetMapping(value = "/{authorId}")
-    public ResponseEntity<Author> getAuthorById(@PathVariable("authorId") Long authorId){
+    public ResponseEntity<Author> getAuthorById(@PathVariable("authorId") Long authorId, WebRequest request){
         return authorService
                 .findAuthorById(authorId)
-                .map(author -> new ResponseEntity<>(author, HttpStatus.OK))
+                .map(author -> request.checkNotModified(
+                        ConditionalRequests.entityTag("author", author.getAuthorId(), author.getVersion()),
+                        ConditionalRequests.lastModified(author.getUpdated()))
+                        ? new ResponseEntity<Author>(HttpStatus.NOT_MODIFIED)
+                        : new ResponseEntity<>(author, HttpStatus.OK))
                 .orElse(new ResponseEntity<>(HttpStatus.NOT_FOUND));
     }
 
     @GetMapping(value = "")
-    public ResponseEntity<List<Author>> getAuthors(){
+    public ResponseEntity<List<AuthorView>> getAuthors(WebRequest request){
+        if (ConditionalRequests.isCatalogNotModified(request, catalogVersion)) {
+            return new ResponseEntity<>(HttpStatus.NOT_MODIFIED);
+        }
         final val all = authorService.findAll();
       return all.isEmpty()?new ResponseEntity<>(HttpStatus.NOT_FOUND): new ResponseEntity<>(all, HttpStatus.OK);
     }
 
+    /***
+     * Autocomplete of author names
+     * @param prefix - beginning of the first or last name, or of both names in any order
+     * @param limit - maximum number of results, at most MAX_SUGGEST_LIMIT
+     * @return matching authors, empty list when none match
+     */
+    @GetMapping(value = "/suggest")
+    public ResponseEntity<List<AuthorSuggestion>> suggestAuthors(@RequestParam(value = "prefix") String prefix,
+                                                                 @RequestParam(value = "limit", defaultValue = DEFAULT_SUGGEST_LIMIT) int limit,
+                                                                 WebRequest request){
+        if (prefix.trim().isEmpty() || limit < 1 || limit > MAX_SUGGEST_LIMIT){
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+        if (ConditionalRequests.isCatalogNotModified(request, catalogVersion)) {
+            return new ResponseEntity<>(HttpStatus.NOT_MODIFIED);
+        }
+        return new ResponseEntity<>(authorService.suggestAuthors(prefix, limit), HttpStatus.OK);
+    }
+
 
 
 
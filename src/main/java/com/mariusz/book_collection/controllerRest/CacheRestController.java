@@ -0,0 +1,36 @@
+package com.mariusz.book_collection.controllerRest;
+
+import com.mariusz.book_collection.entity.CacheRegionStatistics;
+import com.mariusz.book_collection.service.CacheStatisticsService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("api/cache")
+public class CacheRestController {
+
+    private final CacheStatisticsService cacheStatisticsService;
+
+    @Autowired
+    public CacheRestController(CacheStatisticsService cacheStatisticsService) {
+        this.cacheStatisticsService = cacheStatisticsService;
+    }
+
+    /***
+     * Hit, miss and put counts of the author and shelf caches and of the query cache.
+     * @return 404 when Hibernate statistics are turned off
+     */
+    @GetMapping(value = "/statistics")
+    public ResponseEntity<List<CacheRegionStatistics>> getCacheStatistics(){
+        if (!cacheStatisticsService.isEnabled()) {
+            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        }
+        return new ResponseEntity<>(cacheStatisticsService.getCacheStatistics(), HttpStatus.OK);
+    }
+}
@@ -0,0 +1,80 @@
+package com.mariusz.book_collection.controllerRest;
+
+import com.mariusz.book_collection.catalog.CatalogVersion;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.context.request.WebRequest;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+
+/***
+ * Validators (ETag and Last-Modified) of the api responses and rendered pages.
+ * A single entity is tagged with its version, a collection with the catalog version.
+ */
+public final class ConditionalRequests {
+
+    private ConditionalRequests() {
+    }
+
+    /***
+     * @return true when the client sent a validator, only then it is worth to check it before loading data
+     */
+    public static boolean isConditional(WebRequest request) {
+        return request.getHeader(HttpHeaders.IF_NONE_MATCH) != null
+                || request.getHeader(HttpHeaders.IF_MODIFIED_SINCE) != null;
+    }
+
+    /***
+     * Must be checked before the collection is loaded, a change committed in between gives
+     * a new tag on the next request instead of an old tag for the new content.
+     * Last-Modified has one second resolution, a date given out in the second of the last change would
+     * still match a change later in that second. Until that second passes only the tag is compared and sent.
+     */
+    public static boolean isCatalogNotModified(WebRequest request, CatalogVersion catalogVersion) {
+        CatalogVersion.Snapshot current = catalogVersion.current();
+        String tag = "\"catalog-" + current.getVersion() + "\"";
+        if (current.getLastModified() / 1000 >= System.currentTimeMillis() / 1000) {
+            return request.checkNotModified(tag);
+        }
+        return request.checkNotModified(tag, current.getLastModified());
+    }
+
+    public static String entityTag(String kind, Long id, Long... versions) {
+        StringBuilder tag = new StringBuilder("\"").append(kind).append('-').append(id);
+        for (Long version : versions) {
+            tag.append('-').append(version == null ? "" : version);
+        }
+        return tag.append('"').toString();
+    }
+
+    /***
+     * Strong comparison of If-Match with the current tag.
+     * @param ifMatch - value of If-Match, "*" or a list of tags
+     */
+    static boolean matches(String ifMatch, String etag) {
+        for (String tag : ifMatch.split(",")) {
+            String trimmed = tag.trim();
+            if (trimmed.equals("*") || trimmed.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /***
+     * @return latest of the given times in epoch milliseconds, -1 when none is known
+     */
+    public static long lastModified(LocalDateTime... updated) {
+        long lastModified = -1;
+        for (LocalDateTime time : updated) {
+            if (time != null) {
+                lastModified = Math.max(lastModified, toEpochMilli(time));
+            }
+        }
+        return lastModified;
+    }
+
+    private static long toEpochMilli(LocalDateTime time) {
+        return time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+}
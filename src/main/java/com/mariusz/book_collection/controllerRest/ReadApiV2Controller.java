@@ -0,0 +1,112 @@
+package com.mariusz.book_collection.controllerRest;
+
+import com.mariusz.book_collection.entity.Author;
+import com.mariusz.book_collection.entity.AuthorView;
+import com.mariusz.book_collection.entity.Book;
+import com.mariusz.book_collection.entity.Shelf;
+import com.mariusz.book_collection.entity.ShelfBooksPage;
+import com.mariusz.book_collection.entity.ShelfView;
+import com.mariusz.book_collection.service.AuthorService;
+import com.mariusz.book_collection.service.BookExportService;
+import com.mariusz.book_collection.service.BookService;
+import com.mariusz.book_collection.service.ShelfService;
+import com.mariusz.book_collection.stream.BookStreamWriter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.function.Supplier;
+
+/***
+ * Read endpoints which do not keep a request thread while the database works.
+ * Queries run on the database executor and the response is written when they finish,
+ * the book list is streamed as newline delimited JSON at the pace of the client.
+ */
+@RestController
+@RequestMapping("api/v2")
+public class ReadApiV2Controller {
+
+    private final BookService bookService;
+    private final AuthorService authorService;
+    private final ShelfService shelfService;
+    private final BookStreamWriter bookStreamWriter;
+    private final ExecutorService databaseExecutor;
+
+    @Autowired
+    public ReadApiV2Controller(BookService bookService, AuthorService authorService, ShelfService shelfService,
+                               BookStreamWriter bookStreamWriter,
+                               @Qualifier("databaseExecutor") ExecutorService databaseExecutor) {
+        this.bookService = bookService;
+        this.authorService = authorService;
+        this.shelfService = shelfService;
+        this.bookStreamWriter = bookStreamWriter;
+        this.databaseExecutor = databaseExecutor;
+    }
+
+    /***
+     * All books ordered by id, one JSON document per line, read page by page as the client takes them.
+     */
+    @GetMapping(value = "/books", produces = BookExportService.NDJSON_MEDIA_TYPE)
+    public void streamBooks(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        bookStreamWriter.stream(request, response, bookService::findBooksAfter);
+    }
+
+    @GetMapping("/books/{id}")
+    public CompletableFuture<ResponseEntity<Book>> getBook(@PathVariable("id") Long bookId) {
+        return found(() -> bookService.findBookById(bookId));
+    }
+
+    @GetMapping("/authors")
+    public CompletableFuture<ResponseEntity<List<AuthorView>>> getAuthors() {
+        return supply(() -> new ResponseEntity<>(authorService.findAll(), HttpStatus.OK));
+    }
+
+    @GetMapping("/authors/{id}")
+    public CompletableFuture<ResponseEntity<Author>> getAuthor(@PathVariable("id") Long authorId) {
+        return found(() -> authorService.findAuthorById(authorId));
+    }
+
+    @GetMapping("/shelfs")
+    public CompletableFuture<ResponseEntity<List<ShelfView>>> getShelfs() {
+        return supply(() -> new ResponseEntity<>(shelfService.getAllShelfs(), HttpStatus.OK));
+    }
+
+    @GetMapping("/shelfs/{id}")
+    public CompletableFuture<ResponseEntity<Shelf>> getShelf(@PathVariable("id") Long shelfId) {
+        return found(() -> shelfService.findShelfById(shelfId));
+    }
+
+    @GetMapping("/shelfs/{id}/books")
+    public CompletableFuture<ResponseEntity<ShelfBooksPage>> getShelfBooks(
+            @PathVariable("id") Long shelfId,
+            @RequestParam(value = "after", required = false) Long after,
+            @RequestParam(value = "limit", defaultValue = ShelfRestController.DEFAULT_PAGE_LIMIT) int limit) {
+        if (limit < 1 || limit > ShelfRestController.MAX_PAGE_LIMIT) {
+            return CompletableFuture.completedFuture(new ResponseEntity<>(HttpStatus.BAD_REQUEST));
+        }
+        return found(() -> shelfService.findShelfBooks(shelfId, after, limit));
+    }
+
+    private <T> CompletableFuture<ResponseEntity<T>> found(Supplier<Optional<T>> query) {
+        return supply(() -> query.get()
+                .map(value -> new ResponseEntity<>(value, HttpStatus.OK))
+                .orElse(new ResponseEntity<>(HttpStatus.NOT_FOUND)));
+    }
+
+    private <T> CompletableFuture<ResponseEntity<T>> supply(Supplier<ResponseEntity<T>> query) {
+        return CompletableFuture.supplyAsync(query, databaseExecutor);
+    }
+}
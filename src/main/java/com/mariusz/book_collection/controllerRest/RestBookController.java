@@ -1,66 +1,173 @@
 package com.mariusz.book_collection.controllerRest;
 
+import com.github.fge.jsonpatch.JsonPatch;
+import com.github.fge.jsonpatch.mergepatch.JsonMergePatch;
+import com.mariusz.book_collection.catalog.CatalogVersion;
 import com.mariusz.book_collection.entity.Book;
-import com.mariusz.book_collection.service.AuthorService;
+import com.mariusz.book_collection.entity.BookBulkUpdate;
+import com.mariusz.book_collection.entity.BookBulkUpdateResult;
+import com.mariusz.book_collection.entity.BookCursorPage;
+import com.mariusz.book_collection.entity.BookModification;
+import com.mariusz.book_collection.entity.BookShelfMove;
+import com.mariusz.book_collection.entity.BookView;
+import com.mariusz.book_collection.patch.InvalidPatchException;
+import com.mariusz.book_collection.service.BookBatchService;
+import com.mariusz.book_collection.service.BookExportService;
+import com.mariusz.book_collection.service.BookPatchService;
 import com.mariusz.book_collection.service.BookService;
+import com.mariusz.book_collection.service.BookUpdateService;
+import com.mariusz.book_collection.service.PreconditionFailedException;
+import com.mariusz.book_collection.service.UpdateConflictException;
+import org.hibernate.exception.ConstraintViolationException;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
-import java.lang.reflect.Field;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.time.LocalDateTime;
 import java.util.Collections;
 import java.util.List;
-import java.util.Map;
+import java.util.Locale;
 import java.util.Optional;
+import java.util.function.Predicate;
 
 @RestController
 @RequestMapping("api/books")
 public class RestBookController {
 
+    static final int MAX_PAGE_LIMIT = 1000;
+    static final int MAX_BATCH_SIZE = 10000;
+    static final String DEFAULT_SEARCH_LIMIT = "50";
 
     private final BookService bookService;
-    private final AuthorService authorService;
+    private final BookExportService bookExportService;
+    private final BookBatchService bookBatchService;
+    private final BookPatchService bookPatchService;
+    private final BookUpdateService bookUpdateService;
+    private final CatalogVersion catalogVersion;
 
     @Autowired
-    public RestBookController(BookService bookService, AuthorService authorService) {
+    public RestBookController(BookService bookService,
+                              BookExportService bookExportService, BookBatchService bookBatchService,
+                              BookPatchService bookPatchService, BookUpdateService bookUpdateService,
+                              CatalogVersion catalogVersion) {
         this.bookService = bookService;
-        this.authorService = authorService;
+        this.bookExportService = bookExportService;
+        this.bookBatchService = bookBatchService;
+        this.bookPatchService = bookPatchService;
+        this.bookUpdateService = bookUpdateService;
+        this.catalogVersion = catalogVersion;
     }
 
+    /***
+     * A conditional request is checked against versions of the book and its author
+     * before the book is loaded, 304 costs one small select and no serialization.
+     * @param bookId - book id
+     * @return book with ETag and Last-Modified
+     */
     @GetMapping(value = "/{id}")
-    public ResponseEntity<Book> getBook(@PathVariable("id") Long bookId){
+    public ResponseEntity<Book> getBook(@PathVariable("id") Long bookId, WebRequest request){
+        if (ConditionalRequests.isConditional(request)) {
+            Optional<BookModification> modification = bookService.findBookModificationById(bookId);
+            if (!modification.isPresent()) {
+                return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+            }
+            BookModification found = modification.get();
+            String etag = ConditionalRequests.entityTag("book", found.getId(), found.getVersion(), found.getAuthorVersion());
+            if (isNotModified(request, etag, found.getUpdated(), found.getAuthorUpdated())) {
+                return new ResponseEntity<>(HttpStatus.NOT_MODIFIED);
+            }
+        }
         return bookService
                 .findBookById(bookId)
-                .map(foundBook -> new ResponseEntity<>(foundBook, HttpStatus.OK))
+                .map(foundBook -> isNotModified(request, bookTag(foundBook), foundBook.getUpdated(),
+                        foundBook.getAuthor() == null ? null : foundBook.getAuthor().getUpdated())
+                        ? new ResponseEntity<Book>(HttpStatus.NOT_MODIFIED)
+                        : new ResponseEntity<>(foundBook, HttpStatus.OK))
                 .orElseGet(()-> new ResponseEntity<>(HttpStatus.NOT_FOUND));
     }
 
     @GetMapping(value = "")
-    public ResponseEntity<List<Book>> getAllBooks(){
-        List<Book> books = bookService.findAllBooks();
+    public ResponseEntity<List<BookView>> getAllBooks(WebRequest request){
+        if (ConditionalRequests.isCatalogNotModified(request, catalogVersion)) {
+            return new ResponseEntity<>(HttpStatus.NOT_MODIFIED);
+        }
+        List<BookView> books = bookService.findAllBooks();
         if (books.size()==0){
             return new ResponseEntity<>(HttpStatus.NOT_FOUND);
         }
         return new ResponseEntity<>(books, HttpStatus.OK);
     }
 
+    /***
+     * Cursor mode of the book list, used when "limit" is present.
+     * @param after - id of the last book from the previous page, omit for the first page
+     * @param limit - page size, at most MAX_PAGE_LIMIT
+     * @return page of books ordered by id with cursor of the next page
+     */
+    @GetMapping(value = "", params = "limit")
+    public ResponseEntity<BookCursorPage> getBooksPage(@RequestParam(value = "after", required = false) Long after,
+                                                       @RequestParam(value = "limit") int limit,
+                                                       WebRequest request){
+        if (limit < 1 || limit > MAX_PAGE_LIMIT){
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+        if (ConditionalRequests.isCatalogNotModified(request, catalogVersion)) {
+            return new ResponseEntity<>(HttpStatus.NOT_MODIFIED);
+        }
+        return new ResponseEntity<>(bookService.findBooksAfter(after, limit), HttpStatus.OK);
+    }
+
+    /***
+     * Export of the whole catalog as newline delimited JSON, one book with author per line.
+     * Rows are written to the response while they are read from the database.
+     */
+    @GetMapping(value = "/export", produces = BookExportService.NDJSON_MEDIA_TYPE)
+    public void exportBooks(HttpServletResponse response) throws IOException {
+        response.setContentType(BookExportService.NDJSON_MEDIA_TYPE);
+        response.setCharacterEncoding("UTF-8");
+        bookExportService.exportBooks(response.getOutputStream());
+    }
+
     @GetMapping(value = "/author")
-    public ResponseEntity<List<Book>> getAllBooksByAuthor(@RequestParam(value = "authorId", required = false) Long authorId,
-                                                          @RequestParam(value = "name", required = false) String lastName){
-        List<Book> books=Collections.emptyList();
+    public ResponseEntity<List<BookView>> getAllBooksByAuthor(@RequestParam(value = "authorId", required = false) Long authorId,
+                                                          @RequestParam(value = "name", required = false) String lastName,
+                                                          WebRequest request){
+        if (ConditionalRequests.isCatalogNotModified(request, catalogVersion)) {
+            return new ResponseEntity<>(HttpStatus.NOT_MODIFIED);
+        }
+        List<BookView> books=Collections.emptyList();
         if (authorId!=null)
             books = bookService.findBooksByAuthorId(authorId);
         else if (lastName!=null){
-            books = bookService.findBookByAuthors(authorService.findByLastName(lastName));
+            books = bookService.findBooksByAuthorLastName(lastName);
         }
         return new ResponseEntity<>(books, HttpStatus.OK);
     }
 
+    /***
+     * Search in titles and descriptions, case and accents are ignored.
+     * @param title - searched text
+     * @param limit - maximum number of results, at most MAX_PAGE_LIMIT
+     * @return best matching books first
+     */
     @GetMapping(value = "/search")
-    public ResponseEntity<List<Book>> getBooksByTitle(@RequestParam(value = "title") String title){
-        List<Book> books = bookService.findBookByTitle(title);
+    public ResponseEntity<List<BookView>> getBooksByTitle(@RequestParam(value = "title") String title,
+                                                      @RequestParam(value = "limit", defaultValue = DEFAULT_SEARCH_LIMIT) int limit,
+                                                      WebRequest request){
+        if (limit < 1 || limit > MAX_PAGE_LIMIT){
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+        if (ConditionalRequests.isCatalogNotModified(request, catalogVersion)) {
+            return new ResponseEntity<>(HttpStatus.NOT_MODIFIED);
+        }
+        List<BookView> books = bookService.findBookByTitle(title, limit);
         return new ResponseEntity<>(books, HttpStatus.OK);
     }
 
@@ -71,7 +178,11 @@ public class RestBookController {
      * @return optional book
      */
     @GetMapping(value = "/book")
-    public ResponseEntity<Book> getBookByIsbn(@RequestParam(value = "isbn", required = false) String isbn){
+    public ResponseEntity<Book> getBookByIsbn(@RequestParam(value = "isbn", required = false) String isbn,
+                                              WebRequest request){
+        if (ConditionalRequests.isCatalogNotModified(request, catalogVersion)) {
+            return new ResponseEntity<>(HttpStatus.NOT_MODIFIED);
+        }
        return bookService.findBookByIsbn(isbn).map(book ->
             new ResponseEntity<>(book, HttpStatus.OK)
         ).orElseGet(()-> new ResponseEntity<>(HttpStatus.NOT_FOUND));
@@ -83,35 +194,144 @@ public class RestBookController {
         return new ResponseEntity<>(createdBook, HttpStatus.CREATED);
     }
 
+    /***
+     * Bulk create, up to MAX_BATCH_SIZE books per request, all of them or none are saved.
+     * @param books - new books
+     * @return generated ids in request order
+     */
+    @PostMapping(value = "/batch")
+    public ResponseEntity<List<Long>> createBatch(@RequestBody final List<Book> books) {
+        if (books.isEmpty() || books.size() > MAX_BATCH_SIZE) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+        return new ResponseEntity<>(bookBatchService.addBooks(books), HttpStatus.CREATED);
+    }
+
+    /***
+     * Bulk update of title or description. Books are selected by ids (up to MAX_BATCH_SIZE),
+     * by author or by both, null removes the description.
+     * @return number of changed books, 422 when a change can not be applied to many books
+     */
+    @PatchMapping(value = "/batch")
+    public ResponseEntity<BookBulkUpdateResult> updateBatch(@RequestBody final BookBulkUpdate update) {
+        boolean byIds = update.getIds() != null && !update.getIds().isEmpty();
+        if (!byIds && update.getAuthorId() == null || byIds && update.getIds().size() > MAX_BATCH_SIZE) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+        return new ResponseEntity<>(bookBatchService.updateBooks(update), HttpStatus.OK);
+    }
+
+    /***
+     * Puts many books on another shelf. Books are selected by ids (up to MAX_BATCH_SIZE),
+     * by the shelf they stand on or by both.
+     * @return number of moved books, 404 when the target shelf does not exist
+     */
+    @PatchMapping(value = "/batch/shelf")
+    public ResponseEntity<BookBulkUpdateResult> moveBatch(@RequestBody final BookShelfMove move) {
+        boolean byIds = move.getIds() != null && !move.getIds().isEmpty();
+        if (move.getToShelfId() == null || !byIds && move.getFromShelfId() == null
+                || byIds && move.getIds().size() > MAX_BATCH_SIZE) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+        return bookBatchService.moveBooks(move)
+                .map(result -> new ResponseEntity<>(result, HttpStatus.OK))
+                .orElse(new ResponseEntity<>(HttpStatus.NOT_FOUND));
+    }
+
+    /***
+     * Replaces title, isbn, description and author of the book.
+     * With If-Match the book is replaced only while it is in the version the client read, otherwise 412.
+     * @return updated book with its new ETag, 409 when concurrent updates kept winning
+     * or the isbn belongs to another book
+     */
     @PutMapping(value = "/{id}")
-    public ResponseEntity<Book> update(@PathVariable("id") Long bookId, @RequestBody Book book){
-
-        return bookService.findBookById(bookId).map(foundBook -> {
-            book.setId(foundBook.getId());
-            return new ResponseEntity<>(bookService.saveOrUpdate(book),HttpStatus.OK);
-        }).orElseGet(()-> new ResponseEntity<>(HttpStatus.NOT_FOUND));
-    }
-
-    @PatchMapping(value = "/{id}", consumes = MediaType.APPLICATION_JSON_VALUE)
-    public ResponseEntity<Book> patch (@RequestBody Map<String, Object> updates, @PathVariable("id") Long id){
-        Optional<Book> book = bookService.findBookById(id);
-        if (book.isPresent()) {
-            Book book1 = book.get();
-            for (Field field : Book.class.getDeclaredFields()
-                    ) {
-                if (updates.containsKey(field.getName())) {
-                    System.out.println(updates.get(field.getName()));
-                    field.setAccessible(true);
-
-                    try {
-                        field.set(book1, updates.get(field.getName()));
-                    } catch (IllegalAccessException e) {
-                        e.printStackTrace();
-                    }
-                }
+    public ResponseEntity<Book> update(@PathVariable("id") Long bookId, @RequestBody Book book,
+                                       @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch){
+        return toUpdateResponse(bookUpdateService.replaceBook(bookId, book, matching(ifMatch)));
+    }
+
+    /***
+     * RFC 6902 patch of title, isbn and description, only changed columns are updated.
+     * @return patched book, 409 when an operation fails (e.g. test), 412 when If-Match does not match,
+     * 422 when a property is not patchable
+     */
+    @PatchMapping(value = "/{id}", consumes = BookPatchService.JSON_PATCH_MEDIA_TYPE)
+    public ResponseEntity<Book> patch(@RequestBody JsonPatch patch, @PathVariable("id") Long id,
+                                      @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        return toUpdateResponse(bookPatchService.patchBook(id, patch, matching(ifMatch)));
+    }
+
+    /***
+     * RFC 7396 merge patch, plain json body is read as a merge patch too.
+     * @return patched book, 412 when If-Match does not match, 422 when a property is not patchable
+     */
+    @PatchMapping(value = "/{id}", consumes = {BookPatchService.MERGE_PATCH_MEDIA_TYPE, MediaType.APPLICATION_JSON_VALUE})
+    public ResponseEntity<Book> mergePatch(@RequestBody JsonMergePatch patch, @PathVariable("id") Long id,
+                                           @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        return toUpdateResponse(bookPatchService.patchBook(id, patch, matching(ifMatch)));
+    }
+
+    @ExceptionHandler(UpdateConflictException.class)
+    public ResponseEntity<Void> updateConflict() {
+        return new ResponseEntity<>(HttpStatus.CONFLICT);
+    }
+
+    /***
+     * 409 when the isbn belongs to another book, 400 when the write broke another constraint,
+     * e.g. referenced an author which does not exist.
+     */
+    @ExceptionHandler(DataIntegrityViolationException.class)
+    public ResponseEntity<Void> integrityViolation(DataIntegrityViolationException e) {
+        return new ResponseEntity<>(isDuplicateIsbn(e) ? HttpStatus.CONFLICT : HttpStatus.BAD_REQUEST);
+    }
+
+    @ExceptionHandler(PreconditionFailedException.class)
+    public ResponseEntity<Void> preconditionFailed() {
+        return new ResponseEntity<>(HttpStatus.PRECONDITION_FAILED);
+    }
+
+    @ExceptionHandler(InvalidPatchException.class)
+    public ResponseEntity<Void> invalidPatch() {
+        return new ResponseEntity<>(HttpStatus.UNPROCESSABLE_ENTITY);
+    }
+
+    /***
+     * MySQL reports the index name itself, H2 adds a suffix and the table to it.
+     */
+    private static boolean isDuplicateIsbn(DataIntegrityViolationException e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof ConstraintViolationException) {
+                String constraintName = ((ConstraintViolationException) cause).getConstraintName();
+                return constraintName != null
+                        && constraintName.toLowerCase(Locale.ROOT).contains(Book.ISBN13_CONSTRAINT);
             }
         }
-//        bookService.saveOrUpdate(updates, id);
-        return new ResponseEntity<>(HttpStatus.OK);
+        return false;
+    }
+
+    private ResponseEntity<Book> toUpdateResponse(Optional<Book> book) {
+        return book
+                .map(updatedBook -> {
+                    HttpHeaders headers = new HttpHeaders();
+                    headers.setETag(bookTag(updatedBook));
+                    return new ResponseEntity<>(updatedBook, headers, HttpStatus.OK);
+                })
+                .orElseGet(() -> new ResponseEntity<>(HttpStatus.NOT_FOUND));
+    }
+
+    /***
+     * @return precondition of an update, without If-Match every version of the book matches
+     */
+    private static Predicate<Book> matching(String ifMatch) {
+        return book -> ifMatch == null || ConditionalRequests.matches(ifMatch, bookTag(book));
+    }
+
+    private static String bookTag(Book book) {
+        return ConditionalRequests.entityTag("book", book.getId(), book.getVersion(),
+                book.getAuthor() == null ? null : book.getAuthor().getVersion());
+    }
+
+    private boolean isNotModified(WebRequest request, String etag, LocalDateTime updated, LocalDateTime authorUpdated) {
+        return request.checkNotModified(etag, ConditionalRequests.lastModified(updated, authorUpdated));
     }
 }
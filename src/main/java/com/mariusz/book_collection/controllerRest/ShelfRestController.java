@@ -1,6 +1,9 @@
 package com.mariusz.book_collection.controllerRest;
 
+import com.mariusz.book_collection.catalog.CatalogVersion;
 import com.mariusz.book_collection.entity.Shelf;
+import com.mariusz.book_collection.entity.ShelfBooksPage;
+import com.mariusz.book_collection.entity.ShelfView;
 import com.mariusz.book_collection.service.ShelfService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
@@ -8,7 +11,9 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 
 import java.util.List;
 
@@ -16,16 +21,24 @@ import java.util.List;
 @RequestMapping(value = "api/shelfs")
 public class ShelfRestController {
 
+    static final int MAX_PAGE_LIMIT = 1000;
+    static final String DEFAULT_PAGE_LIMIT = "50";
+
     private final ShelfService shelfService;
+    private final CatalogVersion catalogVersion;
 
     @Autowired
-    public ShelfRestController(ShelfService shelfService) {
+    public ShelfRestController(ShelfService shelfService, CatalogVersion catalogVersion) {
         this.shelfService = shelfService;
+        this.catalogVersion = catalogVersion;
     }
 
     @GetMapping("")
-    public ResponseEntity<List<Shelf>> getAllShelfs() {
-        List<Shelf> shelfs = shelfService.getAllShelfs();
+    public ResponseEntity<List<ShelfView>> getAllShelfs(WebRequest request) {
+        if (ConditionalRequests.isCatalogNotModified(request, catalogVersion)) {
+            return new ResponseEntity<>(HttpStatus.NOT_MODIFIED);
+        }
+        List<ShelfView> shelfs = shelfService.getAllShelfs();
         return shelfs.size() > 0
                 ? new ResponseEntity<>(shelfs, HttpStatus.OK)
                 : new ResponseEntity<>(HttpStatus.NOT_FOUND);
@@ -33,11 +46,37 @@ public class ShelfRestController {
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity<Shelf> getShelf(@PathVariable("id") Long shelfId) {
+    public ResponseEntity<Shelf> getShelf(@PathVariable("id") Long shelfId, WebRequest request) {
         return shelfService
                 .findShelfById(shelfId)
-                .map(shelf -> new ResponseEntity<>(shelf, HttpStatus.OK))
+                .map(shelf -> request.checkNotModified(
+                        ConditionalRequests.entityTag("shelf", shelf.getId(), shelf.getVersion()),
+                        ConditionalRequests.lastModified(shelf.getUpdated()))
+                        ? new ResponseEntity<Shelf>(HttpStatus.NOT_MODIFIED)
+                        : new ResponseEntity<>(shelf, HttpStatus.OK))
                 .orElse(new ResponseEntity<>(HttpStatus.NOT_FOUND));
     }
 
+    /***
+     * Books standing on the shelf with their number.
+     * @param after - id of the last book from the previous page, omit for the first page
+     * @param limit - page size, at most MAX_PAGE_LIMIT
+     * @return page of books ordered by id with cursor of the next page
+     */
+    @GetMapping("/{id}/books")
+    public ResponseEntity<ShelfBooksPage> getShelfBooks(@PathVariable("id") Long shelfId,
+                                                        @RequestParam(value = "after", required = false) Long after,
+                                                        @RequestParam(value = "limit", defaultValue = DEFAULT_PAGE_LIMIT) int limit,
+                                                        WebRequest request) {
+        if (limit < 1 || limit > MAX_PAGE_LIMIT) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+        if (ConditionalRequests.isCatalogNotModified(request, catalogVersion)) {
+            return new ResponseEntity<>(HttpStatus.NOT_MODIFIED);
+        }
+        return shelfService
+                .findShelfBooks(shelfId, after, limit)
+                .map(page -> new ResponseEntity<>(page, HttpStatus.OK))
+                .orElse(new ResponseEntity<>(HttpStatus.NOT_FOUND));
+    }
 }
@@ -0,0 +1,57 @@
+package com.mariusz.book_collection.controllerRest;
+
+import com.mariusz.book_collection.catalog.CatalogVersion;
+import com.mariusz.book_collection.entity.CatalogStatisticsView;
+import com.mariusz.book_collection.entity.ConnectionHoldView;
+import com.mariusz.book_collection.service.CatalogStatisticsService;
+import com.mariusz.book_collection.service.ConnectionStatisticsService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+
+@RestController
+@RequestMapping("api/statistics")
+public class StatisticsRestController {
+
+    private final CatalogStatisticsService catalogStatisticsService;
+    private final CatalogVersion catalogVersion;
+    private final ConnectionStatisticsService connectionStatisticsService;
+
+    @Autowired
+    public StatisticsRestController(CatalogStatisticsService catalogStatisticsService, CatalogVersion catalogVersion,
+                                    ConnectionStatisticsService connectionStatisticsService) {
+        this.catalogStatisticsService = catalogStatisticsService;
+        this.catalogVersion = catalogVersion;
+        this.connectionStatisticsService = connectionStatisticsService;
+    }
+
+    /***
+     * Numbers of books, authors and shelves, books per author, per shelf and added per day.
+     */
+    @GetMapping(value = "")
+    public ResponseEntity<CatalogStatisticsView> getCatalogStatistics(WebRequest request) {
+        if (ConditionalRequests.isCatalogNotModified(request, catalogVersion)) {
+            return new ResponseEntity<>(HttpStatus.NOT_MODIFIED);
+        }
+        return new ResponseEntity<>(catalogStatisticsService.getCatalogStatistics(), HttpStatus.OK);
+    }
+
+    /***
+     * Connection hold time of every checkout and per request since startup or the last reset.
+     */
+    @GetMapping(value = "/connections")
+    public ResponseEntity<ConnectionHoldView> getConnectionHold() {
+        return new ResponseEntity<>(connectionStatisticsService.getConnectionHold(), HttpStatus.OK);
+    }
+
+    @DeleteMapping(value = "/connections")
+    public ResponseEntity<Void> resetConnectionHold() {
+        connectionStatisticsService.resetConnectionHold();
+        return new ResponseEntity<>(HttpStatus.NO_CONTENT);
+    }
+}
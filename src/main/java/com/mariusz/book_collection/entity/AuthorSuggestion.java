@@ -0,0 +1,18 @@
+package com.mariusz.book_collection.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/***
+ * Author name offered by autocomplete.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AuthorSuggestion {
+
+    private Long authorId;
+    private String firstName;
+    private String lastName;
+}
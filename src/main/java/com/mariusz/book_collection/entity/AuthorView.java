@@ -0,0 +1,22 @@
+package com.mariusz.book_collection.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/***
+ * Read only author row for lists, same json as Author.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AuthorView {
+
+    private Long authorId;
+    private String firstName;
+    private String lastName;
+    private LocalDateTime created;
+    private LocalDateTime updated;
+}
@@ -1,8 +1,13 @@
 package com.mariusz.book_collection.entity;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.mariusz.book_collection.isbn.IsbnCanonicalizer;
+import lombok.AccessLevel;
 import lombok.Data;
+import lombok.Setter;
 import lombok.ToString;
+import org.hibernate.annotations.DynamicUpdate;
 import org.hibernate.annotations.OnDelete;
 import org.hibernate.annotations.OnDeleteAction;
 
@@ -11,12 +16,21 @@ import javax.validation.constraints.NotNull;
 import java.util.Objects;
 
 @Entity
+@Table(indexes = {
+        @Index(name = "idx_book_isbn", columnList = "isbn"),
+        @Index(name = Book.ISBN13_CONSTRAINT, columnList = "isbn13", unique = true),
+        @Index(name = "idx_book_shelf_id", columnList = "shelf_id, id"),
+        @Index(name = "idx_book_title", columnList = "title, id")})
+@DynamicUpdate
 @Data
-@ToString
+@ToString(exclude = "shelf")
 public class Book extends CommonFields{
 
+    public static final String ISBN13_CONSTRAINT = "uk_book_isbn13";
+
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "book_seq")
+    @SequenceGenerator(name = "book_seq", sequenceName = "book_seq", allocationSize = 50)
     private Long id;
 
     @NotNull
@@ -28,6 +42,11 @@ public class Book extends CommonFields{
     private Author author;
 
     private String isbn;
+
+    @Setter(AccessLevel.NONE)
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private Long isbn13;
+
     private String description;
 
     @ManyToOne(fetch = FetchType.LAZY, optional = true)
@@ -46,10 +65,19 @@ public class Book extends CommonFields{
         this.description = description;
     }
 
+    /***
+     * Keeps isbn digits as entered and the canonical ISBN-13 used for lookups,
+     * isbn13 stays null when the check digit is wrong.
+     */
     public void setIsbn(String isbn){
-        String isbnPattern = "([^\\d])+";
-        if (isbn!=null)
-        this.isbn = isbn.replaceAll(isbnPattern,"");
+        if (isbn!=null) {
+            this.isbn = IsbnCanonicalizer.normalize(isbn);
+            long canonical = IsbnCanonicalizer.toIsbn13(isbn);
+            this.isbn13 = canonical == IsbnCanonicalizer.INVALID ? null : canonical;
+        } else {
+            this.isbn = null;
+            this.isbn13 = null;
+        }
     }
 
     @Override
@@ -0,0 +1,23 @@
+package com.mariusz.book_collection.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.Map;
+
+/***
+ * One change set applied to many books.
+ * Books are selected by ids, by author or by both, changes map property names
+ * to new values, null clears a property.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BookBulkUpdate {
+
+    private List<Long> ids;
+    private Long authorId;
+    private Map<String, String> changes;
+}
@@ -0,0 +1,17 @@
+package com.mariusz.book_collection.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/***
+ * Outcome of a bulk update, books which already had the new values are not counted as updated.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BookBulkUpdateResult {
+
+    private long updated;
+    private int chunks;
+}
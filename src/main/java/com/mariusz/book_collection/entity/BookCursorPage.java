@@ -0,0 +1,20 @@
+package com.mariusz.book_collection.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/***
+ * One page of books returned in cursor mode.
+ * nextCursor is the id to pass as "after" for the next page, null on the last page.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BookCursorPage {
+
+    private List<BookView> books;
+    private Long nextCursor;
+}
@@ -0,0 +1,14 @@
+package com.mariusz.book_collection.entity;
+
+import java.time.LocalDateTime;
+
+/***
+ * Projection with the columns needed to build the catalog statistics.
+ */
+public interface BookFacts {
+
+    Long getId();
+    Long getAuthorId();
+    Long getShelfId();
+    LocalDateTime getCreated();
+}
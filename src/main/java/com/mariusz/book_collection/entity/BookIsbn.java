@@ -0,0 +1,11 @@
+package com.mariusz.book_collection.entity;
+
+/***
+ * Projection with the columns needed to build the isbn index.
+ */
+public interface BookIsbn {
+
+    Long getId();
+    String getIsbn();
+    Long getIsbn13();
+}
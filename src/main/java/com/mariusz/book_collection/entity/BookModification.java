@@ -0,0 +1,18 @@
+package com.mariusz.book_collection.entity;
+
+import java.time.LocalDateTime;
+
+/***
+ * Projection with the versions and modification times of a book, its author and shelf, enough to answer
+ * a conditional request without loading the book.
+ */
+public interface BookModification {
+
+    Long getId();
+    Long getVersion();
+    LocalDateTime getUpdated();
+    Long getAuthorVersion();
+    LocalDateTime getAuthorUpdated();
+    Long getShelfVersion();
+    LocalDateTime getShelfUpdated();
+}
@@ -0,0 +1,21 @@
+package com.mariusz.book_collection.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/***
+ * Books put on another shelf at once.
+ * Books are selected by ids, by the shelf they stand on or by both.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BookShelfMove {
+
+    private List<Long> ids;
+    private Long fromShelfId;
+    private Long toShelfId;
+}
@@ -0,0 +1,11 @@
+package com.mariusz.book_collection.entity;
+
+/***
+ * Projection with the columns needed to build the search index.
+ */
+public interface BookText {
+
+    Long getId();
+    String getTitle();
+    String getDescription();
+}
@@ -0,0 +1,39 @@
+package com.mariusz.book_collection.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/***
+ * Read only book row for lists and search, same json as Book.
+ * Built by a constructor expression, so Hibernate neither manages nor snapshots it.
+ */
+@Data
+@AllArgsConstructor
+public class BookView {
+
+    private Long id;
+    private String title;
+    private AuthorView author;
+    private String isbn;
+    private Long isbn13;
+    private String description;
+    private LocalDateTime created;
+    private LocalDateTime updated;
+
+    public BookView() {
+    }
+
+    /***
+     * Flat row of a book left joined with its author, author columns are null for a book without one.
+     */
+    public BookView(Long id, String title, String isbn, Long isbn13, String description,
+                    LocalDateTime created, LocalDateTime updated,
+                    Long authorId, String authorFirstName, String authorLastName,
+                    LocalDateTime authorCreated, LocalDateTime authorUpdated) {
+        this(id, title,
+                authorId == null ? null : new AuthorView(authorId, authorFirstName, authorLastName, authorCreated, authorUpdated),
+                isbn, isbn13, description, created, updated);
+    }
+}
@@ -0,0 +1,19 @@
+package com.mariusz.book_collection.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/***
+ * Second level cache counters of one region since the application started.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CacheRegionStatistics {
+
+    private String region;
+    private long hits;
+    private long misses;
+    private long puts;
+}
@@ -0,0 +1,25 @@
+package com.mariusz.book_collection.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.util.Map;
+
+/***
+ * Totals of the catalog for the dashboard.
+ * Books without author or shelf are not counted in booksPerAuthor and booksPerShelf.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CatalogStatisticsView {
+
+    private long books;
+    private long authors;
+    private long shelves;
+    private Map<Long, Long> booksPerAuthor;
+    private Map<Long, Long> booksPerShelf;
+    private Map<LocalDate, Long> booksAddedPerDay;
+}
@@ -1,5 +1,6 @@
 package com.mariusz.book_collection.entity;
 
+import com.fasterxml.jackson.annotation.JsonProperty;
 import lombok.Data;
 import org.hibernate.annotations.CreationTimestamp;
 import org.hibernate.annotations.UpdateTimestamp;
@@ -18,4 +19,13 @@ public class CommonFields {
     @Column
     @UpdateTimestamp
     private LocalDateTime updated;
+
+    /***
+     * Incremented by every update, an update of an older version fails instead of overwriting
+     * a newer one. Clients can not set it, they send the ETag in If-Match.
+     */
+    @Version
+    @Column(nullable = false)
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private long version;
 }
@@ -0,0 +1,37 @@
+package com.mariusz.book_collection.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+/***
+ * How long pooled connections are held, by every checkout and summed up per request.
+ * Request hold times are the sums over all checkouts of one request, not single checkouts.
+ * Requests are grouped by method and mapping pattern, "(none)" are requests without a handler
+ * such as pages served from the rendered page cache.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ConnectionHoldView {
+
+    private long checkouts;
+    private int inUse;
+    private int maxInUse;
+    private double averageHoldMillis;
+    private double maxHoldMillis;
+    private Map<String, RequestHold> requests;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class RequestHold {
+
+        private long requests;
+        private long checkouts;
+        private double averageRequestHoldMillis;
+        private double maxRequestHoldMillis;
+    }
+}
@@ -0,0 +1,23 @@
+package com.mariusz.book_collection.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/***
+ * One page of books standing on a shelf.
+ * bookCount is the number of all books on the shelf, nextCursor is the id to pass as "after"
+ * for the next page, null on the last page.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ShelfBooksPage {
+
+    private Long shelfId;
+    private long bookCount;
+    private List<BookView> books;
+    private Long nextCursor;
+}
@@ -0,0 +1,21 @@
+package com.mariusz.book_collection.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/***
+ * Read only shelf row for lists, same json as Shelf.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ShelfView {
+
+    private Long id;
+    private String description;
+    private LocalDateTime created;
+    private LocalDateTime updated;
+}
@@ -0,0 +1,106 @@
+package com.mariusz.book_collection.index;
+
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/***
+ * In memory index from canonical ISBN-13 to book id.
+ * Both are longs kept in primitive maps, nothing is boxed.
+ */
+@Component
+public class IsbnIndex {
+
+    public static final long NO_BOOK = LongLongHashMap.MISSING;
+
+    private static final int INITIAL_SIZE = 1 << 16;
+
+    private final LongLongHashMap bookIdsByIsbn = new LongLongHashMap(INITIAL_SIZE);
+    private final LongLongHashMap isbnsByBookId = new LongLongHashMap(INITIAL_SIZE);
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private volatile boolean loaded;
+
+    /***
+     * Index is complete only after the initial load, before that lookups have to go to the database.
+     */
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    void markLoaded() {
+        loaded = true;
+    }
+
+    /***
+     * @param isbn13 - canonical ISBN-13
+     * @return id of the book with this isbn or NO_BOOK
+     */
+    public long findBookId(long isbn13) {
+        lock.readLock().lock();
+        try {
+            return bookIdsByIsbn.get(isbn13);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /***
+     * @param isbn13 - canonical ISBN-13, null removes the book from the index
+     */
+    public void put(long bookId, Long isbn13) {
+        lock.writeLock().lock();
+        try {
+            removeBook(bookId);
+            if (isbn13 != null) {
+                bookIdsByIsbn.put(isbn13, bookId);
+                isbnsByBookId.put(bookId, isbn13);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /***
+     * Used by the initial load, keeps entries written meanwhile by committed transactions.
+     * @return false when the book or the isbn is already indexed
+     */
+    boolean putIfAbsent(long bookId, long isbn13) {
+        lock.writeLock().lock();
+        try {
+            if (isbnsByBookId.get(bookId) != NO_BOOK || bookIdsByIsbn.get(isbn13) != NO_BOOK) {
+                return false;
+            }
+            bookIdsByIsbn.put(isbn13, bookId);
+            isbnsByBookId.put(bookId, isbn13);
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(long bookId) {
+        lock.writeLock().lock();
+        try {
+            removeBook(bookId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return bookIdsByIsbn.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void removeBook(long bookId) {
+        long isbn13 = isbnsByBookId.remove(bookId);
+        if (isbn13 != NO_BOOK && bookIdsByIsbn.get(isbn13) == bookId) {
+            bookIdsByIsbn.remove(isbn13);
+        }
+    }
+}
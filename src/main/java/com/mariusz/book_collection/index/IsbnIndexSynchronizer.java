@@ -0,0 +1,73 @@
+package com.mariusz.book_collection.index;
+
+import com.mariusz.book_collection.entity.Book;
+import com.mariusz.book_collection.entity.BookIsbn;
+import com.mariusz.book_collection.isbn.IsbnCanonicalizer;
+import com.mariusz.book_collection.repository.BookRepository;
+import com.mariusz.book_collection.catalog.PostCommitEntityListener;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.stream.Stream;
+
+/***
+ * Fills the isbn index once the application is ready and follows committed book changes,
+ * whichever code path saved the book.
+ */
+@Component
+public class IsbnIndexSynchronizer extends PostCommitEntityListener {
+
+    private final IsbnIndex isbnIndex;
+    private final BookRepository bookRepository;
+
+    @Autowired
+    public IsbnIndexSynchronizer(IsbnIndex isbnIndex, BookRepository bookRepository,
+                                 EntityManagerFactory entityManagerFactory) {
+        super(entityManagerFactory, Book.class);
+        this.isbnIndex = isbnIndex;
+        this.bookRepository = bookRepository;
+    }
+
+    /***
+     * Fills the index and stores isbn13 of books saved before the column existed.
+     * A book whose isbn13 is already taken by another book is left without it.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional
+    public void load() {
+        LongLongHashMap missingIsbn13 = new LongLongHashMap(16);
+        try (Stream<BookIsbn> books = bookRepository.streamAllIsbns()) {
+            books.forEach(book -> {
+                if (book.getIsbn13() != null) {
+                    isbnIndex.putIfAbsent(book.getId(), book.getIsbn13());
+                } else {
+                    long isbn13 = IsbnCanonicalizer.toIsbn13(book.getIsbn());
+                    if (isbn13 != IsbnCanonicalizer.INVALID) {
+                        missingIsbn13.put(book.getId(), isbn13);
+                    }
+                }
+            });
+        }
+        missingIsbn13.forEach((bookId, isbn13) -> {
+            if (isbnIndex.putIfAbsent(bookId, isbn13)) {
+                bookRepository.updateIsbn13(bookId, isbn13);
+            }
+        });
+        isbnIndex.markLoaded();
+    }
+
+    @Override
+    protected void saved(Object entity) {
+        Book book = (Book) entity;
+        isbnIndex.put(book.getId(), book.getIsbn13());
+    }
+
+    @Override
+    protected void deleted(Object entity) {
+        isbnIndex.remove(((Book) entity).getId());
+    }
+}
@@ -0,0 +1,178 @@
+package com.mariusz.book_collection.index;
+
+import java.util.Arrays;
+
+/***
+ * Open addressing hash map from long to long with linear probing.
+ * Keys and values live in two primitive arrays, nothing is boxed.
+ * Not thread safe, callers guard it.
+ */
+public class LongLongHashMap {
+
+    public static final long MISSING = -1L;
+
+    private static final long FREE = 0L;
+    private static final int MIN_CAPACITY = 16;
+
+    private long[] keys;
+    private long[] values;
+    private int mask;
+    private int size;
+    private int resizeAt;
+
+    private boolean hasZeroKey;
+    private long zeroValue;
+
+    public LongLongHashMap(int expectedSize) {
+        allocate(capacityFor(expectedSize));
+    }
+
+    public int size() {
+        return hasZeroKey ? size + 1 : size;
+    }
+
+    /***
+     * @return value stored for the key or MISSING
+     */
+    public long get(long key) {
+        if (key == FREE) {
+            return hasZeroKey ? zeroValue : MISSING;
+        }
+        int slot = slot(key);
+        long existing;
+        while ((existing = keys[slot]) != FREE) {
+            if (existing == key) {
+                return values[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+        return MISSING;
+    }
+
+    /***
+     * @return previous value for the key or MISSING
+     */
+    public long put(long key, long value) {
+        if (key == FREE) {
+            long previous = hasZeroKey ? zeroValue : MISSING;
+            hasZeroKey = true;
+            zeroValue = value;
+            return previous;
+        }
+        int slot = slot(key);
+        long existing;
+        while ((existing = keys[slot]) != FREE) {
+            if (existing == key) {
+                long previous = values[slot];
+                values[slot] = value;
+                return previous;
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        values[slot] = value;
+        if (++size >= resizeAt) {
+            rehash(keys.length << 1);
+        }
+        return MISSING;
+    }
+
+    /***
+     * Removes the key and shifts the following entries of its probe chain back,
+     * so no tombstones are left behind.
+     * @return removed value or MISSING
+     */
+    public long remove(long key) {
+        if (key == FREE) {
+            long previous = hasZeroKey ? zeroValue : MISSING;
+            hasZeroKey = false;
+            return previous;
+        }
+        int slot = slot(key);
+        long existing;
+        while ((existing = keys[slot]) != FREE) {
+            if (existing == key) {
+                long previous = values[slot];
+                shiftBack(slot);
+                size--;
+                return previous;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return MISSING;
+    }
+
+    public void forEach(EntryConsumer consumer) {
+        if (hasZeroKey) {
+            consumer.accept(FREE, zeroValue);
+        }
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != FREE) {
+                consumer.accept(keys[i], values[i]);
+            }
+        }
+    }
+
+    public void clear() {
+        Arrays.fill(keys, FREE);
+        size = 0;
+        hasZeroKey = false;
+    }
+
+    private void shiftBack(int gap) {
+        int next = (gap + 1) & mask;
+        long key;
+        while ((key = keys[next]) != FREE) {
+            int ideal = slot(key);
+            if (((next - ideal) & mask) >= ((next - gap) & mask)) {
+                keys[gap] = key;
+                values[gap] = values[next];
+                gap = next;
+            }
+            next = (next + 1) & mask;
+        }
+        keys[gap] = FREE;
+    }
+
+    private void rehash(int capacity) {
+        long[] oldKeys = keys;
+        long[] oldValues = values;
+        allocate(capacity);
+        for (int i = 0; i < oldKeys.length; i++) {
+            long key = oldKeys[i];
+            if (key != FREE) {
+                int slot = slot(key);
+                while (keys[slot] != FREE) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = key;
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new long[capacity];
+        mask = capacity - 1;
+        resizeAt = capacity >> 1;
+    }
+
+    private int slot(long key) {
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+
+    private static int capacityFor(int expectedSize) {
+        int capacity = MIN_CAPACITY;
+        while (capacity >> 1 <= expectedSize) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+
+    @FunctionalInterface
+    public interface EntryConsumer {
+        void accept(long key, long value);
+    }
+}
@@ -0,0 +1,124 @@
+package com.mariusz.book_collection.isbn;
+
+/***
+ * ISBN parsing without regular expressions.
+ * Every method makes a single pass over the input and, apart from normalize on
+ * input with separators, allocates nothing.
+ */
+public final class IsbnCanonicalizer {
+
+    public static final long INVALID = -1L;
+
+    private static final long ISBN_10_PREFIX = 978_000_000_000L;
+
+    private IsbnCanonicalizer() {
+    }
+
+    /***
+     * Removes everything but digits. X is kept only as the check digit of an ISBN-10.
+     * @param isbn - isbn as typed or scanned, may contain separators
+     * @return digits of the isbn, the same instance when there was nothing to remove
+     */
+    public static String normalize(String isbn) {
+        if (isbn == null) {
+            return null;
+        }
+        int length = isbn.length();
+        int firstToRemove = 0;
+        while (firstToRemove < length && isDigit(isbn.charAt(firstToRemove))) {
+            firstToRemove++;
+        }
+        if (firstToRemove == length) {
+            return isbn;
+        }
+        char[] digits = new char[length];
+        int count = 0;
+        for (int i = 0; i < length; i++) {
+            char character = isbn.charAt(i);
+            if (isDigit(character)) {
+                digits[count++] = character;
+            } else if (isCheckX(character) && count == 9 && !hasDigitAfter(isbn, i)) {
+                digits[count++] = 'X';
+            }
+        }
+        return new String(digits, 0, count);
+    }
+
+    /***
+     * Validates the check digit and converts ISBN-10 to ISBN-13.
+     * @param isbn - isbn as typed or scanned, may contain separators
+     * @return ISBN-13 as a number or INVALID
+     */
+    public static long toIsbn13(CharSequence isbn) {
+        if (isbn == null) {
+            return INVALID;
+        }
+        long value = 0;
+        int digits = 0;
+        int sum10 = 0;
+        int sum13 = 0;
+        boolean checkX = false;
+        for (int i = 0; i < isbn.length(); i++) {
+            char character = isbn.charAt(i);
+            int digit;
+            if (isDigit(character)) {
+                digit = character - '0';
+            } else if (isCheckX(character) && digits == 9) {
+                digit = 10;
+            } else {
+                continue;
+            }
+            if (checkX || ++digits > 13) {
+                return INVALID;
+            }
+            sum10 += digit * (11 - digits);
+            if (digit == 10) {
+                checkX = true;
+            } else {
+                sum13 += (digits & 1) == 1 ? digit : digit * 3;
+                value = value * 10 + digit;
+            }
+        }
+        if (digits == 10) {
+            return sum10 % 11 == 0 ? fromIsbn10(checkX ? value : value / 10) : INVALID;
+        }
+        if (digits == 13) {
+            long prefix = value / 10_000_000_000L;
+            return sum13 % 10 == 0 && (prefix == 978 || prefix == 979) ? value : INVALID;
+        }
+        return INVALID;
+    }
+
+    public static boolean isValid(CharSequence isbn) {
+        return toIsbn13(isbn) != INVALID;
+    }
+
+    private static long fromIsbn10(long firstNineDigits) {
+        long withoutCheckDigit = ISBN_10_PREFIX + firstNineDigits;
+        int sum = 0;
+        long rest = withoutCheckDigit;
+        for (int position = 12; position > 0; position--) {
+            int digit = (int) (rest % 10);
+            rest /= 10;
+            sum += (position & 1) == 1 ? digit : digit * 3;
+        }
+        return withoutCheckDigit * 10 + (10 - sum % 10) % 10;
+    }
+
+    private static boolean isDigit(char character) {
+        return character >= '0' && character <= '9';
+    }
+
+    private static boolean isCheckX(char character) {
+        return character == 'X' || character == 'x';
+    }
+
+    private static boolean hasDigitAfter(CharSequence isbn, int index) {
+        for (int i = index + 1; i < isbn.length(); i++) {
+            if (isDigit(isbn.charAt(i))) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
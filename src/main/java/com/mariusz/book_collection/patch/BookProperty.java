@@ -0,0 +1,100 @@
+package com.mariusz.book_collection.patch;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.mariusz.book_collection.entity.Book;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/***
+ * Properties of a book which can be changed with a patch, with their accessors.
+ * Id, isbn13, timestamps and the associations are not patchable.
+ */
+public enum BookProperty {
+
+    TITLE("title", Book::getTitle, Book::setTitle, false),
+    ISBN("isbn", Book::getIsbn, Book::setIsbn, true),
+    DESCRIPTION("description", Book::getDescription, Book::setDescription, true);
+
+    private static final Map<String, BookProperty> BY_NAME;
+
+    static {
+        Map<String, BookProperty> byName = new HashMap<>();
+        for (BookProperty property : values()) {
+            byName.put(property.name, property);
+        }
+        BY_NAME = Collections.unmodifiableMap(byName);
+    }
+
+    private final String name;
+    private final Function<Book, String> getter;
+    private final BiConsumer<Book, String> setter;
+    private final boolean nullable;
+
+    BookProperty(String name, Function<Book, String> getter, BiConsumer<Book, String> setter, boolean nullable) {
+        this.name = name;
+        this.getter = getter;
+        this.setter = setter;
+        this.nullable = nullable;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public boolean isNullable() {
+        return nullable;
+    }
+
+    /***
+     * @return property of the given json name, null when there is no patchable property of that name
+     */
+    public static BookProperty of(String name) {
+        return BY_NAME.get(name);
+    }
+
+    /***
+     * Document with every patchable property of the book, the input of a patch.
+     */
+    public static ObjectNode toNode(Book book) {
+        ObjectNode node = JsonNodeFactory.instance.objectNode();
+        for (BookProperty property : values()) {
+            node.put(property.name, property.getter.apply(book));
+        }
+        return node;
+    }
+
+    /***
+     * Copies the value of the property from one book to another.
+     * @throws InvalidPatchException - when the property can not be cleared
+     */
+    public void copy(Book source, Book target) {
+        String value = getter.apply(source);
+        if (value == null && !nullable) {
+            throw new InvalidPatchException(name + " can not be removed");
+        }
+        setter.accept(target, value);
+    }
+
+    /***
+     * Sets the value of a patched document, a missing or null value clears the property.
+     * @throws InvalidPatchException - when the value is not a string or the property can not be cleared
+     */
+    public void set(Book book, JsonNode value) {
+        if (value == null || value.isNull()) {
+            if (!nullable) {
+                throw new InvalidPatchException(name + " can not be removed");
+            }
+            setter.accept(book, null);
+        } else if (value.isTextual()) {
+            setter.accept(book, value.textValue());
+        } else {
+            throw new InvalidPatchException(name + " has to be a string");
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package com.mariusz.book_collection.patch;
+
+/***
+ * Patch which is a valid document but can not be applied to a book,
+ * it changes a property which is not patchable or gives it a value of a wrong type.
+ */
+public class InvalidPatchException extends RuntimeException {
+
+    public InvalidPatchException(String message) {
+        super(message);
+    }
+}
@@ -1,13 +1,50 @@
 package com.mariusz.book_collection.repository;
 
 import com.mariusz.book_collection.entity.Author;
+import com.mariusz.book_collection.entity.AuthorSuggestion;
+import com.mariusz.book_collection.entity.AuthorView;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import javax.persistence.QueryHint;
 import java.util.List;
 
+import static org.hibernate.jpa.QueryHints.HINT_CACHEABLE;
+
 @Repository
 public interface AuthorRepository extends JpaRepository<Author, Long> {
 
+    char LIKE_ESCAPE = '!';
+
+    @QueryHints(@QueryHint(name = HINT_CACHEABLE, value = "true"))
     List<Author> findAllByLastName(String lastName );
+
+    @Query("select new com.mariusz.book_collection.entity.AuthorView(a.authorId, a.firstName, a.lastName, a.created, a.updated) "
+            + "from Author a order by a.authorId")
+    List<AuthorView> findAllViews();
+
+    /***
+     * The count runs only for a full page, like for the books.
+     */
+    @Query(value = "select new com.mariusz.book_collection.entity.AuthorView(a.authorId, a.firstName, a.lastName, a.created, a.updated) "
+            + "from Author a", countQuery = "select count(a) from Author a")
+    Page<AuthorView> findViews(Pageable pageable);
+
+    /***
+     * Fallback for suggestions until the in memory index is loaded. Like the index it matches the beginning
+     * of "first last" or "last first", the prefix escapes its wildcards with LIKE_ESCAPE.
+     */
+    @Query("select new com.mariusz.book_collection.entity.AuthorSuggestion(a.authorId, a.firstName, a.lastName) "
+            + "from Author a where lower(concat(coalesce(a.firstName, ''), ' ', coalesce(a.lastName, ''))) like :prefix escape '!' "
+            + "or lower(concat(coalesce(a.lastName, ''), ' ', coalesce(a.firstName, ''))) like :prefix escape '!' "
+            + "order by a.lastName, a.firstName, a.authorId")
+    List<AuthorSuggestion> findSuggestions(@Param("prefix") String prefix, Pageable pageable);
+
+    @Query("select a.authorId from Author a")
+    List<Long> findAllIds();
 }
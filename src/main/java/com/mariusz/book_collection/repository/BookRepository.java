@@ -1,19 +1,125 @@
 package com.mariusz.book_collection.repository;
 
-import com.mariusz.book_collection.entity.Author;
 import com.mariusz.book_collection.entity.Book;
+import com.mariusz.book_collection.entity.BookFacts;
+import com.mariusz.book_collection.entity.BookIsbn;
+import com.mariusz.book_collection.entity.BookModification;
+import com.mariusz.book_collection.entity.BookText;
+import com.mariusz.book_collection.entity.BookView;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import javax.persistence.QueryHint;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.QueryHints.HINT_READONLY;
+
+/***
+ * Author is an eager association, every query returning books fetches it in the same select,
+ * otherwise Hibernate loads each distinct author with its own query.
+ */
 @Repository
 public interface BookRepository extends JpaRepository<Book, Long> {
 
+    String AUTHOR = "author";
+    String SHELF = "shelf";
+    String BOOK_VIEW = "select new com.mariusz.book_collection.entity.BookView("
+            + "b.id, b.title, b.isbn, b.isbn13, b.description, b.created, b.updated, "
+            + "a.authorId, a.firstName, a.lastName, a.created, a.updated) "
+            + "from Book b left join b.author a";
+
+    @Override
+    @EntityGraph(attributePaths = AUTHOR)
+    Optional<Book> findById(Long id);
+
+    /***
+     * Book with author and shelf for the details page, nothing is left to load while rendering.
+     */
+    @EntityGraph(attributePaths = {AUTHOR, SHELF})
+    Optional<Book> findDetailsById(Long id);
+
+    @Override
+    @EntityGraph(attributePaths = AUTHOR)
+    List<Book> findAll();
+
+    @Override
+    @EntityGraph(attributePaths = AUTHOR)
+    List<Book> findAllById(Iterable<Long> ids);
+
+    @EntityGraph(attributePaths = AUTHOR)
     Optional<Book> findByIsbn(String isbn);
-    List<Book> findAllByAuthor_AuthorId(Long authorId);
 
-    List<Book> findAllByTitleIgnoreCaseContains(String title);
-    List<Book> findAllByAuthorIn(List<Author> authors);
+    @EntityGraph(attributePaths = AUTHOR)
+    Optional<Book> findByIsbn13(Long isbn13);
+
+    @Query(BOOK_VIEW + " order by b.id")
+    List<BookView> findAllViews();
+
+    /***
+     * Sort properties are of the book. The count runs only for a full page, a page that is not full is the last one
+     * and gives the total itself. A deep full page still pays for the offset and the count.
+     */
+    @Query(value = BOOK_VIEW, countQuery = "select count(b) from Book b")
+    Page<BookView> findViews(Pageable pageable);
+
+    @Query(BOOK_VIEW + " where b.id > :after order by b.id")
+    List<BookView> findViewsAfter(@Param("after") Long after, Pageable pageable);
+
+    @Query(BOOK_VIEW + " where b.id in :ids")
+    List<BookView> findViewsByIdIn(@Param("ids") Collection<Long> ids);
+
+    @Query(BOOK_VIEW + " where a.authorId = :authorId order by b.id")
+    List<BookView> findViewsByAuthorId(@Param("authorId") Long authorId);
+
+    @Query(BOOK_VIEW + " where a.lastName = :lastName order by b.id")
+    List<BookView> findViewsByAuthorLastName(@Param("lastName") String lastName);
+
+    @Query(BOOK_VIEW + " where b.shelf.id = :shelfId and b.id > :after order by b.id")
+    List<BookView> findViewsOnShelfAfter(@Param("shelfId") Long shelfId, @Param("after") Long after, Pageable pageable);
+
+    @Query("select count(b) from Book b where b.shelf.id = :shelfId")
+    long countOnShelf(@Param("shelfId") Long shelfId);
+
+    @Query(BOOK_VIEW + " where lower(b.title) like lower(concat('%', :title, '%')) order by b.id")
+    List<BookView> findViewsByTitleContaining(@Param("title") String title, Pageable pageable);
+
+    @Query("select b.id as id, b.version as version, b.updated as updated, "
+            + "a.version as authorVersion, a.updated as authorUpdated, "
+            + "s.version as shelfVersion, s.updated as shelfUpdated "
+            + "from Book b left join b.author a left join b.shelf s where b.id = :id")
+    Optional<BookModification> findModificationById(@Param("id") Long id);
+
+    @QueryHints(value = {
+            @QueryHint(name = HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HINT_READONLY, value = "true")})
+    @Query("select b from Book b left join fetch b.author order by b.id")
+    Stream<Book> streamAllWithAuthor();
+
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "1000"))
+    @Query("select b.id as id, b.isbn as isbn, b.isbn13 as isbn13 from Book b where b.isbn is not null")
+    Stream<BookIsbn> streamAllIsbns();
+
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "1000"))
+    @Query("select b.id as id, b.title as title, b.description as description from Book b")
+    Stream<BookText> streamAllTexts();
+
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "1000"))
+    @Query("select b.id as id, a.authorId as authorId, s.id as shelfId, b.created as created "
+            + "from Book b left join b.author a left join b.shelf s")
+    Stream<BookFacts> streamAllFacts();
+
+    @Modifying
+    @Query("update Book b set b.isbn13 = :isbn13 where b.id = :id")
+    int updateIsbn13(@Param("id") Long id, @Param("isbn13") Long isbn13);
 }
@@ -0,0 +1,45 @@
+package com.mariusz.book_collection.repository;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/***
+ * Values for "in :values" parameters.
+ * Every list size gives a different SQL text, so a statement cache on the database or in the driver
+ * holds one entry per size. Lists are cut into chunks of at most MAX_SIZE values and each chunk is
+ * padded with its last value up to the next power of two, which leaves only a few distinct statements.
+ * Repeated values do not change the result of an IN condition.
+ */
+public final class InClause {
+
+    public static final int MAX_SIZE = 512;
+
+    private InClause() {
+    }
+
+    /***
+     * @param values - distinct values, not empty
+     * @return chunks of at most MAX_SIZE values, each padded to a power of two
+     */
+    public static <T> List<List<T>> paddedChunks(List<T> values) {
+        List<List<T>> chunks = new ArrayList<>((values.size() + MAX_SIZE - 1) / MAX_SIZE);
+        for (int from = 0; from < values.size(); from += MAX_SIZE) {
+            chunks.add(pad(values.subList(from, Math.min(from + MAX_SIZE, values.size()))));
+        }
+        return chunks;
+    }
+
+    /***
+     * @return values followed by copies of the last one, up to the next power of two
+     */
+    public static <T> List<T> pad(List<T> values) {
+        int size = values.size();
+        int padded = size <= 1 ? size : Integer.highestOneBit(size - 1) << 1;
+        List<T> result = new ArrayList<>(padded);
+        result.addAll(values);
+        for (int i = size; i < padded; i++) {
+            result.add(values.get(size - 1));
+        }
+        return result;
+    }
+}
@@ -1,15 +1,29 @@
 package com.mariusz.book_collection.repository;
 
 import com.mariusz.book_collection.entity.Shelf;
+import com.mariusz.book_collection.entity.ShelfView;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
+import javax.persistence.QueryHint;
+import java.util.List;
 import java.util.Optional;
 
+import static org.hibernate.jpa.QueryHints.HINT_CACHEABLE;
+
 @Repository
 public interface ShelfRepository extends JpaRepository<Shelf, Long> {
 
+    @QueryHints(@QueryHint(name = HINT_CACHEABLE, value = "true"))
     Optional<Shelf> findByDescription(String description);
     Optional<Shelf> findById(Long shelfId);
 
+    @Query("select new com.mariusz.book_collection.entity.ShelfView(s.id, s.description, s.created, s.updated) "
+            + "from Shelf s order by s.id")
+    List<ShelfView> findAllViews();
+
+    @Query("select s.id from Shelf s")
+    List<Long> findAllIds();
 }
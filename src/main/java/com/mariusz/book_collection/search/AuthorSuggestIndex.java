@@ -0,0 +1,247 @@
+package com.mariusz.book_collection.search;
+
+import com.mariusz.book_collection.entity.AuthorSuggestion;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/***
+ * In memory prefix index over author names for autocomplete.
+ * Every author has two keys, "first last" and "last first", normalized like book search text and kept
+ * in one sorted array. A prefix query is a binary search to the first key not lower than the prefix
+ * and a scan while keys start with it, so it reads only the returned entries.
+ * The initial load sorts all keys once, later changes insert and remove single keys by shifting the arrays.
+ */
+@Component
+public class AuthorSuggestIndex {
+
+    private String[] keys = new String[1 << 8];
+    private long[] authorIds = new long[1 << 8];
+    private int size;
+    private final Map<Long, AuthorSuggestion> authors = new HashMap<>();
+    private final Set<Long> removedBeforeLoad = new HashSet<>();
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private volatile boolean loaded;
+
+    /***
+     * Index is complete only after the initial load, before that suggestions have to come from the database.
+     */
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    void markLoaded() {
+        lock.writeLock().lock();
+        try {
+            removedBeforeLoad.clear();
+            loaded = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /***
+     * @param prefix - beginning of the first or last name, or of both names in any order
+     * @return at most limit authors in the order of their matching keys
+     */
+    public List<AuthorSuggestion> suggest(String prefix, int limit) {
+        String normalized = normalizeName(prefix);
+        List<AuthorSuggestion> suggestions = new ArrayList<>(Math.min(limit, 16));
+        if (normalized.isEmpty() || limit < 1) {
+            return suggestions;
+        }
+        lock.readLock().lock();
+        try {
+            for (int i = lowerBound(normalized, Long.MIN_VALUE);
+                 i < size && keys[i].startsWith(normalized) && suggestions.size() < limit; i++) {
+                AuthorSuggestion author = authors.get(authorIds[i]);
+                if (!suggestions.contains(author)) {
+                    suggestions.add(author);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return suggestions;
+    }
+
+    /***
+     * Adds or renames an author.
+     */
+    public void put(long authorId, String firstName, String lastName) {
+        AuthorSuggestion author = new AuthorSuggestion(authorId, firstName, lastName);
+        lock.writeLock().lock();
+        try {
+            AuthorSuggestion previous = authors.put(authorId, author);
+            if (previous != null) {
+                for (String key : keysOf(previous)) {
+                    removeKey(key, authorId);
+                }
+            }
+            for (String key : keysOf(author)) {
+                insertKey(key, authorId);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /***
+     * Used by the initial load. Keys of all given authors are sorted together with the indexed ones once,
+     * authors written or deleted meanwhile by committed transactions are kept as they are.
+     */
+    void putAllIfAbsent(Collection<AuthorSuggestion> loadedAuthors) {
+        lock.writeLock().lock();
+        try {
+            List<KeyEntry> entries = new ArrayList<>(size + loadedAuthors.size() * 2);
+            for (int i = 0; i < size; i++) {
+                entries.add(new KeyEntry(keys[i], authorIds[i]));
+            }
+            for (AuthorSuggestion author : loadedAuthors) {
+                Long authorId = author.getAuthorId();
+                if (!authors.containsKey(authorId) && !removedBeforeLoad.contains(authorId)) {
+                    authors.put(authorId, author);
+                    for (String key : keysOf(author)) {
+                        entries.add(new KeyEntry(key, authorId));
+                    }
+                }
+            }
+            entries.sort(KeyEntry.ORDER);
+            int capacity = keys.length;
+            while (capacity < entries.size()) {
+                capacity *= 2;
+            }
+            keys = new String[capacity];
+            authorIds = new long[capacity];
+            size = entries.size();
+            for (int i = 0; i < size; i++) {
+                keys[i] = entries.get(i).key;
+                authorIds[i] = entries.get(i).authorId;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(long authorId) {
+        lock.writeLock().lock();
+        try {
+            if (!loaded) {
+                removedBeforeLoad.add(authorId);
+            }
+            AuthorSuggestion previous = authors.remove(authorId);
+            if (previous != null) {
+                for (String key : keysOf(previous)) {
+                    removeKey(key, authorId);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return authors.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /***
+     * Book search normalization with runs of spaces collapsed, so "Sapkowski  A" matches "sapkowski andrzej".
+     */
+    static String normalizeName(String name) {
+        String normalized = BookSearchIndex.normalize(name);
+        StringBuilder collapsed = new StringBuilder(normalized.length());
+        for (int i = 0; i < normalized.length(); i++) {
+            char c = normalized.charAt(i);
+            if (!Character.isWhitespace(c)) {
+                collapsed.append(c);
+            } else if (collapsed.length() > 0 && collapsed.charAt(collapsed.length() - 1) != ' ') {
+                collapsed.append(' ');
+            }
+        }
+        int length = collapsed.length();
+        return length > 0 && collapsed.charAt(length - 1) == ' ' ? collapsed.substring(0, length - 1) : collapsed.toString();
+    }
+
+    private static String[] keysOf(AuthorSuggestion author) {
+        String firstLast = normalizeName(join(author.getFirstName(), author.getLastName()));
+        String lastFirst = normalizeName(join(author.getLastName(), author.getFirstName()));
+        if (firstLast.isEmpty()) {
+            return new String[0];
+        }
+        return firstLast.equals(lastFirst) ? new String[]{firstLast} : new String[]{firstLast, lastFirst};
+    }
+
+    private static String join(String first, String second) {
+        return (first == null ? "" : first) + " " + (second == null ? "" : second);
+    }
+
+    /***
+     * @return index of the first entry not lower than (key, authorId)
+     */
+    private int lowerBound(String key, long authorId) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            int compared = keys[middle].compareTo(key);
+            if (compared < 0 || compared == 0 && authorIds[middle] < authorId) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private void insertKey(String key, long authorId) {
+        int position = lowerBound(key, authorId);
+        if (size == keys.length) {
+            keys = Arrays.copyOf(keys, size * 2);
+            authorIds = Arrays.copyOf(authorIds, size * 2);
+        }
+        System.arraycopy(keys, position, keys, position + 1, size - position);
+        System.arraycopy(authorIds, position, authorIds, position + 1, size - position);
+        keys[position] = key;
+        authorIds[position] = authorId;
+        size++;
+    }
+
+    private void removeKey(String key, long authorId) {
+        int position = lowerBound(key, authorId);
+        if (position < size && keys[position].equals(key) && authorIds[position] == authorId) {
+            System.arraycopy(keys, position + 1, keys, position, size - position - 1);
+            System.arraycopy(authorIds, position + 1, authorIds, position, size - position - 1);
+            keys[--size] = null;
+        }
+    }
+
+    private static final class KeyEntry {
+
+        private static final Comparator<KeyEntry> ORDER = Comparator.<KeyEntry, String>comparing(entry -> entry.key)
+                .thenComparingLong(entry -> entry.authorId);
+
+        private final String key;
+        private final long authorId;
+
+        private KeyEntry(String key, long authorId) {
+            this.key = key;
+            this.authorId = authorId;
+        }
+    }
+}
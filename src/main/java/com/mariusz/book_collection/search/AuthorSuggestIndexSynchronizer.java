@@ -0,0 +1,57 @@
+package com.mariusz.book_collection.search;
+
+import com.mariusz.book_collection.entity.Author;
+import com.mariusz.book_collection.entity.AuthorSuggestion;
+import com.mariusz.book_collection.entity.AuthorView;
+import com.mariusz.book_collection.repository.AuthorRepository;
+import com.mariusz.book_collection.catalog.PostCommitEntityListener;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+/***
+ * Fills the author suggest index once the application is ready.
+ * A new author from addNewAuthor is suggested as soon as its transaction commits.
+ */
+@Component
+public class AuthorSuggestIndexSynchronizer extends PostCommitEntityListener {
+
+    private final AuthorSuggestIndex authorSuggestIndex;
+    private final AuthorRepository authorRepository;
+
+    @Autowired
+    public AuthorSuggestIndexSynchronizer(AuthorSuggestIndex authorSuggestIndex, AuthorRepository authorRepository,
+                                          EntityManagerFactory entityManagerFactory) {
+        super(entityManagerFactory, Author.class);
+        this.authorSuggestIndex = authorSuggestIndex;
+        this.authorRepository = authorRepository;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void load() {
+        List<AuthorSuggestion> authors = new ArrayList<>();
+        for (AuthorView author : authorRepository.findAllViews()) {
+            authors.add(new AuthorSuggestion(author.getAuthorId(), author.getFirstName(), author.getLastName()));
+        }
+        authorSuggestIndex.putAllIfAbsent(authors);
+        authorSuggestIndex.markLoaded();
+    }
+
+    @Override
+    protected void saved(Object entity) {
+        Author author = (Author) entity;
+        authorSuggestIndex.put(author.getAuthorId(), author.getFirstName(), author.getLastName());
+    }
+
+    @Override
+    protected void deleted(Object entity) {
+        authorSuggestIndex.remove(((Author) entity).getAuthorId());
+    }
+}
@@ -0,0 +1,334 @@
+package com.mariusz.book_collection.search;
+
+import com.mariusz.book_collection.index.LongLongHashMap;
+import org.springframework.stereotype.Component;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/***
+ * In memory trigram index over book titles and descriptions.
+ * Every indexed version of a book gets the next doc number, so posting lists only grow at the end.
+ * A changed or deleted book leaves a dead doc behind, the lists are rebuilt once most docs are dead.
+ * Search intersects the lists of all query trigrams and checks the candidates against the stored
+ * text, the cost depends on the matching postings and not on the size of the catalog.
+ */
+@Component
+public class BookSearchIndex {
+
+    private static final long DEAD = LongLongHashMap.MISSING;
+    private static final int GRAM = 3;
+    private static final int MIN_DEAD_DOCS_TO_COMPACT = 1024;
+
+    private static final int TITLE_MATCH = 1000;
+    private static final int TITLE_PREFIX_BONUS = 400;
+    private static final int WHOLE_TITLE_BONUS = 400;
+    private static final int WORD_START_BONUS = 200;
+    private static final int WORD_END_BONUS = 100;
+    private static final int DESCRIPTION_MATCH = 100;
+    private static final int MAX_LENGTH_PENALTY = 200;
+
+    private final Map<Long, PostingList> postings = new HashMap<>();
+    private final LongLongHashMap docsByBookId = new LongLongHashMap(1 << 12);
+    private long[] bookIds = new long[1 << 10];
+    private String[] titles = new String[1 << 10];
+    private String[] descriptions = new String[1 << 10];
+    private int docCount;
+    private int deadDocs;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private volatile boolean loaded;
+
+    /***
+     * Index is complete only after the initial load, before that searches have to go to the database.
+     */
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    void markLoaded() {
+        loaded = true;
+    }
+
+    /***
+     * @param query - part of title or description, case and accents are ignored
+     * @param limit - maximum number of results
+     * @return ids of matching books, best match first
+     */
+    public long[] search(String query, int limit) {
+        String text = normalize(query);
+        if (text.isEmpty() || limit < 1) {
+            return new long[0];
+        }
+        PriorityQueue<Hit> best = new PriorityQueue<>(Hit.WORST_FIRST);
+        lock.readLock().lock();
+        try {
+            if (text.length() < GRAM) {
+                for (int doc = 0; doc < docCount; doc++) {
+                    offer(best, doc, text, limit);
+                }
+            } else {
+                PostingList.Cursor[] cursors = cursorsOf(text);
+                if (cursors != null) {
+                    intersect(cursors, best, text, limit);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        long[] result = new long[best.size()];
+        for (int i = result.length - 1; i >= 0; i--) {
+            result[i] = best.poll().bookId;
+        }
+        return result;
+    }
+
+    /***
+     * Indexes a new book or the new version of an indexed one.
+     */
+    public void put(long bookId, String title, String description) {
+        String normalizedTitle = normalize(title);
+        String normalizedDescription = normalize(description);
+        lock.writeLock().lock();
+        try {
+            int doc = (int) docsByBookId.get(bookId);
+            if (doc != DEAD) {
+                if (titles[doc].equals(normalizedTitle) && descriptions[doc].equals(normalizedDescription)) {
+                    return;
+                }
+                kill(doc);
+            }
+            add(bookId, normalizedTitle, normalizedDescription);
+            compactIfNeeded();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /***
+     * Used by the initial load, keeps versions written meanwhile by committed transactions.
+     */
+    void putIfAbsent(long bookId, String title, String description) {
+        String normalizedTitle = normalize(title);
+        String normalizedDescription = normalize(description);
+        lock.writeLock().lock();
+        try {
+            if (docsByBookId.get(bookId) == DEAD) {
+                add(bookId, normalizedTitle, normalizedDescription);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(long bookId) {
+        lock.writeLock().lock();
+        try {
+            long doc = docsByBookId.get(bookId);
+            if (doc != DEAD) {
+                kill((int) doc);
+                compactIfNeeded();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return docsByBookId.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /***
+     * Lower case without diacritics, so "Powrot" finds "Powrót".
+     */
+    static String normalize(String text) {
+        if (text == null || text.isEmpty()) {
+            return "";
+        }
+        String decomposed = Normalizer.normalize(text, Normalizer.Form.NFD);
+        StringBuilder normalized = new StringBuilder(decomposed.length());
+        for (int i = 0; i < decomposed.length(); i++) {
+            char c = decomposed.charAt(i);
+            if (Character.getType(c) == Character.NON_SPACING_MARK) {
+                continue;
+            }
+            c = Character.toLowerCase(c);
+            normalized.append(c == 'ł' ? 'l' : c);
+        }
+        return normalized.toString();
+    }
+
+    private PostingList.Cursor[] cursorsOf(String text) {
+        List<PostingList> lists = new ArrayList<>();
+        for (int i = 0; i + GRAM <= text.length(); i++) {
+            PostingList list = postings.get(trigram(text, i));
+            if (list == null) {
+                return null;
+            }
+            if (!lists.contains(list)) {
+                lists.add(list);
+            }
+        }
+        lists.sort(Comparator.comparingInt(PostingList::size));
+        PostingList.Cursor[] cursors = new PostingList.Cursor[lists.size()];
+        for (int i = 0; i < cursors.length; i++) {
+            cursors[i] = lists.get(i).cursor();
+        }
+        return cursors;
+    }
+
+    /***
+     * Leapfrog over the lists, the shortest one leads.
+     */
+    private void intersect(PostingList.Cursor[] cursors, PriorityQueue<Hit> best, String text, int limit) {
+        int doc = cursors[0].nextDoc();
+        while (doc != PostingList.NO_MORE_DOCS) {
+            int next = doc;
+            for (int i = 1; i < cursors.length && next == doc; i++) {
+                next = cursors[i].advance(doc);
+            }
+            if (next == doc) {
+                offer(best, doc, text, limit);
+                doc = cursors[0].nextDoc();
+            } else {
+                doc = cursors[0].advance(next);
+            }
+        }
+    }
+
+    private void offer(PriorityQueue<Hit> best, int doc, String text, int limit) {
+        if (bookIds[doc] == DEAD) {
+            return;
+        }
+        int score = score(titles[doc], descriptions[doc], text);
+        if (score == 0) {
+            return;
+        }
+        Hit hit = new Hit(bookIds[doc], score);
+        if (best.size() < limit) {
+            best.add(hit);
+        } else if (Hit.WORST_FIRST.compare(hit, best.peek()) > 0) {
+            best.poll();
+            best.add(hit);
+        }
+    }
+
+    /***
+     * Title matches always rank above description matches. Among them a match at the start of the
+     * title or of a word ranks higher, a whole word higher still, and a shorter title ranks higher
+     * than a longer one.
+     */
+    private static int score(String title, String description, String text) {
+        int at = title.indexOf(text);
+        if (at >= 0) {
+            int score = TITLE_MATCH - Math.min(title.length(), MAX_LENGTH_PENALTY);
+            if (at == 0) {
+                score += title.length() == text.length() ? TITLE_PREFIX_BONUS + WHOLE_TITLE_BONUS : TITLE_PREFIX_BONUS;
+            } else if (!Character.isLetterOrDigit(title.charAt(at - 1))) {
+                score += WORD_START_BONUS;
+            }
+            int end = at + text.length();
+            if (end < title.length() && !Character.isLetterOrDigit(title.charAt(end))) {
+                score += WORD_END_BONUS;
+            }
+            return score;
+        }
+        at = description.indexOf(text);
+        if (at >= 0) {
+            return at == 0 || !Character.isLetterOrDigit(description.charAt(at - 1))
+                    ? DESCRIPTION_MATCH + 1
+                    : DESCRIPTION_MATCH;
+        }
+        return 0;
+    }
+
+    private void add(long bookId, String title, String description) {
+        if (docCount == bookIds.length) {
+            int capacity = docCount * 2;
+            bookIds = Arrays.copyOf(bookIds, capacity);
+            titles = Arrays.copyOf(titles, capacity);
+            descriptions = Arrays.copyOf(descriptions, capacity);
+        }
+        int doc = docCount++;
+        bookIds[doc] = bookId;
+        titles[doc] = title;
+        descriptions[doc] = description;
+        docsByBookId.put(bookId, doc);
+        addTrigrams(doc, title);
+        addTrigrams(doc, description);
+    }
+
+    private void addTrigrams(int doc, String text) {
+        for (int i = 0; i + GRAM <= text.length(); i++) {
+            PostingList list = postings.computeIfAbsent(trigram(text, i), key -> new PostingList());
+            if (list.lastDoc() != doc) {
+                list.add(doc);
+            }
+        }
+    }
+
+    private void kill(int doc) {
+        docsByBookId.remove(bookIds[doc]);
+        bookIds[doc] = DEAD;
+        titles[doc] = null;
+        descriptions[doc] = null;
+        deadDocs++;
+    }
+
+    private void compactIfNeeded() {
+        if (deadDocs < MIN_DEAD_DOCS_TO_COMPACT || deadDocs * 2 < docCount) {
+            return;
+        }
+        long[] oldBookIds = bookIds;
+        String[] oldTitles = titles;
+        String[] oldDescriptions = descriptions;
+        int oldDocCount = docCount;
+
+        int capacity = Math.max(1 << 10, Integer.highestOneBit(Math.max(1, oldDocCount - deadDocs)) * 2);
+        bookIds = new long[capacity];
+        titles = new String[capacity];
+        descriptions = new String[capacity];
+        docCount = 0;
+        deadDocs = 0;
+        postings.clear();
+        docsByBookId.clear();
+        for (int doc = 0; doc < oldDocCount; doc++) {
+            if (oldBookIds[doc] != DEAD) {
+                add(oldBookIds[doc], oldTitles[doc], oldDescriptions[doc]);
+            }
+        }
+    }
+
+    private static long trigram(String text, int from) {
+        return ((long) text.charAt(from) << 32) | ((long) text.charAt(from + 1) << 16) | text.charAt(from + 2);
+    }
+
+    private static final class Hit {
+
+        static final Comparator<Hit> WORST_FIRST = Comparator
+                .comparingInt((Hit hit) -> hit.score)
+                .thenComparing(Comparator.comparingLong((Hit hit) -> hit.bookId).reversed());
+
+        final long bookId;
+        final int score;
+
+        Hit(long bookId, int score) {
+            this.bookId = bookId;
+            this.score = score;
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.mariusz.book_collection.search;
+
+import com.mariusz.book_collection.entity.Book;
+import com.mariusz.book_collection.entity.BookText;
+import com.mariusz.book_collection.repository.BookRepository;
+import com.mariusz.book_collection.catalog.PostCommitEntityListener;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.stream.Stream;
+
+/***
+ * Fills the search index once the application is ready, committed book changes are applied to it as they come.
+ */
+@Component
+public class BookSearchIndexSynchronizer extends PostCommitEntityListener {
+
+    private final BookSearchIndex bookSearchIndex;
+    private final BookRepository bookRepository;
+
+    @Autowired
+    public BookSearchIndexSynchronizer(BookSearchIndex bookSearchIndex, BookRepository bookRepository,
+                                       EntityManagerFactory entityManagerFactory) {
+        super(entityManagerFactory, Book.class);
+        this.bookSearchIndex = bookSearchIndex;
+        this.bookRepository = bookRepository;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void load() {
+        try (Stream<BookText> books = bookRepository.streamAllTexts()) {
+            books.forEach(book -> bookSearchIndex.putIfAbsent(book.getId(), book.getTitle(), book.getDescription()));
+        }
+        bookSearchIndex.markLoaded();
+    }
+
+    @Override
+    protected void saved(Object entity) {
+        Book book = (Book) entity;
+        bookSearchIndex.put(book.getId(), book.getTitle(), book.getDescription());
+    }
+
+    @Override
+    protected void deleted(Object entity) {
+        bookSearchIndex.remove(((Book) entity).getId());
+    }
+}
@@ -0,0 +1,95 @@
+package com.mariusz.book_collection.search;
+
+import java.util.Arrays;
+
+/***
+ * Ascending doc numbers of one trigram, stored as variable length deltas.
+ * Most gaps fit in one byte, so a list costs about a byte per document.
+ */
+final class PostingList {
+
+    static final int NO_MORE_DOCS = Integer.MAX_VALUE;
+
+    private byte[] bytes = new byte[4];
+    private int length;
+    private int size;
+    private int lastDoc = -1;
+
+    /***
+     * @param doc - has to be greater than every doc added before
+     */
+    void add(int doc) {
+        if (doc <= lastDoc) {
+            throw new IllegalArgumentException("Docs have to be added in ascending order");
+        }
+        if (length + 5 > bytes.length) {
+            bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, length + 5));
+        }
+        int delta = doc - lastDoc;
+        while ((delta & ~0x7F) != 0) {
+            bytes[length++] = (byte) ((delta & 0x7F) | 0x80);
+            delta >>>= 7;
+        }
+        bytes[length++] = (byte) delta;
+        lastDoc = doc;
+        size++;
+    }
+
+    int size() {
+        return size;
+    }
+
+    int lastDoc() {
+        return lastDoc;
+    }
+
+    int sizeInBytes() {
+        return length;
+    }
+
+    Cursor cursor() {
+        return new Cursor(bytes, length);
+    }
+
+    static final class Cursor {
+
+        private final byte[] bytes;
+        private final int length;
+        private int position;
+        private int doc = -1;
+
+        private Cursor(byte[] bytes, int length) {
+            this.bytes = bytes;
+            this.length = length;
+        }
+
+        int doc() {
+            return doc;
+        }
+
+        int nextDoc() {
+            if (position >= length) {
+                return doc = NO_MORE_DOCS;
+            }
+            int delta = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = bytes[position++];
+                delta |= (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            return doc += delta;
+        }
+
+        /***
+         * @return first doc not smaller than target or NO_MORE_DOCS
+         */
+        int advance(int target) {
+            while (doc < target) {
+                nextDoc();
+            }
+            return doc;
+        }
+    }
+}
@@ -2,6 +2,11 @@ package com.mariusz.book_collection.service;
 
 import com.mariusz.book_collection.entity.Author;
 import com.mariusz.book_collection.entity.AuthorForm;
+import com.mariusz.book_collection.entity.AuthorSuggestion;
+import com.mariusz.book_collection.entity.AuthorView;
+
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 
 import java.util.List;
 import java.util.Optional;
@@ -9,8 +14,15 @@ import java.util.Optional;
 public interface AuthorService {
 
     Optional<Author> findAuthorById(Long authorId);
-    List<Author> findAll();
+    List<AuthorView> findAll();
+    Page<AuthorView> findAuthorsPage(Pageable pageable);
     List<Author> findByLastName(String lastName);
 
     Author addNewAuthor(AuthorForm authorForm);
+
+    /***
+     * @param prefix - beginning of the first or last name, case and diacritics are ignored
+     * @return at most limit authors whose name starts with the prefix
+     */
+    List<AuthorSuggestion> suggestAuthors(String prefix, int limit);
 }
@@ -2,10 +2,17 @@ package com.mariusz.book_collection.service;
 
 import com.mariusz.book_collection.entity.Author;
 import com.mariusz.book_collection.entity.AuthorForm;
+import com.mariusz.book_collection.entity.AuthorSuggestion;
+import com.mariusz.book_collection.entity.AuthorView;
 import com.mariusz.book_collection.mapper.AuthorFormMapper;
 import com.mariusz.book_collection.repository.AuthorRepository;
+import com.mariusz.book_collection.search.AuthorSuggestIndex;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 import java.util.Optional;
@@ -14,11 +21,14 @@ public class AuthorServiceImpl implements AuthorService {
 
     private final AuthorRepository authorRepository;
     private final AuthorFormMapper authorFormMapper;
+    private final AuthorSuggestIndex authorSuggestIndex;
 
     @Autowired
-    public AuthorServiceImpl(AuthorRepository authorRepository, AuthorFormMapper authorFormMapper) {
+    public AuthorServiceImpl(AuthorRepository authorRepository, AuthorFormMapper authorFormMapper,
+                             AuthorSuggestIndex authorSuggestIndex) {
         this.authorRepository = authorRepository;
         this.authorFormMapper = authorFormMapper;
+        this.authorSuggestIndex = authorSuggestIndex;
     }
 
     @Override
@@ -27,8 +37,15 @@ public class AuthorServiceImpl implements AuthorService {
     }
 
     @Override
-    public List<Author> findAll() {
-        return authorRepository.findAll();
+    @Transactional(readOnly = true)
+    public List<AuthorView> findAll() {
+        return authorRepository.findAllViews();
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Page<AuthorView> findAuthorsPage(Pageable pageable) {
+        return authorRepository.findViews(pageable);
     }
 
     @Override
@@ -41,4 +58,30 @@ public class AuthorServiceImpl implements AuthorService {
         Author author = authorFormMapper.mapToAuthor(authorForm);
         return authorRepository.save(author);
     }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<AuthorSuggestion> suggestAuthors(String prefix, int limit) {
+        if (authorSuggestIndex.isLoaded()) {
+            return authorSuggestIndex.suggest(prefix, limit);
+        }
+        return authorRepository.findSuggestions(startingWith(prefix), PageRequest.of(0, limit));
+    }
+
+    /***
+     * @return like pattern of the lower case prefix with runs of spaces collapsed, as the index sees it,
+     * and with its wildcards escaped
+     */
+    private static String startingWith(String prefix) {
+        String normalized = prefix.trim().replaceAll("\\s+", " ").toLowerCase();
+        StringBuilder like = new StringBuilder(normalized.length() + 2);
+        for (int i = 0; i < normalized.length(); i++) {
+            char c = normalized.charAt(i);
+            if (c == '%' || c == '_' || c == AuthorRepository.LIKE_ESCAPE) {
+                like.append(AuthorRepository.LIKE_ESCAPE);
+            }
+            like.append(c);
+        }
+        return like.append('%').toString();
+    }
 }
@@ -0,0 +1,21 @@
+package com.mariusz.book_collection.service;
+
+import com.mariusz.book_collection.entity.Book;
+import com.mariusz.book_collection.entity.BookBulkUpdate;
+import com.mariusz.book_collection.entity.BookBulkUpdateResult;
+import com.mariusz.book_collection.entity.BookShelfMove;
+
+import java.util.List;
+import java.util.Optional;
+
+public interface BookBatchService {
+
+    List<Long> addBooks(List<Book> books);
+
+    BookBulkUpdateResult updateBooks(BookBulkUpdate update);
+
+    /***
+     * @return number of moved books, empty when the target shelf does not exist
+     */
+    Optional<BookBulkUpdateResult> moveBooks(BookShelfMove move);
+}
@@ -0,0 +1,267 @@
+package com.mariusz.book_collection.service;
+
+import com.mariusz.book_collection.catalog.CatalogVersion;
+import com.mariusz.book_collection.entity.Book;
+import com.mariusz.book_collection.entity.BookBulkUpdate;
+import com.mariusz.book_collection.entity.BookBulkUpdateResult;
+import com.mariusz.book_collection.entity.BookShelfMove;
+import com.mariusz.book_collection.entity.Shelf;
+import com.mariusz.book_collection.patch.BookProperty;
+import com.mariusz.book_collection.patch.InvalidPatchException;
+import com.mariusz.book_collection.repository.InClause;
+import com.mariusz.book_collection.search.BookSearchIndex;
+import com.mariusz.book_collection.statistics.CatalogStatistics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.persistence.LockModeType;
+import javax.persistence.Query;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.function.ToIntBiFunction;
+import java.util.stream.Collectors;
+
+@Service
+public class BookBatchServiceImpl implements BookBatchService {
+
+    private final EntityManager entityManager;
+    private final TransactionTemplate transactionTemplate;
+    private final BookSearchIndex bookSearchIndex;
+    private final CatalogVersion catalogVersion;
+    private final CatalogStatistics catalogStatistics;
+    private final int chunkSize;
+
+    @Autowired
+    public BookBatchServiceImpl(EntityManager entityManager,
+                                PlatformTransactionManager transactionManager,
+                                BookSearchIndex bookSearchIndex,
+                                CatalogVersion catalogVersion,
+                                CatalogStatistics catalogStatistics,
+                                @Value("${book.batch.chunk-size:" + InClause.MAX_SIZE + "}") int chunkSize) {
+        this.entityManager = entityManager;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.bookSearchIndex = bookSearchIndex;
+        this.catalogVersion = catalogVersion;
+        this.catalogStatistics = catalogStatistics;
+        this.chunkSize = Math.min(chunkSize, InClause.MAX_SIZE);
+    }
+
+    /***
+     * Inserts all books in one transaction, so either all of them are saved or none.
+     * Books are flushed in chunks and then detached, the persistence context never holds more than a chunk.
+     * Inside a chunk Hibernate sends the inserts as JDBC batches (hibernate.jdbc.batch_size).
+     * @param books - new books, ids are ignored
+     * @return generated ids in the order of the given books
+     */
+    @Override
+    public List<Long> addBooks(List<Book> books) {
+        return transactionTemplate.execute(status -> {
+            List<Long> ids = new ArrayList<>(books.size());
+            for (int from = 0; from < books.size(); from += chunkSize) {
+                ids.addAll(insertChunk(books.subList(from, Math.min(from + chunkSize, books.size()))));
+            }
+            return ids;
+        });
+    }
+
+    /***
+     * Runs one UPDATE statement per chunk, every chunk in its own transaction so row locks are held shortly.
+     * Given ids are chunked, ids of books of an author are read page by page, see inChunks.
+     * Books which already have the new values are skipped and keep their version.
+     * Bulk statements bypass entity events, so the search index and the catalog version
+     * are updated here after every committed chunk.
+     * @throws InvalidPatchException - when a change is not a title or description, or removes the title
+     */
+    @Override
+    public BookBulkUpdateResult updateBooks(BookBulkUpdate update) {
+        Map<BookProperty, String> changes = toChanges(update.getChanges());
+        String author = update.getAuthorId() == null ? null : "b.author.authorId = :authorId";
+        Consumer<Query> authorParameter = query -> {
+            if (update.getAuthorId() != null) {
+                query.setParameter("authorId", update.getAuthorId());
+            }
+        };
+        return inChunks(update.getIds(), author, authorParameter, (where, filter) -> updateChunk(changes, where, filter));
+    }
+
+    /***
+     * Moves books with one UPDATE statement per chunk, chunked like updateBooks, instead of a load
+     * and an update of every book. Books already on the target shelf are skipped and keep their version.
+     * Counts of shelves are moved in the catalog statistics for the rows locked and updated by each chunk,
+     * after every committed chunk the catalog version changes so cached shelf pages are not reused.
+     */
+    @Override
+    public Optional<BookBulkUpdateResult> moveBooks(BookShelfMove move) {
+        if (entityManager.find(Shelf.class, move.getToShelfId()) == null) {
+            return Optional.empty();
+        }
+        String from = move.getFromShelfId() == null ? null : "b.shelf.id = :fromShelfId";
+        Consumer<Query> fromParameter = query -> {
+            if (move.getFromShelfId() != null) {
+                query.setParameter("fromShelfId", move.getFromShelfId());
+            }
+        };
+        return Optional.of(inChunks(move.getIds(), from, fromParameter,
+                (where, filter) -> moveChunk(move.getToShelfId(), where, filter)));
+    }
+
+    /***
+     * Updates books in chunks of at most chunkSize ids, padded like InClause. Given ids are chunked as they are,
+     * otherwise ids of books matching the condition are read in pages after the last id of the previous chunk,
+     * so every chunk holds existing books and no statement runs for gaps between ids.
+     * @param condition - selects books when there are no ids, narrows them down otherwise
+     * @param chunkUpdate - runs the update of one chunk with the where clause and its parameters, returns changed rows
+     */
+    private BookBulkUpdateResult inChunks(List<Long> ids, String condition, Consumer<Query> parameters,
+                                          ToIntBiFunction<String, Consumer<Query>> chunkUpdate) {
+        String where = "b.id in :ids" + (condition == null ? "" : " and " + condition);
+        long updated = 0;
+        int chunks = 0;
+        if (ids != null && !ids.isEmpty()) {
+            List<Long> sorted = ids.stream().distinct().sorted().collect(Collectors.toList());
+            for (int from = 0; from < sorted.size(); from += chunkSize) {
+                List<Long> chunk = sorted.subList(from, Math.min(from + chunkSize, sorted.size()));
+                updated += chunkUpdate.applyAsInt(where, withIds(parameters, chunk));
+                chunks++;
+            }
+        } else {
+            List<Long> chunk = idsAfter(0L, condition, parameters);
+            while (!chunk.isEmpty()) {
+                updated += chunkUpdate.applyAsInt(where, withIds(parameters, chunk));
+                chunks++;
+                chunk = chunk.size() < chunkSize ? Collections.emptyList()
+                        : idsAfter(chunk.get(chunk.size() - 1), condition, parameters);
+            }
+        }
+        return new BookBulkUpdateResult(updated, chunks);
+    }
+
+    private List<Long> idsAfter(long after, String condition, Consumer<Query> parameters) {
+        return transactionTemplate.execute(status -> {
+            Query select = entityManager.createQuery("select b.id from Book b where b.id > :after and "
+                    + condition + " order by b.id")
+                    .setParameter("after", after)
+                    .setMaxResults(chunkSize);
+            parameters.accept(select);
+            List<Long> ids = new ArrayList<>(chunkSize);
+            for (Object id : select.getResultList()) {
+                ids.add((Long) id);
+            }
+            return ids;
+        });
+    }
+
+    private static Consumer<Query> withIds(Consumer<Query> parameters, List<Long> chunk) {
+        return parameters.andThen(query -> query.setParameter("ids", InClause.pad(chunk)));
+    }
+
+    private List<Long> insertChunk(List<Book> chunk) {
+        List<Long> ids = new ArrayList<>(chunk.size());
+        for (Book book : chunk) {
+            book.setId(null);
+            entityManager.persist(book);
+            ids.add(book.getId());
+        }
+        entityManager.flush();
+        entityManager.clear();
+        return ids;
+    }
+
+    private int updateChunk(Map<BookProperty, String> changes, String where, Consumer<Query> filter) {
+        StringBuilder statement = new StringBuilder("update Book b set b.version = b.version + 1, b.updated = :updated");
+        StringBuilder changed = new StringBuilder();
+        changes.forEach((property, value) -> {
+            String name = property.getName();
+            statement.append(", b.").append(name).append(" = :").append(name);
+            changed.append(changed.length() == 0 ? "" : " or ").append(value == null
+                    ? "b." + name + " is not null"
+                    : "(b." + name + " is null or b." + name + " <> :" + name + ")");
+        });
+        statement.append(" where ").append(where).append(" and (").append(changed).append(')');
+
+        List<Object[]> texts = new ArrayList<>();
+        int rows = transactionTemplate.execute(status -> {
+            Query update = entityManager.createQuery(statement.toString())
+                    .setParameter("updated", LocalDateTime.now());
+            changes.forEach((property, value) -> update.setParameter(property.getName(), value));
+            filter.accept(update);
+            int count = update.executeUpdate();
+            if (count > 0) {
+                Query select = entityManager.createQuery("select b.id, b.title, b.description from Book b where " + where);
+                filter.accept(select);
+                for (Object row : select.getResultList()) {
+                    texts.add((Object[]) row);
+                }
+            }
+            return count;
+        });
+        for (Object[] text : texts) {
+            bookSearchIndex.put((Long) text[0], (String) text[1], (String) text[2]);
+        }
+        if (rows > 0) {
+            catalogVersion.increment();
+        }
+        return rows;
+    }
+
+    /***
+     * Rows to move are locked by the select first (SELECT ... FOR UPDATE) and the UPDATE changes exactly them,
+     * so the statistics move the same books the statement did, even when a concurrent write changed the shelf
+     * of a book in between.
+     */
+    private int moveChunk(Long shelfId, String where, Consumer<Query> filter) {
+        List<Long> ids = new ArrayList<>();
+        int rows = transactionTemplate.execute(status -> {
+            Query select = entityManager.createQuery("select b.id from Book b where " + where
+                    + " and (b.shelf is null or b.shelf.id <> :shelfId)")
+                    .setParameter("shelfId", shelfId)
+                    .setLockMode(LockModeType.PESSIMISTIC_WRITE);
+            filter.accept(select);
+            for (Object id : select.getResultList()) {
+                ids.add((Long) id);
+            }
+            if (ids.isEmpty()) {
+                return 0;
+            }
+            return entityManager.createQuery("update Book b set b.version = b.version + 1, "
+                    + "b.updated = :updated, b.shelf = :shelf where b.id in :locked")
+                    .setParameter("updated", LocalDateTime.now())
+                    .setParameter("shelf", entityManager.getReference(Shelf.class, shelfId))
+                    .setParameter("locked", InClause.pad(ids))
+                    .executeUpdate();
+        });
+        if (rows > 0) {
+            catalogStatistics.moveBooks(ids, shelfId);
+            catalogVersion.increment();
+        }
+        return rows;
+    }
+
+    private static Map<BookProperty, String> toChanges(Map<String, String> changes) {
+        if (changes == null || changes.isEmpty()) {
+            throw new InvalidPatchException("Nothing to change");
+        }
+        Map<BookProperty, String> properties = new EnumMap<>(BookProperty.class);
+        changes.forEach((name, value) -> {
+            BookProperty property = BookProperty.of(name);
+            if (property == null || property == BookProperty.ISBN) {
+                throw new InvalidPatchException(name + " can not be set on many books");
+            }
+            if (value == null && !property.isNullable()) {
+                throw new InvalidPatchException(name + " can not be removed");
+            }
+            properties.put(property, value);
+        });
+        return properties;
+    }
+}
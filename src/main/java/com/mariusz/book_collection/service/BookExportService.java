@@ -0,0 +1,11 @@
+package com.mariusz.book_collection.service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+public interface BookExportService {
+
+    String NDJSON_MEDIA_TYPE = "application/x-ndjson";
+
+    long exportBooks(OutputStream outputStream) throws IOException;
+}
@@ -0,0 +1,68 @@
+package com.mariusz.book_collection.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.mariusz.book_collection.entity.Book;
+import com.mariusz.book_collection.repository.BookRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+@Service
+public class BookExportServiceImpl implements BookExportService {
+
+    static final int FLUSH_EVERY = 500;
+
+    private final BookRepository bookRepository;
+    private final EntityManager entityManager;
+    private final ObjectWriter bookWriter;
+
+    @Autowired
+    public BookExportServiceImpl(BookRepository bookRepository, EntityManager entityManager, ObjectMapper objectMapper) {
+        this.bookRepository = bookRepository;
+        this.entityManager = entityManager;
+        this.bookWriter = objectMapper.writerFor(Book.class)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+    }
+
+    /***
+     * Writes every book as one JSON line while the result set is still being read.
+     * Books are detached as soon as they are written and the persistence context is
+     * cleared every FLUSH_EVERY rows, so memory does not grow with the catalog.
+     * @param outputStream - target stream, left open
+     * @return number of exported books
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public long exportBooks(OutputStream outputStream) throws IOException {
+        long exported = 0;
+        JsonGenerator generator = bookWriter.getFactory().createGenerator(outputStream);
+        generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        generator.setRootValueSeparator(null);
+
+        try (Stream<Book> books = bookRepository.streamAllWithAuthor()) {
+            Iterator<Book> iterator = books.iterator();
+            while (iterator.hasNext()) {
+                Book book = iterator.next();
+                bookWriter.writeValue(generator, book);
+                generator.writeRaw('\n');
+                entityManager.detach(book);
+
+                if (++exported % FLUSH_EVERY == 0) {
+                    entityManager.clear();
+                    generator.flush();
+                }
+            }
+        }
+        generator.close();
+        return exported;
+    }
+}
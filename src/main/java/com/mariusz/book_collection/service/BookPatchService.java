@@ -0,0 +1,18 @@
+package com.mariusz.book_collection.service;
+
+import com.github.fge.jsonpatch.JsonPatch;
+import com.github.fge.jsonpatch.mergepatch.JsonMergePatch;
+import com.mariusz.book_collection.entity.Book;
+
+import java.util.Optional;
+import java.util.function.Predicate;
+
+public interface BookPatchService {
+
+    String JSON_PATCH_MEDIA_TYPE = "application/json-patch+json";
+    String MERGE_PATCH_MEDIA_TYPE = "application/merge-patch+json";
+
+    Optional<Book> patchBook(Long bookId, JsonPatch patch, Predicate<Book> precondition);
+
+    Optional<Book> patchBook(Long bookId, JsonMergePatch patch, Predicate<Book> precondition);
+}
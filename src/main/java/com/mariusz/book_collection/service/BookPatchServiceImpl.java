@@ -0,0 +1,86 @@
+package com.mariusz.book_collection.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.github.fge.jsonpatch.JsonPatch;
+import com.github.fge.jsonpatch.JsonPatchException;
+import com.github.fge.jsonpatch.mergepatch.JsonMergePatch;
+import com.mariusz.book_collection.entity.Book;
+import com.mariusz.book_collection.patch.BookProperty;
+import com.mariusz.book_collection.patch.InvalidPatchException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.Iterator;
+import java.util.Optional;
+import java.util.function.Predicate;
+
+/***
+ * Patches are applied to a small document with the patchable properties only, not to the whole book.
+ * Only properties whose value changed are set, Book has dynamic update so the UPDATE
+ * statement contains just their columns and no statement runs when nothing changed.
+ * A patch which lost the race with another update is applied again to the new state.
+ */
+@Service
+public class BookPatchServiceImpl implements BookPatchService {
+
+    private final BookUpdateService bookUpdateService;
+
+    @Autowired
+    public BookPatchServiceImpl(BookUpdateService bookUpdateService) {
+        this.bookUpdateService = bookUpdateService;
+    }
+
+    /***
+     * RFC 6902 patch.
+     * @throws UpdateConflictException - when an operation fails, e.g. a test does not match
+     * @throws InvalidPatchException - when the patch changes a property which is not patchable
+     */
+    @Override
+    public Optional<Book> patchBook(Long bookId, JsonPatch patch, Predicate<Book> precondition) {
+        return patchBook(bookId, precondition, patch::apply);
+    }
+
+    /***
+     * RFC 7396 merge patch, null removes a property.
+     * @throws InvalidPatchException - when the patch changes a property which is not patchable
+     */
+    @Override
+    public Optional<Book> patchBook(Long bookId, JsonMergePatch patch, Predicate<Book> precondition) {
+        return patchBook(bookId, precondition, patch::apply);
+    }
+
+    private Optional<Book> patchBook(Long bookId, Predicate<Book> precondition, PatchFunction patch) {
+        return bookUpdateService.updateBook(bookId, precondition, book -> {
+            ObjectNode original = BookProperty.toNode(book);
+            try {
+                applyChanges(book, original, patch.apply(original.deepCopy()));
+            } catch (JsonPatchException e) {
+                throw new UpdateConflictException(e.getMessage(), e);
+            }
+        });
+    }
+
+    private void applyChanges(Book book, ObjectNode original, JsonNode patched) {
+        if (!patched.isObject()) {
+            throw new InvalidPatchException("Patched book has to be an object");
+        }
+        Iterator<String> names = patched.fieldNames();
+        while (names.hasNext()) {
+            String name = names.next();
+            if (BookProperty.of(name) == null) {
+                throw new InvalidPatchException(name + " is not a patchable property");
+            }
+        }
+        for (BookProperty property : BookProperty.values()) {
+            JsonNode value = patched.get(property.getName());
+            if (!original.get(property.getName()).equals(value)) {
+                property.set(book, value);
+            }
+        }
+    }
+
+    private interface PatchFunction {
+        JsonNode apply(JsonNode node) throws JsonPatchException;
+    }
+}
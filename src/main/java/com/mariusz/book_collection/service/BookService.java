@@ -1,31 +1,40 @@
 package com.mariusz.book_collection.service;
 
-import com.mariusz.book_collection.entity.Author;
 import com.mariusz.book_collection.entity.Book;
+import com.mariusz.book_collection.entity.BookCursorPage;
 import com.mariusz.book_collection.entity.BookForm;
+import com.mariusz.book_collection.entity.BookModification;
+import com.mariusz.book_collection.entity.BookView;
 import com.mariusz.book_collection.entity.Shelf;
-import jdk.internal.org.objectweb.asm.commons.Remapper;
+
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 
 import java.util.List;
-import java.util.Map;
 import java.util.Optional;
 
 public interface BookService {
 
     Optional<Book> findBookById(Long id);
+
+    /***
+     * @return book with its author and shelf loaded
+     */
+    Optional<Book> findBookDetailsById(Long id);
     Optional<Book> findBookByIsbn(String isbn);
-    List<Book> findAllBooks();
+    Optional<BookModification> findBookModificationById(Long id);
+    List<BookView> findAllBooks();
+    BookCursorPage findBooksAfter(Long after, int limit);
+    Page<BookView> findBooksPage(Pageable pageable);
     Book saveOrUpdate(Book book);
     Book saveOrUpdate(Long bookId, BookForm bookForm);
     Book putBookOnShelf(Book book, Shelf shef);
 
-    List<Book> findBooksByAuthorId(Long authorId);
-
-    List<Book> findBookByAuthors(List<Author> authors);
+    List<BookView> findBooksByAuthorId(Long authorId);
 
-    List<Book> findBookByTitle(String title);
+    List<BookView> findBooksByAuthorLastName(String lastName);
 
-    void saveOrUpdate(Map<String,Object> updates, Long id);
+    List<BookView> findBookByTitle(String title, int limit);
 
     Book addNewBook(BookForm bookForm);
 
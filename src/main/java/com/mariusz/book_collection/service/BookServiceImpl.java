@@ -1,14 +1,25 @@
 package com.mariusz.book_collection.service;
 
-import com.mariusz.book_collection.entity.Author;
 import com.mariusz.book_collection.entity.Book;
+import com.mariusz.book_collection.entity.BookCursorPage;
 import com.mariusz.book_collection.entity.BookForm;
+import com.mariusz.book_collection.entity.BookModification;
+import com.mariusz.book_collection.entity.BookView;
 import com.mariusz.book_collection.entity.Shelf;
+import com.mariusz.book_collection.index.IsbnIndex;
+import com.mariusz.book_collection.isbn.IsbnCanonicalizer;
 import com.mariusz.book_collection.mapper.BookFormMapper;
 import com.mariusz.book_collection.repository.BookRepository;
+import com.mariusz.book_collection.repository.InClause;
+import com.mariusz.book_collection.search.BookSearchIndex;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
-import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -18,11 +29,15 @@ public class BookServiceImpl implements BookService {
 
     private final BookRepository bookRepository;
     private final BookFormMapper bookFormMapper;
-    private Book book;
+    private final IsbnIndex isbnIndex;
+    private final BookSearchIndex bookSearchIndex;
 
-    public BookServiceImpl(BookRepository bookRepository, BookFormMapper bookFormMapper) {
+    public BookServiceImpl(BookRepository bookRepository, BookFormMapper bookFormMapper, IsbnIndex isbnIndex,
+                           BookSearchIndex bookSearchIndex) {
         this.bookRepository = bookRepository;
         this.bookFormMapper = bookFormMapper;
+        this.isbnIndex = isbnIndex;
+        this.bookSearchIndex = bookSearchIndex;
     }
 
     @Override
@@ -30,17 +45,73 @@ public class BookServiceImpl implements BookService {
         return bookRepository.findById(id);
     }
 
+    @Override
+    public Optional<Book> findBookDetailsById(Long id) {
+        return bookRepository.findDetailsById(id);
+    }
+
+    @Override
+    public Optional<BookModification> findBookModificationById(Long id) {
+        return bookRepository.findModificationById(id);
+    }
+
+    /***
+     * A valid isbn, ISBN-10 or ISBN-13, is resolved to book id in memory and an unknown one
+     * does not hit the database at all. Falls back to the isbn13 query while the index is
+     * still loading or when the indexed book no longer has this isbn.
+     * An isbn with a wrong check digit is looked up by its digits.
+     */
     @Override
     public Optional<Book> findBookByIsbn(String isbn) {
-        String pattern = "([^\\d])+";
-        String verifiedIsbn = isbn.replaceAll(pattern,"");
+        long isbn13 = IsbnCanonicalizer.toIsbn13(isbn);
+        if (isbn13 == IsbnCanonicalizer.INVALID) {
+            return bookRepository.findByIsbn(IsbnCanonicalizer.normalize(isbn));
+        }
 
-        return bookRepository.findByIsbn(verifiedIsbn);
+        if (isbnIndex.isLoaded()) {
+            long bookId = isbnIndex.findBookId(isbn13);
+            if (bookId == IsbnIndex.NO_BOOK) {
+                return Optional.empty();
+            }
+            Optional<Book> indexedBook = bookRepository.findById(bookId)
+                    .filter(found -> found.getIsbn13() != null && found.getIsbn13() == isbn13);
+            if (indexedBook.isPresent()) {
+                return indexedBook;
+            }
+        }
+        return bookRepository.findByIsbn13(isbn13);
+    }
+
+    /***
+     * Lists are read as BookView rows in a read-only transaction: only the columns shown are selected,
+     * the session is not flushed and nothing is kept for dirty checking.
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public List<BookView> findAllBooks() {
+        return bookRepository.findAllViews();
     }
 
     @Override
-    public List<Book> findAllBooks() {
-        return bookRepository.findAll();
+    @Transactional(readOnly = true)
+    public Page<BookView> findBooksPage(Pageable pageable) {
+        return bookRepository.findViews(pageable);
+    }
+
+    /***
+     * Seek on the primary key instead of OFFSET, so every page costs the same.
+     * One extra row is fetched to find out if there is a next page.
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public BookCursorPage findBooksAfter(Long after, int limit) {
+        List<BookView> books = bookRepository
+                .findViewsAfter(after == null ? 0L : after, PageRequest.of(0, limit + 1));
+        if (books.size() <= limit) {
+            return new BookCursorPage(books, null);
+        }
+        List<BookView> page = books.subList(0, limit);
+        return new BookCursorPage(page, page.get(limit - 1).getId());
     }
 
     @Override
@@ -49,6 +120,7 @@ public class BookServiceImpl implements BookService {
     }
 
     @Override
+    @Transactional
     public Book saveOrUpdate(Long bookId, BookForm bookForm) {
         Optional<Book> existingBook = bookRepository.findById(bookId);
         Book updatedBook = bookFormMapper.updateBook(existingBook.get(), bookForm);
@@ -62,39 +134,52 @@ public class BookServiceImpl implements BookService {
     }
 
     @Override
-    public List<Book> findBooksByAuthorId(Long authorId) {
-        return bookRepository.findAllByAuthor_AuthorId(authorId);
-    }
-
-    @Override
-    public List<Book> findBookByAuthors(List<Author> authors) {
-        return bookRepository.findAllByAuthorIn(authors);
+    @Transactional(readOnly = true)
+    public List<BookView> findBooksByAuthorId(Long authorId) {
+        return bookRepository.findViewsByAuthorId(authorId);
     }
 
+    /***
+     * Authors are matched in the same statement, no author list is loaded first.
+     */
     @Override
-    public List<Book> findBookByTitle(String title) {
-        return bookRepository.findAllByTitleIgnoreCaseContains(title);
+    @Transactional(readOnly = true)
+    public List<BookView> findBooksByAuthorLastName(String lastName) {
+        return bookRepository.findViewsByAuthorLastName(lastName);
     }
 
+    /***
+     * Ranked ids come from the search index, only the top books are loaded from the database.
+     * Until the index is loaded the title is matched by the database, unranked.
+     */
     @Override
-    public void saveOrUpdate(Map<String, Object> updates, Long id) {
-        Optional<Book> newBook = bookRepository.findById(id);
-
-        if (newBook.isPresent()){
-            book = newBook.get();
-            for (Map.Entry<String, Object> value: updates.entrySet()
-                 ) {
-                try {
-                    Field field = book.getClass().getDeclaredField(value.getKey());
-                    field.setAccessible(true);
-                    field.set(book, value.getValue());
-                    field.setAccessible(false);
-                } catch (IllegalAccessException | NoSuchFieldException e) {
-                    //do nothing here
-                }
+    @Transactional(readOnly = true)
+    public List<BookView> findBookByTitle(String title, int limit) {
+        if (!bookSearchIndex.isLoaded()) {
+            return bookRepository.findViewsByTitleContaining(title, PageRequest.of(0, limit));
+        }
+        long[] bookIds = bookSearchIndex.search(title, limit);
+        if (bookIds.length == 0) {
+            return new ArrayList<>();
+        }
+        List<Long> ids = new ArrayList<>(bookIds.length);
+        for (long bookId : bookIds) {
+            ids.add(bookId);
+        }
+        Map<Long, BookView> booksById = new HashMap<>();
+        for (List<Long> chunk : InClause.paddedChunks(ids)) {
+            for (BookView found : bookRepository.findViewsByIdIn(chunk)) {
+                booksById.put(found.getId(), found);
+            }
+        }
+        List<BookView> books = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            BookView found = booksById.get(id);
+            if (found != null) {
+                books.add(found);
             }
-            bookRepository.save(book);
         }
+        return books;
     }
 
     @Override
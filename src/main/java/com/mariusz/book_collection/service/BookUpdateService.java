@@ -0,0 +1,14 @@
+package com.mariusz.book_collection.service;
+
+import com.mariusz.book_collection.entity.Book;
+
+import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+public interface BookUpdateService {
+
+    Optional<Book> updateBook(Long bookId, Predicate<Book> precondition, Consumer<Book> change);
+
+    Optional<Book> replaceBook(Long bookId, Book replacement, Predicate<Book> precondition);
+}
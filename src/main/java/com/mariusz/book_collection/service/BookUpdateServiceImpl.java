@@ -0,0 +1,94 @@
+package com.mariusz.book_collection.service;
+
+import com.mariusz.book_collection.entity.Author;
+import com.mariusz.book_collection.entity.Book;
+import com.mariusz.book_collection.patch.BookProperty;
+import com.mariusz.book_collection.patch.InvalidPatchException;
+import com.mariusz.book_collection.repository.AuthorRepository;
+import com.mariusz.book_collection.repository.BookRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/***
+ * Update pipeline of books without locks: the UPDATE checks the version read at the start,
+ * a change which lost the race with another writer is rolled back and run again on the new state.
+ */
+@Service
+public class BookUpdateServiceImpl implements BookUpdateService {
+
+    private final BookRepository bookRepository;
+    private final AuthorRepository authorRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final int maxAttempts;
+
+    @Autowired
+    public BookUpdateServiceImpl(BookRepository bookRepository, AuthorRepository authorRepository,
+                                 PlatformTransactionManager transactionManager,
+                                 @Value("${book.update.max-attempts:3}") int maxAttempts) {
+        this.bookRepository = bookRepository;
+        this.authorRepository = authorRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.maxAttempts = maxAttempts;
+    }
+
+    /***
+     * Every attempt runs in its own transaction on the book loaded in it.
+     * @param precondition - checked against the loaded book on every attempt, e.g. If-Match of the client
+     * @param change - changes the loaded book, has to be safe to run again
+     * @return updated book with its new version, empty when there is no such book
+     * @throws PreconditionFailedException - when the precondition does not hold
+     * @throws UpdateConflictException - when maxAttempts attempts lost to other writers
+     */
+    @Override
+    public Optional<Book> updateBook(Long bookId, Predicate<Book> precondition, Consumer<Book> change) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return transactionTemplate.execute(status -> bookRepository.findById(bookId).map(book -> {
+                    if (!precondition.test(book)) {
+                        throw new PreconditionFailedException("Book " + bookId + " does not match the precondition");
+                    }
+                    change.accept(book);
+                    return book;
+                }));
+            } catch (OptimisticLockingFailureException e) {
+                if (attempt >= maxAttempts) {
+                    throw new UpdateConflictException("Book " + bookId + " was updated concurrently "
+                            + attempt + " times", e);
+                }
+            }
+        }
+    }
+
+    /***
+     * Replaces patchable properties and the author of the book with the given ones.
+     * @throws InvalidPatchException - when the title is missing or the author is not saved
+     */
+    @Override
+    public Optional<Book> replaceBook(Long bookId, Book replacement, Predicate<Book> precondition) {
+        return updateBook(bookId, precondition, book -> {
+            for (BookProperty property : BookProperty.values()) {
+                property.copy(replacement, book);
+            }
+            book.setAuthor(findAuthor(replacement.getAuthor()));
+        });
+    }
+
+    private Author findAuthor(Author author) {
+        if (author == null) {
+            return null;
+        }
+        if (author.getAuthorId() == null) {
+            throw new InvalidPatchException("Author has to be saved before the book");
+        }
+        return authorRepository.findById(author.getAuthorId())
+                .orElseThrow(() -> new InvalidPatchException("Author " + author.getAuthorId() + " does not exist"));
+    }
+}
@@ -0,0 +1,20 @@
+package com.mariusz.book_collection.service;
+
+import com.mariusz.book_collection.entity.CacheRegionStatistics;
+
+import java.util.List;
+
+public interface CacheStatisticsService {
+
+    String QUERY_CACHE = "query";
+
+    /***
+     * Counters are kept only with book.hibernate.statistics=true.
+     */
+    boolean isEnabled();
+
+    /***
+     * @return counters of every entity region and, under QUERY_CACHE, of cached query results
+     */
+    List<CacheRegionStatistics> getCacheStatistics();
+}
@@ -0,0 +1,46 @@
+package com.mariusz.book_collection.service;
+
+import com.mariusz.book_collection.entity.CacheRegionStatistics;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.SecondLevelCacheStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+@Service
+public class CacheStatisticsServiceImpl implements CacheStatisticsService {
+
+    private final Statistics statistics;
+
+    @Autowired
+    public CacheStatisticsServiceImpl(EntityManagerFactory entityManagerFactory) {
+        this.statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return statistics.isStatisticsEnabled();
+    }
+
+    @Override
+    public List<CacheRegionStatistics> getCacheStatistics() {
+        String[] regions = statistics.getSecondLevelCacheRegionNames();
+        Arrays.sort(regions);
+        List<CacheRegionStatistics> result = new ArrayList<>(regions.length + 1);
+        for (String region : regions) {
+            SecondLevelCacheStatistics regionStatistics = statistics.getSecondLevelCacheStatistics(region);
+            if (regionStatistics != null) {
+                result.add(new CacheRegionStatistics(region, regionStatistics.getHitCount(),
+                        regionStatistics.getMissCount(), regionStatistics.getPutCount()));
+            }
+        }
+        result.add(new CacheRegionStatistics(QUERY_CACHE, statistics.getQueryCacheHitCount(),
+                statistics.getQueryCacheMissCount(), statistics.getQueryCachePutCount()));
+        return result;
+    }
+}
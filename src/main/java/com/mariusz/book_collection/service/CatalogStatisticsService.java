@@ -0,0 +1,8 @@
+package com.mariusz.book_collection.service;
+
+import com.mariusz.book_collection.entity.CatalogStatisticsView;
+
+public interface CatalogStatisticsService {
+
+    CatalogStatisticsView getCatalogStatistics();
+}
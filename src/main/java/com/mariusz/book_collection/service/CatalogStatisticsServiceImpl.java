@@ -0,0 +1,25 @@
+package com.mariusz.book_collection.service;
+
+import com.mariusz.book_collection.entity.CatalogStatisticsView;
+import com.mariusz.book_collection.statistics.CatalogStatistics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+@Service
+public class CatalogStatisticsServiceImpl implements CatalogStatisticsService {
+
+    private final CatalogStatistics catalogStatistics;
+
+    @Autowired
+    public CatalogStatisticsServiceImpl(CatalogStatistics catalogStatistics) {
+        this.catalogStatistics = catalogStatistics;
+    }
+
+    /***
+     * Served from memory, no statement is run.
+     */
+    @Override
+    public CatalogStatisticsView getCatalogStatistics() {
+        return catalogStatistics.getView();
+    }
+}
@@ -0,0 +1,10 @@
+package com.mariusz.book_collection.service;
+
+import com.mariusz.book_collection.entity.ConnectionHoldView;
+
+public interface ConnectionStatisticsService {
+
+    ConnectionHoldView getConnectionHold();
+
+    void resetConnectionHold();
+}
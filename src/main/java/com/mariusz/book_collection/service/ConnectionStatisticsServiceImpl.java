@@ -0,0 +1,27 @@
+package com.mariusz.book_collection.service;
+
+import com.mariusz.book_collection.entity.ConnectionHoldView;
+import com.mariusz.book_collection.statistics.ConnectionHoldMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+@Service
+public class ConnectionStatisticsServiceImpl implements ConnectionStatisticsService {
+
+    private final ConnectionHoldMetrics connectionHoldMetrics;
+
+    @Autowired
+    public ConnectionStatisticsServiceImpl(ConnectionHoldMetrics connectionHoldMetrics) {
+        this.connectionHoldMetrics = connectionHoldMetrics;
+    }
+
+    @Override
+    public ConnectionHoldView getConnectionHold() {
+        return connectionHoldMetrics.getView();
+    }
+
+    @Override
+    public void resetConnectionHold() {
+        connectionHoldMetrics.reset();
+    }
+}
@@ -0,0 +1,11 @@
+package com.mariusz.book_collection.service;
+
+/***
+ * The book is no longer in the state the client based its update on (If-Match does not match).
+ */
+public class PreconditionFailedException extends RuntimeException {
+
+    public PreconditionFailedException(String message) {
+        super(message);
+    }
+}
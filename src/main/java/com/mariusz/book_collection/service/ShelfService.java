@@ -1,15 +1,22 @@
 package com.mariusz.book_collection.service;
 
 import com.mariusz.book_collection.entity.Shelf;
-import org.springframework.http.ResponseEntity;
+import com.mariusz.book_collection.entity.ShelfBooksPage;
+import com.mariusz.book_collection.entity.ShelfView;
 
 import java.util.List;
 import java.util.Optional;
 
 public interface ShelfService {
 
-    List<Shelf> getAllShelfs();
+    List<ShelfView> getAllShelfs();
     Optional<Shelf> findShelfById(Long shelfId);
 
     Optional<Shelf> findShelfByDescription(String description);
+
+    /***
+     * @param after - id of the last book from the previous page, null for the first page
+     * @return page of books on the shelf ordered by id, empty when there is no such shelf
+     */
+    Optional<ShelfBooksPage> findShelfBooks(Long shelfId, Long after, int limit);
 }
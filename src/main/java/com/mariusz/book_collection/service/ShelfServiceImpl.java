@@ -1,9 +1,15 @@
 package com.mariusz.book_collection.service;
 
+import com.mariusz.book_collection.entity.BookView;
 import com.mariusz.book_collection.entity.Shelf;
+import com.mariusz.book_collection.entity.ShelfBooksPage;
+import com.mariusz.book_collection.entity.ShelfView;
+import com.mariusz.book_collection.repository.BookRepository;
 import com.mariusz.book_collection.repository.ShelfRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 import java.util.Optional;
@@ -12,15 +18,18 @@ import java.util.Optional;
 public class ShelfServiceImpl implements ShelfService {
 
     private final ShelfRepository shelfRepository;
+    private final BookRepository bookRepository;
 
     @Autowired
-    public ShelfServiceImpl(ShelfRepository shelfRepository) {
+    public ShelfServiceImpl(ShelfRepository shelfRepository, BookRepository bookRepository) {
         this.shelfRepository = shelfRepository;
+        this.bookRepository = bookRepository;
     }
 
     @Override
-    public List<Shelf> getAllShelfs() {
-        return shelfRepository.findAll();
+    @Transactional(readOnly = true)
+    public List<ShelfView> getAllShelfs() {
+        return shelfRepository.findAllViews();
     }
 
     @Override
@@ -32,4 +41,25 @@ public class ShelfServiceImpl implements ShelfService {
     public Optional<Shelf> findShelfByDescription(String description) {
         return shelfRepository.findByDescription(description);
     }
+
+    /***
+     * Shelf comes from the second level cache, books and count are read through
+     * the (shelf_id, id) index, so only rows of this shelf are touched.
+     * Seek on the book id like the book list, one extra row tells if there is a next page.
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public Optional<ShelfBooksPage> findShelfBooks(Long shelfId, Long after, int limit) {
+        if (!shelfRepository.findById(shelfId).isPresent()) {
+            return Optional.empty();
+        }
+        List<BookView> books = bookRepository
+                .findViewsOnShelfAfter(shelfId, after == null ? 0L : after, PageRequest.of(0, limit + 1));
+        long bookCount = bookRepository.countOnShelf(shelfId);
+        if (books.size() <= limit) {
+            return Optional.of(new ShelfBooksPage(shelfId, bookCount, books, null));
+        }
+        List<BookView> page = books.subList(0, limit);
+        return Optional.of(new ShelfBooksPage(shelfId, bookCount, page, page.get(limit - 1).getId()));
+    }
 }
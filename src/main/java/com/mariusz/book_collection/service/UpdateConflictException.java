@@ -0,0 +1,12 @@
+package com.mariusz.book_collection.service;
+
+/***
+ * Update which can not be applied to the current state of a book: other writers kept winning
+ * the optimistic lock, or an operation of a patch does not hold for the current state.
+ */
+public class UpdateConflictException extends RuntimeException {
+
+    public UpdateConflictException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
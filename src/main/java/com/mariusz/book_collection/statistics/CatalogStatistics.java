@@ -0,0 +1,200 @@
+package com.mariusz.book_collection.statistics;
+
+import com.mariusz.book_collection.entity.CatalogStatisticsView;
+import com.mariusz.book_collection.index.LongLongHashMap;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+
+/***
+ * In memory catalog totals, changed by every committed write instead of counted by the database on every read.
+ * Author, shelf and creation day of every book are kept, so a change only needs the new values of a book
+ * and repeated events do not count a book twice. Nothing is boxed per book, see Aggregates.
+ * The view served to clients is built once after a change and shared until the next one.
+ */
+@Component
+public class CatalogStatistics {
+
+    private Aggregates aggregates = new Aggregates();
+    private long modifications;
+    private CatalogStatisticsView view;
+
+    public synchronized CatalogStatisticsView getView() {
+        if (view == null) {
+            view = aggregates.toView();
+        }
+        return view;
+    }
+
+    public synchronized void putBook(long bookId, Long authorId, Long shelfId, LocalDateTime created) {
+        aggregates.putBook(bookId, authorId, shelfId, created == null ? null : created.toLocalDate());
+        changed();
+    }
+
+    public synchronized void removeBook(long bookId) {
+        aggregates.removeBook(bookId);
+        changed();
+    }
+
+    /***
+     * For bulk moves, which do not fire entity events.
+     */
+    public synchronized void moveBooks(Collection<Long> bookIds, Long shelfId) {
+        for (Long bookId : bookIds) {
+            aggregates.moveBook(bookId, shelfId);
+        }
+        changed();
+    }
+
+    public synchronized void putAuthor(long authorId) {
+        aggregates.addAuthor(authorId);
+        changed();
+    }
+
+    public synchronized void removeAuthor(long authorId) {
+        aggregates.removeAuthor(authorId);
+        changed();
+    }
+
+    public synchronized void putShelf(long shelfId) {
+        aggregates.addShelf(shelfId);
+        changed();
+    }
+
+    public synchronized void removeShelf(long shelfId) {
+        aggregates.removeShelf(shelfId);
+        changed();
+    }
+
+    /***
+     * Number of changes so far, taken before the database is read for a rebuild.
+     */
+    synchronized long getModifications() {
+        return modifications;
+    }
+
+    /***
+     * Replaces the totals with ones rebuilt from the database, unless a change came in while they were read.
+     * Such a rebuild may miss the change, the kept totals already have it and the next rebuild is tried later.
+     * @param modificationsBefore - getModifications() taken before reading the database
+     * @return true when the totals were replaced
+     */
+    synchronized boolean replace(Aggregates rebuilt, long modificationsBefore) {
+        if (modifications != modificationsBefore) {
+            return false;
+        }
+        aggregates = rebuilt;
+        view = null;
+        return true;
+    }
+
+    private void changed() {
+        modifications++;
+        view = null;
+    }
+
+    /***
+     * Not thread safe, guarded by CatalogStatistics or owned by a single rebuild.
+     * Author, shelf and creation day of a book sit in three primitive maps keyed by book id,
+     * a missing value is kept as NONE.
+     */
+    static final class Aggregates {
+
+        private static final long NONE = Long.MIN_VALUE;
+        private static final long PRESENT = 1L;
+
+        private final LongLongHashMap bookAuthors = new LongLongHashMap(16);
+        private final LongLongHashMap bookShelves = new LongLongHashMap(16);
+        private final LongLongHashMap bookDays = new LongLongHashMap(16);
+        private final LongLongHashMap booksPerAuthor = new LongLongHashMap(16);
+        private final LongLongHashMap booksPerShelf = new LongLongHashMap(16);
+        private final LongLongHashMap booksPerDay = new LongLongHashMap(16);
+        private final LongLongHashMap authors = new LongLongHashMap(16);
+        private final LongLongHashMap shelves = new LongLongHashMap(16);
+
+        void putBook(long bookId, Long authorId, Long shelfId, LocalDate createdDay) {
+            removeBook(bookId);
+            long author = orNone(authorId);
+            long shelf = orNone(shelfId);
+            long day = createdDay == null ? NONE : createdDay.toEpochDay();
+            bookAuthors.put(bookId, author);
+            bookShelves.put(bookId, shelf);
+            bookDays.put(bookId, day);
+            count(author, shelf, day, 1);
+        }
+
+        void removeBook(long bookId) {
+            long author = bookAuthors.remove(bookId);
+            if (author != LongLongHashMap.MISSING) {
+                count(author, bookShelves.remove(bookId), bookDays.remove(bookId), -1);
+            }
+        }
+
+        void moveBook(long bookId, Long shelfId) {
+            long author = bookAuthors.get(bookId);
+            if (author != LongLongHashMap.MISSING) {
+                long shelf = orNone(shelfId);
+                long day = bookDays.get(bookId);
+                count(author, bookShelves.put(bookId, shelf), day, -1);
+                count(author, shelf, day, 1);
+            }
+        }
+
+        void addAuthor(long authorId) {
+            authors.put(authorId, PRESENT);
+        }
+
+        void removeAuthor(long authorId) {
+            authors.remove(authorId);
+        }
+
+        void addShelf(long shelfId) {
+            shelves.put(shelfId, PRESENT);
+        }
+
+        void removeShelf(long shelfId) {
+            shelves.remove(shelfId);
+        }
+
+        CatalogStatisticsView toView() {
+            Map<LocalDate, Long> perDay = new TreeMap<>();
+            booksPerDay.forEach((day, count) -> perDay.put(LocalDate.ofEpochDay(day), count));
+            return new CatalogStatisticsView(bookAuthors.size(), authors.size(), shelves.size(),
+                    sorted(booksPerAuthor), sorted(booksPerShelf), Collections.unmodifiableMap(perDay));
+        }
+
+        private void count(long author, long shelf, long day, long delta) {
+            add(booksPerAuthor, author, delta);
+            add(booksPerShelf, shelf, delta);
+            add(booksPerDay, day, delta);
+        }
+
+        private static void add(LongLongHashMap counts, long key, long delta) {
+            if (key == NONE) {
+                return;
+            }
+            long count = counts.get(key);
+            count = (count == LongLongHashMap.MISSING ? 0 : count) + delta;
+            if (count == 0) {
+                counts.remove(key);
+            } else {
+                counts.put(key, count);
+            }
+        }
+
+        private static long orNone(Long id) {
+            return id == null ? NONE : id;
+        }
+
+        private static Map<Long, Long> sorted(LongLongHashMap counts) {
+            Map<Long, Long> sorted = new TreeMap<>();
+            counts.forEach(sorted::put);
+            return Collections.unmodifiableMap(sorted);
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package com.mariusz.book_collection.statistics;
+
+import com.mariusz.book_collection.catalog.PostCommitEntityListener;
+import com.mariusz.book_collection.entity.Author;
+import com.mariusz.book_collection.entity.Book;
+import com.mariusz.book_collection.entity.BookFacts;
+import com.mariusz.book_collection.entity.Shelf;
+import com.mariusz.book_collection.repository.AuthorRepository;
+import com.mariusz.book_collection.repository.BookRepository;
+import com.mariusz.book_collection.repository.ShelfRepository;
+import org.hibernate.proxy.HibernateProxy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.stream.Stream;
+
+/***
+ * Builds the catalog statistics once the application is ready and applies committed changes
+ * of books, authors and shelves to them.
+ * Writes which bypass the events are rebuilt from the database every book.statistics.reconcile-interval
+ * milliseconds, an hour by default.
+ */
+@Component
+public class CatalogStatisticsSynchronizer extends PostCommitEntityListener {
+
+    private final CatalogStatistics catalogStatistics;
+    private final BookRepository bookRepository;
+    private final AuthorRepository authorRepository;
+    private final ShelfRepository shelfRepository;
+    private final TransactionTemplate readTransaction;
+
+    @Autowired
+    public CatalogStatisticsSynchronizer(CatalogStatistics catalogStatistics, BookRepository bookRepository,
+                                         AuthorRepository authorRepository, ShelfRepository shelfRepository,
+                                         EntityManagerFactory entityManagerFactory,
+                                         PlatformTransactionManager transactionManager) {
+        super(entityManagerFactory, Book.class, Author.class, Shelf.class);
+        this.catalogStatistics = catalogStatistics;
+        this.bookRepository = bookRepository;
+        this.authorRepository = authorRepository;
+        this.shelfRepository = shelfRepository;
+        this.readTransaction = new TransactionTemplate(transactionManager);
+        this.readTransaction.setReadOnly(true);
+    }
+
+    /***
+     * A rebuild overlapping a write is dropped, see CatalogStatistics.replace, so it is tried a few times.
+     * Every attempt reads in a transaction of its own, a repeatable read snapshot of the dropped attempt
+     * would miss the write again.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        boolean replaced = false;
+        for (int attempt = 0; attempt < 3 && !replaced; attempt++) {
+            replaced = reconcile();
+        }
+    }
+
+    /***
+     * Reads all aggregates again in a new transaction and replaces the kept ones, see CatalogStatistics.replace.
+     * @return true when the totals were replaced
+     */
+    @Scheduled(fixedDelayString = "${book.statistics.reconcile-interval:3600000}",
+            initialDelayString = "${book.statistics.reconcile-interval:3600000}")
+    public boolean reconcile() {
+        long modifications = catalogStatistics.getModifications();
+        return catalogStatistics.replace(readTransaction.execute(status -> readAggregates()), modifications);
+    }
+
+    private CatalogStatistics.Aggregates readAggregates() {
+        CatalogStatistics.Aggregates aggregates = new CatalogStatistics.Aggregates();
+        try (Stream<BookFacts> books = bookRepository.streamAllFacts()) {
+            books.forEach(book -> aggregates.putBook(book.getId(), book.getAuthorId(), book.getShelfId(),
+                    book.getCreated() == null ? null : book.getCreated().toLocalDate()));
+        }
+        authorRepository.findAllIds().forEach(aggregates::addAuthor);
+        shelfRepository.findAllIds().forEach(aggregates::addShelf);
+        return aggregates;
+    }
+
+    @Override
+    protected void saved(Object entity) {
+        if (entity instanceof Book) {
+            Book book = (Book) entity;
+            catalogStatistics.putBook(book.getId(), book.getAuthor() == null ? null : authorId(book.getAuthor()),
+                    book.getShelf() == null ? null : shelfId(book.getShelf()), book.getCreated());
+        } else if (entity instanceof Author) {
+            catalogStatistics.putAuthor(((Author) entity).getAuthorId());
+        } else if (entity instanceof Shelf) {
+            catalogStatistics.putShelf(((Shelf) entity).getId());
+        }
+    }
+
+    @Override
+    protected void deleted(Object entity) {
+        if (entity instanceof Book) {
+            catalogStatistics.removeBook(((Book) entity).getId());
+        } else if (entity instanceof Author) {
+            catalogStatistics.removeAuthor(((Author) entity).getAuthorId());
+        } else if (entity instanceof Shelf) {
+            catalogStatistics.removeShelf(((Shelf) entity).getId());
+        }
+    }
+
+    /***
+     * Shelf is a lazy association, its id is read from the proxy without loading the shelf.
+     */
+    private static Long shelfId(Shelf shelf) {
+        return shelf instanceof HibernateProxy
+                ? (Long) ((HibernateProxy) shelf).getHibernateLazyInitializer().getIdentifier()
+                : shelf.getId();
+    }
+
+    private static Long authorId(Author author) {
+        return author instanceof HibernateProxy
+                ? (Long) ((HibernateProxy) author).getHibernateLazyInitializer().getIdentifier()
+                : author.getAuthorId();
+    }
+}
@@ -0,0 +1,69 @@
+package com.mariusz.book_collection.statistics;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/***
+ * Pool wrapper timing every connection from getConnection until close, which returns it to the pool.
+ */
+public class ConnectionHoldDataSource extends DelegatingDataSource implements AutoCloseable {
+
+    private final ConnectionHoldMetrics metrics;
+
+    public ConnectionHoldDataSource(DataSource pool, ConnectionHoldMetrics metrics) {
+        super(pool);
+        this.metrics = metrics;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return timed(super.getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return timed(super.getConnection(username, password));
+    }
+
+    /***
+     * Closes the pool when it can be closed, the wrapper replaces it as the bean Spring destroys on shutdown.
+     */
+    @Override
+    public void close() throws Exception {
+        if (getTargetDataSource() instanceof AutoCloseable) {
+            ((AutoCloseable) getTargetDataSource()).close();
+        }
+    }
+
+    private Connection timed(Connection connection) {
+        long acquired = System.nanoTime();
+        AtomicBoolean released = new AtomicBoolean();
+        metrics.connectionAcquired();
+        return (Connection) Proxy.newProxyInstance(ConnectionHoldDataSource.class.getClassLoader(),
+                new Class<?>[]{Connection.class}, (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "equals":
+                            return proxy == args[0];
+                        case "hashCode":
+                            return System.identityHashCode(proxy);
+                        case "close":
+                            if (released.compareAndSet(false, true)) {
+                                metrics.connectionReleased(System.nanoTime() - acquired);
+                            }
+                            break;
+                        default:
+                    }
+                    try {
+                        return method.invoke(connection, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getTargetException();
+                    }
+                });
+    }
+}
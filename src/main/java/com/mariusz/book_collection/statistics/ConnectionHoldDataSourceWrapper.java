@@ -0,0 +1,29 @@
+package com.mariusz.book_collection.statistics;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+
+/***
+ * Puts every data source behind ConnectionHoldDataSource.
+ */
+@Component
+public class ConnectionHoldDataSourceWrapper implements BeanPostProcessor {
+
+    private final ConnectionHoldMetrics metrics;
+
+    @Autowired
+    public ConnectionHoldDataSourceWrapper(ConnectionHoldMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (bean instanceof DataSource && !(bean instanceof ConnectionHoldDataSource)) {
+            return new ConnectionHoldDataSource((DataSource) bean, metrics);
+        }
+        return bean;
+    }
+}
@@ -0,0 +1,42 @@
+package com.mariusz.book_collection.statistics;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/***
+ * Sums up connection hold time of every request, grouped by method and mapping pattern.
+ * Runs before the other filters, so pages served from the rendered page cache are counted too.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 1)
+public class ConnectionHoldFilter extends OncePerRequestFilter {
+
+    private final ConnectionHoldMetrics metrics;
+
+    @Autowired
+    public ConnectionHoldFilter(ConnectionHoldMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        metrics.requestStarted();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+            metrics.requestFinished(request.getMethod() + ' ' + (pattern == null ? "(none)" : pattern));
+        }
+    }
+}
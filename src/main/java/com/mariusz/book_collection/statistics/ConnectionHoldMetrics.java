@@ -0,0 +1,110 @@
+package com.mariusz.book_collection.statistics;
+
+import com.mariusz.book_collection.entity.ConnectionHoldView;
+import com.mariusz.book_collection.entity.ConnectionHoldView.RequestHold;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/***
+ * Time between taking a connection from the pool and giving it back, for every checkout
+ * and summed up for every request handled on the calling thread.
+ * Work passed to other threads (asynchronous requests) is counted in the checkouts only.
+ */
+@Component
+public class ConnectionHoldMetrics {
+
+    private static final double NANOS_PER_MILLI = 1_000_000.0;
+
+    private final ThreadLocal<RequestTotals> currentRequest = new ThreadLocal<>();
+    private final Totals checkouts = new Totals();
+    private final Map<String, Totals> requests = new HashMap<>();
+    private int inUse;
+    private int maxInUse;
+
+    public synchronized void connectionAcquired() {
+        inUse++;
+        maxInUse = Math.max(maxInUse, inUse);
+    }
+
+    public void connectionReleased(long heldNanos) {
+        RequestTotals request = currentRequest.get();
+        if (request != null) {
+            request.checkouts++;
+            request.heldNanos += heldNanos;
+        }
+        synchronized (this) {
+            inUse--;
+            checkouts.add(1, heldNanos);
+        }
+    }
+
+    /***
+     * Starts summing up checkouts of the current thread.
+     */
+    public void requestStarted() {
+        currentRequest.set(new RequestTotals());
+    }
+
+    /***
+     * @param key - method and mapping pattern of the finished request
+     */
+    public void requestFinished(String key) {
+        RequestTotals request = currentRequest.get();
+        currentRequest.remove();
+        if (request == null) {
+            return;
+        }
+        synchronized (this) {
+            requests.computeIfAbsent(key, k -> new Totals()).add(request.checkouts, request.heldNanos);
+        }
+    }
+
+    public synchronized ConnectionHoldView getView() {
+        Map<String, RequestHold> byRequest = new TreeMap<>();
+        requests.forEach((key, totals) -> byRequest.put(key, new RequestHold(totals.count, totals.checkouts,
+                totals.averageMillis(), totals.maxNanos / NANOS_PER_MILLI)));
+        return new ConnectionHoldView(checkouts.count, inUse, maxInUse,
+                checkouts.averageMillis(), checkouts.maxNanos / NANOS_PER_MILLI, byRequest);
+    }
+
+    public synchronized void reset() {
+        checkouts.clear();
+        requests.clear();
+        maxInUse = inUse;
+    }
+
+    private static final class RequestTotals {
+
+        private int checkouts;
+        private long heldNanos;
+    }
+
+    private static final class Totals {
+
+        private long count;
+        private long checkouts;
+        private long totalNanos;
+        private long maxNanos;
+
+        private void add(int checkouts, long heldNanos) {
+            this.count++;
+            this.checkouts += checkouts;
+            this.totalNanos += heldNanos;
+            this.maxNanos = Math.max(maxNanos, heldNanos);
+        }
+
+        private double averageMillis() {
+            return count == 0 ? 0 : totalNanos / NANOS_PER_MILLI / count;
+        }
+
+        private void clear() {
+            count = 0;
+            checkouts = 0;
+            totalNanos = 0;
+            maxNanos = 0;
+        }
+    }
+}
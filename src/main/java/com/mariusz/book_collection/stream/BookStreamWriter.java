@@ -0,0 +1,215 @@
+package com.mariusz.book_collection.stream;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.mariusz.book_collection.entity.BookCursorPage;
+import com.mariusz.book_collection.entity.BookView;
+import com.mariusz.book_collection.service.BookExportService;
+import com.mariusz.book_collection.service.BookService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.function.Function;
+
+/***
+ * Streams books as newline delimited JSON with non-blocking servlet output.
+ * A page is read from the database only after the client took the previous one, so a slow client
+ * slows the reading down instead of filling memory, and no thread waits for it in the meantime:
+ * pages are read on the database executor and written while the container says the output is ready,
+ * then writing continues from the container callback.
+ * A stream which fails ends with ERROR_LINE instead of a book, with status 500 when nothing was sent yet,
+ * so a client can tell it from a complete one. Timeouts and client errors stop the writing.
+ */
+@Component
+public class BookStreamWriter {
+
+    static final byte[] ERROR_LINE = "{\"error\":\"Book stream failed\"}\n".getBytes(StandardCharsets.UTF_8);
+
+    private final ExecutorService databaseExecutor;
+    private final ObjectWriter bookWriter;
+    private final int pageSize;
+    private final long timeout;
+
+    @Autowired
+    public BookStreamWriter(@Qualifier("databaseExecutor") ExecutorService databaseExecutor, ObjectMapper objectMapper,
+                            @Value("${book.stream.page-size:500}") int pageSize,
+                            @Value("${book.stream.timeout:600000}") long timeout) {
+        this.databaseExecutor = databaseExecutor;
+        this.bookWriter = objectMapper.writerFor(BookView.class);
+        this.pageSize = pageSize;
+        this.timeout = timeout;
+    }
+
+    /***
+     * Starts asynchronous processing of the request and returns, books are written later.
+     * @param pages - page of books after the given id (null for the first page) with pageSize books at most
+     */
+    public void stream(HttpServletRequest request, HttpServletResponse response,
+                       PageSource pages) throws IOException {
+        response.setContentType(BookExportService.NDJSON_MEDIA_TYPE);
+        response.setCharacterEncoding("UTF-8");
+        AsyncContext async = request.startAsync();
+        async.setTimeout(timeout);
+        ServletOutputStream out = response.getOutputStream();
+        PageWriter writer = new PageWriter(async, response, out, after -> pages.next(after, pageSize));
+        async.addListener(writer);
+        out.setWriteListener(writer);
+    }
+
+    public interface PageSource {
+
+        BookCursorPage next(Long after, int limit);
+    }
+
+    /***
+     * finished stops the writing, completed tells complete() was called by us or by the container,
+     * calling it again would throw.
+     */
+    private final class PageWriter implements WriteListener, AsyncListener {
+
+        private final AsyncContext async;
+        private final HttpServletResponse response;
+        private final ServletOutputStream out;
+        private final Function<Long, BookCursorPage> pages;
+        private byte[] pending;
+        private Long after;
+        private boolean last;
+        private boolean reading;
+        private boolean finished;
+        private boolean completed;
+
+        private PageWriter(AsyncContext async, HttpServletResponse response, ServletOutputStream out,
+                           Function<Long, BookCursorPage> pages) {
+            this.async = async;
+            this.response = response;
+            this.out = out;
+            this.pages = pages;
+        }
+
+        @Override
+        public synchronized void onWritePossible() throws IOException {
+            while (!finished && out.isReady()) {
+                if (pending != null) {
+                    byte[] page = pending;
+                    pending = null;
+                    out.write(page);
+                } else if (last) {
+                    finish();
+                } else {
+                    if (!reading) {
+                        reading = true;
+                        databaseExecutor.execute(this::readPage);
+                    }
+                    return;
+                }
+            }
+        }
+
+        /***
+         * Client connection failed, nothing more can reach it.
+         */
+        @Override
+        public synchronized void onError(Throwable failure) {
+            finish();
+        }
+
+        @Override
+        public synchronized void onTimeout(AsyncEvent event) throws IOException {
+            if (!finished && out.isReady()) {
+                markFailed();
+                out.write(ERROR_LINE);
+            }
+            finish();
+        }
+
+        @Override
+        public synchronized void onError(AsyncEvent event) {
+            finish();
+        }
+
+        @Override
+        public synchronized void onComplete(AsyncEvent event) {
+            finished = true;
+            completed = true;
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+        }
+
+        private void readPage() {
+            try {
+                BookCursorPage page = pages.apply(after);
+                byte[] lines = toLines(page);
+                synchronized (this) {
+                    if (finished) {
+                        return;
+                    }
+                    pending = lines;
+                    after = page.getNextCursor();
+                    last = after == null;
+                    reading = false;
+                    onWritePossible();
+                }
+            } catch (IOException | RuntimeException e) {
+                synchronized (this) {
+                    fail();
+                }
+            }
+        }
+
+        /***
+         * Sends ERROR_LINE in place of the page which could not be read and ends the stream.
+         */
+        private void fail() {
+            if (finished) {
+                return;
+            }
+            markFailed();
+            pending = ERROR_LINE;
+            last = true;
+            reading = false;
+            try {
+                onWritePossible();
+            } catch (IOException e) {
+                finish();
+            }
+        }
+
+        private void markFailed() {
+            if (!response.isCommitted()) {
+                response.setStatus(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+            }
+        }
+
+        private byte[] toLines(BookCursorPage page) throws IOException {
+            ByteArrayOutputStream lines = new ByteArrayOutputStream(page.getBooks().size() * 256);
+            for (BookView book : page.getBooks()) {
+                lines.write(bookWriter.writeValueAsBytes(book));
+                lines.write('\n');
+            }
+            return lines.toByteArray();
+        }
+
+        private void finish() {
+            finished = true;
+            if (!completed) {
+                completed = true;
+                async.complete();
+            }
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.mariusz.book_collection.benchmark;
+
+import com.mariusz.book_collection.isbn.IsbnCanonicalizer;
+import org.openjdk.jmh.Main;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/***
+ * Compares the former regex based ISBN clean-up with {@link IsbnCanonicalizer}.
+ * Not run by surefire; start it with
+ * {@code mvn test-compile exec:java -Dexec.mainClass=com.mariusz.book_collection.benchmark.IsbnCanonicalizationBenchmark -Dexec.classpathScope=test}
+ * Arguments are passed to the JMH command line, e.g. {@code -Dexec.args="IsbnCanonicalization -prof gc"}
+ * shows allocation per operation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class IsbnCanonicalizationBenchmark {
+
+    @Param({"9788376489117", "978-83-7648-911-7", "0-8044-2957-X"})
+    private String isbn;
+
+    @Benchmark
+    public String regexReplaceAll() {
+        return isbn.replaceAll("([^\\d])+", "");
+    }
+
+    @Benchmark
+    public long regexReplaceAllAndParse() {
+        return Long.parseLong(isbn.replaceAll("([^\\d])+", ""));
+    }
+
+    @Benchmark
+    public String canonicalizerNormalize() {
+        return IsbnCanonicalizer.normalize(isbn);
+    }
+
+    @Benchmark
+    public long canonicalizerToIsbn13() {
+        return IsbnCanonicalizer.toIsbn13(isbn);
+    }
+
+    public static void main(String[] args) throws Exception {
+        Main.main(args.length == 0 ? new String[]{IsbnCanonicalizationBenchmark.class.getSimpleName()} : args);
+    }
+}
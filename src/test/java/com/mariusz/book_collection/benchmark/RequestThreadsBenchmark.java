@@ -0,0 +1,251 @@
+package com.mariusz.book_collection.benchmark;
+
+import com.mariusz.book_collection.BookCollectionApplication;
+import com.mariusz.book_collection.entity.Book;
+import com.mariusz.book_collection.repository.BookRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/***
+ * Requests per millisecond and latency percentiles of the application in Tomcat's platform worker pool
+ * and with virtual threads (book.threads.virtual), with and without the connection limiter, while the
+ * database is slow. Every trial starts the whole application on the test profile (H2) in the benchmark
+ * fork, with each statement delayed by queryMillis while it holds its pooled connection. Requests go
+ * through Tomcat, Spring MVC, LimitedTransactionManager and Hikari over HTTP.
+ * dbRequests client threads keep cursor pages of books (/api/books?limit=20) in flight. The measured
+ * requests either read such a page too (dbRequest) or are answered from memory (memoryRequest,
+ * /api/statistics), which should not wait behind the database ones.
+ * Throughput mode gives requests per millisecond, SampleTime mode p99 and other percentiles.
+ * After every trial the fork prints how many background requests were answered and how many failed.
+ * The virtual mode needs a Java 21 runtime. Its forks print the stack of every virtual thread pinned to
+ * its carrier (jdk.tracePinnedThreads), e.g. inside synchronized blocks of Tomcat or the JDBC driver.
+ * H2 stands in for MySQL. Pass spring.datasource.* of a MySQL database with -jvmArgsAppend to include
+ * Connector/J. Start it like IsbnCanonicalizationBenchmark, with a Java 21 java on the forks' path
+ * ({@code -jvm}), e.g. {@code -Dexec.args="RequestThreads -jvm /path/to/jdk-21/bin/java"}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Threads(8)
+@Fork(value = 1, jvmArgsAppend = {"-Dhttp.maxConnections=1000", "-Djdk.tracePinnedThreads=short"})
+public class RequestThreadsBenchmark {
+
+    private static final int BOOKS = 1000;
+
+    @Param({"platform", "virtual"})
+    private String threads;
+
+    @Param({"false", "true"})
+    private boolean limiter;
+
+    @Param("400")
+    private int dbRequests;
+
+    @Param("20")
+    private int queryMillis;
+
+    private ConfigurableApplicationContext application;
+    private ExecutorService clients;
+    private volatile boolean running;
+    private final LongAdder loadAnswered = new LongAdder();
+    private final LongAdder loadRefused = new LongAdder();
+    private String dbUrl;
+    private String memoryUrl;
+
+    @Setup
+    public void setUp() {
+        application = new SpringApplicationBuilder(BookCollectionApplication.class, SlowDataSourceWrapper.class)
+                .profiles("test")
+                .run("--server.port=0",
+                        "--book.threads.virtual=" + "virtual".equals(threads),
+                        "--book.limiter.enabled=" + limiter,
+                        "--book.benchmark.query-millis=" + queryMillis,
+                        "--book.hibernate.statistics=false",
+                        "--spring.jpa.show-sql=false",
+                        "--logging.level.root=warn");
+        List<Book> books = new ArrayList<>(BOOKS);
+        for (int i = 0; i < BOOKS; i++) {
+            books.add(new Book(null, "Zwiadowcy " + i, null, null));
+        }
+        application.getBean(BookRepository.class).saveAll(books);
+
+        String server = "http://localhost:"
+                + ((ServletWebServerApplicationContext) application).getWebServer().getPort();
+        dbUrl = server + "/api/books?limit=20";
+        memoryUrl = server + "/api/statistics";
+        running = true;
+        clients = Executors.newFixedThreadPool(dbRequests);
+        for (int i = 0; i < dbRequests; i++) {
+            clients.execute(() -> {
+                while (running) {
+                    try {
+                        get(dbUrl);
+                        loadAnswered.increment();
+                    } catch (IOException e) {
+                        // 503 of the limiter or a refused connection, the load goes on
+                        loadRefused.increment();
+                    }
+                }
+            });
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws InterruptedException {
+        running = false;
+        clients.shutdown();
+        clients.awaitTermination(1, TimeUnit.MINUTES);
+        application.close();
+        System.out.println("Background requests: " + loadAnswered.sum() + " answered, " + loadRefused.sum() + " failed");
+    }
+
+    @Benchmark
+    public int dbRequest() throws IOException {
+        return get(dbUrl);
+    }
+
+    @Benchmark
+    public int memoryRequest() throws IOException {
+        return get(memoryUrl);
+    }
+
+    /***
+     * @return response status, the body is read to the end so the connection is kept alive
+     */
+    private static int get(String url) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+        int status = connection.getResponseCode();
+        try (InputStream body = status < 400 ? connection.getInputStream() : connection.getErrorStream()) {
+            if (body != null) {
+                byte[] buffer = new byte[8192];
+                while (body.read(buffer) >= 0) {
+                    // drained
+                }
+            }
+        }
+        if (status != 200) {
+            throw new IOException(url + " answered " + status);
+        }
+        return status;
+    }
+
+    /***
+     * Delays every statement by book.benchmark.query-millis, while it holds its connection, the way
+     * a busy MySQL server does. Registered only by this benchmark, component scan does not see it.
+     */
+    public static class SlowDataSourceWrapper implements BeanPostProcessor {
+
+        private final long queryMillis;
+
+        public SlowDataSourceWrapper(@Value("${book.benchmark.query-millis}") long queryMillis) {
+            this.queryMillis = queryMillis;
+        }
+
+        @Override
+        public Object postProcessAfterInitialization(Object bean, String beanName) {
+            if (!(bean instanceof DataSource)) {
+                return bean;
+            }
+            return new SlowDataSource((DataSource) bean);
+        }
+
+        private class SlowDataSource extends DelegatingDataSource implements AutoCloseable {
+
+            private SlowDataSource(DataSource pool) {
+                super(pool);
+            }
+
+            @Override
+            public Connection getConnection() throws SQLException {
+                return delayed(super.getConnection(), Connection.class);
+            }
+
+            @Override
+            public void close() throws Exception {
+                if (getTargetDataSource() instanceof AutoCloseable) {
+                    ((AutoCloseable) getTargetDataSource()).close();
+                }
+            }
+        }
+
+        /***
+         * Statements created by the connection are wrapped too, their execute methods sleep first.
+         */
+        private <T> T delayed(T target, Class<T> type) {
+            return type.cast(Proxy.newProxyInstance(RequestThreadsBenchmark.class.getClassLoader(), new Class<?>[]{type},
+                    (proxy, method, args) -> {
+                        if (method.getName().startsWith("execute")) {
+                            Thread.sleep(queryMillis);
+                        }
+                        Object result = invoke(method, target, args);
+                        return result instanceof Statement && Statement.class.isAssignableFrom(method.getReturnType())
+                                ? delayed(result, statementType(method)) : result;
+                    }));
+        }
+
+        @SuppressWarnings("unchecked")
+        private static Class<Object> statementType(Method method) {
+            return (Class<Object>) method.getReturnType();
+        }
+
+        private static Object invoke(Method method, Object target, Object[] args) throws Throwable {
+            try {
+                return method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                throw e.getTargetException();
+            }
+        }
+    }
+
+    /***
+     * Forks need Java 9 or later: Spring 5.0 defines its proxy classes through reflection into java.lang,
+     * which is allowed there only when the package is opened to it. Tomcat clears caches of java.io on stop.
+     */
+    public static void main(String[] args) throws Exception {
+        ChainedOptionsBuilder options = new OptionsBuilder()
+                .parent(new CommandLineOptions(args.length == 0 ? new String[]{RequestThreadsBenchmark.class.getSimpleName()} : args));
+        options.jvmArgsPrepend("--add-opens=java.base/java.lang=ALL-UNNAMED", "--add-opens=java.base/java.io=ALL-UNNAMED");
+        new Runner(options.build()).run();
+    }
+}
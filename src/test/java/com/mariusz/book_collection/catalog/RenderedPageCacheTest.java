@@ -0,0 +1,53 @@
+package com.mariusz.book_collection.catalog;
+
+import com.mariusz.book_collection.catalog.RenderedPageCache.RenderedPage;
+import org.junit.Test;
+
+import static org.assertj.core.api.Java6Assertions.assertThat;
+
+public class RenderedPageCacheTest {
+
+    private static final String HTML = "text/html;charset=UTF-8";
+
+    @Test
+    public void get_withSameCatalogVersionWillReturnPage() {
+        RenderedPageCache cache = new RenderedPageCache(2);
+        RenderedPage page = new RenderedPage(7L, HTML, new byte[]{1});
+        cache.put("/books/bookList", page);
+
+        assertThat(cache.get("/books/bookList", 7L)).isSameAs(page);
+        assertThat(cache.get("/books/bookList?page=1", 7L)).isNull();
+    }
+
+    @Test
+    public void get_withNewerCatalogVersionWillDropPage() {
+        RenderedPageCache cache = new RenderedPageCache(2);
+        cache.put("/books/bookList", new RenderedPage(7L, HTML, new byte[]{1}));
+
+        assertThat(cache.get("/books/bookList", 8L)).isNull();
+        assertThat(cache.size()).isZero();
+    }
+
+    @Test
+    public void put_aboveMaxEntriesWillDropLeastRecentlyUsedPage() {
+        RenderedPageCache cache = new RenderedPageCache(2);
+        cache.put("/", new RenderedPage(7L, HTML, new byte[]{1}));
+        cache.put("/books/1", new RenderedPage(7L, HTML, new byte[]{2}));
+        cache.get("/", 7L);
+
+        cache.put("/books/2", new RenderedPage(7L, HTML, new byte[]{3}));
+
+        assertThat(cache.size()).isEqualTo(2);
+        assertThat(cache.get("/", 7L)).isNotNull();
+        assertThat(cache.get("/books/1", 7L)).isNull();
+    }
+
+    @Test
+    public void put_withZeroMaxEntriesWillNotStorePage() {
+        RenderedPageCache cache = new RenderedPageCache(0);
+        cache.put("/", new RenderedPage(7L, HTML, new byte[]{1}));
+
+        assertThat(cache.isEnabled()).isFalse();
+        assertThat(cache.size()).isZero();
+    }
+}
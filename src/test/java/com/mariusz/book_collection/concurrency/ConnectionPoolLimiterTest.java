@@ -0,0 +1,167 @@
+package com.mariusz.book_collection.concurrency;
+
+import org.junit.Test;
+import org.springframework.transaction.CannotCreateTransactionException;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.AbstractPlatformTransactionManager;
+import org.springframework.transaction.support.DefaultTransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+
+import static org.assertj.core.api.Java6Assertions.assertThat;
+
+public class ConnectionPoolLimiterTest {
+
+    @Test
+    public void acquireShouldTakePermitUntilReleased() {
+        ConnectionPoolLimiter limiter = new ConnectionPoolLimiter(true, 2, 10);
+
+        limiter.acquire();
+        int available = limiter.getAvailablePermits();
+        limiter.release();
+
+        assertThat(available).isEqualTo(1);
+        assertThat(limiter.getAvailablePermits()).isEqualTo(2);
+    }
+
+    @Test(expected = DatabaseBusyException.class)
+    public void transactionShouldGiveUpWhenPermitsStayTaken() throws Exception {
+        ConnectionPoolLimiter limiter = new ConnectionPoolLimiter(true, 1, 10);
+        TransactionTemplate transactionTemplate = new TransactionTemplate(
+                new LimitedTransactionManager(new NoOpTransactionManager(), limiter));
+        CountDownLatch taken = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(1);
+        Thread holder = new Thread(() -> transactionTemplate.execute(status -> {
+            taken.countDown();
+            awaitQuietly(done);
+            return null;
+        }));
+        holder.start();
+        taken.await();
+        try {
+            transactionTemplate.execute(status -> null);
+        } finally {
+            done.countDown();
+            holder.join();
+        }
+    }
+
+    @Test
+    public void disabledLimiterShouldLeaveTransactionManagerAlone() {
+        NoOpTransactionManager transactionManager = new NoOpTransactionManager();
+
+        Object enabled = new LimitedTransactionManagerWrapper(new ConnectionPoolLimiter(true, 1, 10))
+                .postProcessAfterInitialization(transactionManager, "transactionManager");
+        Object disabled = new LimitedTransactionManagerWrapper(new ConnectionPoolLimiter(false, 1, 10))
+                .postProcessAfterInitialization(transactionManager, "transactionManager");
+
+        assertThat(enabled).isInstanceOf(LimitedTransactionManager.class);
+        assertThat(disabled).isSameAs(transactionManager);
+    }
+
+    @Test
+    public void transactionShouldHoldPermitUntilItCompletes() {
+        ConnectionPoolLimiter limiter = new ConnectionPoolLimiter(true, 3, 10);
+        TransactionTemplate transactionTemplate = new TransactionTemplate(
+                new LimitedTransactionManager(new NoOpTransactionManager(), limiter));
+
+        int available = transactionTemplate.execute(status -> limiter.getAvailablePermits());
+
+        assertThat(available).isEqualTo(2);
+        assertThat(limiter.getAvailablePermits()).isEqualTo(3);
+    }
+
+    @Test
+    public void innerTransactionShouldRunOnPermitOfOuterOne() {
+        ConnectionPoolLimiter limiter = new ConnectionPoolLimiter(true, 1, 10);
+        TransactionTemplate transactionTemplate = new TransactionTemplate(
+                new LimitedTransactionManager(new NoOpTransactionManager(), limiter));
+
+        int available = transactionTemplate.execute(status ->
+                transactionTemplate.execute(inner -> limiter.getAvailablePermits()));
+
+        assertThat(available).isEqualTo(0);
+        assertThat(limiter.getAvailablePermits()).isEqualTo(1);
+    }
+
+    @Test
+    public void rolledBackTransactionShouldGiveBackPermit() {
+        ConnectionPoolLimiter limiter = new ConnectionPoolLimiter(true, 1, 10);
+        TransactionTemplate transactionTemplate = new TransactionTemplate(
+                new LimitedTransactionManager(new NoOpTransactionManager(), limiter));
+
+        try {
+            transactionTemplate.execute(status -> {
+                throw new IllegalStateException("failed");
+            });
+        } catch (IllegalStateException e) {
+        }
+
+        assertThat(limiter.getAvailablePermits()).isEqualTo(1);
+    }
+
+    @Test
+    public void transactionWhichCannotBeginShouldGiveBackPermit() {
+        ConnectionPoolLimiter limiter = new ConnectionPoolLimiter(true, 1, 10);
+        TransactionTemplate transactionTemplate = new TransactionTemplate(
+                new LimitedTransactionManager(new NoOpTransactionManager() {
+                    @Override
+                    protected void doBegin(Object transaction, TransactionDefinition definition) {
+                        throw new CannotCreateTransactionException("no connection");
+                    }
+                }, limiter));
+
+        try {
+            transactionTemplate.execute(status -> null);
+        } catch (CannotCreateTransactionException e) {
+        }
+
+        assertThat(limiter.getAvailablePermits()).isEqualTo(1);
+    }
+
+    @Test
+    public void virtualThreadExecutorShouldExistFromJava21() {
+        boolean java21 = false;
+        try {
+            Thread.class.getMethod("ofVirtual");
+            java21 = true;
+        } catch (NoSuchMethodException e) {
+        }
+
+        Optional<ExecutorService> executor = VirtualThreads.newVirtualThreadPerTaskExecutor();
+        executor.ifPresent(ExecutorService::shutdown);
+
+        assertThat(executor.isPresent()).isEqualTo(java21);
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static class NoOpTransactionManager extends AbstractPlatformTransactionManager {
+
+        @Override
+        protected Object doGetTransaction() {
+            return new Object();
+        }
+
+        @Override
+        protected void doBegin(Object transaction, TransactionDefinition definition) {
+        }
+
+        @Override
+        protected void doCommit(DefaultTransactionStatus status) {
+        }
+
+        @Override
+        protected void doRollback(DefaultTransactionStatus status) {
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package com.mariusz.book_collection.config;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Java6Assertions.assertThat;
+
+public class AssetResourceTransformerTest {
+
+    @Test
+    public void minifyCss_willDropCommentsAndWhitespace() {
+        String css = "/* layout */\nbody\n{ font: normal .80em 'trebuchet ms', arial;\n  color: #FFF;}\n\n"
+                + "ul > li a:hover\n{ outline: none; /* focus */ }\n";
+
+        assertThat(AssetResourceTransformer.minifyCss(css))
+                .isEqualTo("body{font: normal .80em 'trebuchet ms',arial;color: #FFF;}ul>li a:hover{outline: none;}");
+    }
+
+    @Test
+    public void minifyCss_willKeepStringsAndUrlsAsTheyAre() {
+        String css = "a::after { content: \"  /* not a comment */ , \\\"x\\\" \"; }\n"
+                + "body { background: url(img/a  b.png) , URL( 'c  d.png' ); }";
+
+        assertThat(AssetResourceTransformer.minifyCss(css))
+                .isEqualTo("a::after{content: \"  /* not a comment */ , \\\"x\\\" \";}"
+                        + "body{background: url(img/a  b.png),URL( 'c  d.png' );}");
+    }
+
+    @Test
+    public void acceptsGzip_willHonourQualityValues() {
+        assertThat(AssetResourceTransformer.acceptsGzip("gzip, deflate, br")).isTrue();
+        assertThat(AssetResourceTransformer.acceptsGzip("deflate, GZIP;q=0.5")).isTrue();
+        assertThat(AssetResourceTransformer.acceptsGzip("gzip;q=0, *")).isFalse();
+        assertThat(AssetResourceTransformer.acceptsGzip("gzip; q=0.000")).isFalse();
+        assertThat(AssetResourceTransformer.acceptsGzip("br, *;q=0.1")).isTrue();
+        assertThat(AssetResourceTransformer.acceptsGzip("identity")).isFalse();
+        assertThat(AssetResourceTransformer.acceptsGzip(null)).isFalse();
+    }
+}
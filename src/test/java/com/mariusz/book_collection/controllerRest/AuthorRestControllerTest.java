@@ -2,7 +2,10 @@ package com.mariusz.book_collection.controllerRest;
 
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mariusz.book_collection.catalog.CatalogVersion;
 import com.mariusz.book_collection.entity.Author;
+import com.mariusz.book_collection.entity.AuthorSuggestion;
+import com.mariusz.book_collection.entity.AuthorView;
 import com.mariusz.book_collection.service.AuthorService;
 import org.hamcrest.Matchers;
 import org.junit.Before;
@@ -10,6 +13,7 @@ import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.MockitoJUnitRunner;
 import org.springframework.boot.test.json.JacksonTester;
 import org.springframework.http.MediaType;
@@ -37,6 +41,9 @@ public class AuthorRestControllerTest {
     @Mock
     private AuthorService authorService;
 
+    @Spy
+    private CatalogVersion catalogVersion = new CatalogVersion();
+
     @InjectMocks
     private AuthorRestController authorRestController;
 
@@ -83,8 +90,8 @@ public class AuthorRestControllerTest {
     public void typedRequestShouldReturnAllAuthors() throws Exception {
 
         //given
-        Author author1 = new Author(1L, "Andrzej","Sapkowski");
-        Author author2 = new Author(2L, "Paolo","Coelio");
+        AuthorView author1 = new AuthorView(1L, "Andrzej","Sapkowski", null, null);
+        AuthorView author2 = new AuthorView(2L, "Paolo","Coelio", null, null);
         given(authorService.findAll()).willReturn(Arrays.asList(author1,author2));
 
         //when
@@ -101,5 +108,26 @@ public class AuthorRestControllerTest {
         verifyNoMoreInteractions(authorService);
     }
 
+    @Test
+    public void suggestShouldReturnMatchingAuthors() throws Exception {
+        given(authorService.suggestAuthors("sap", 10))
+                .willReturn(Arrays.asList(new AuthorSuggestion(1L, "Andrzej", "Sapkowski")));
+
+        mockMvc.perform(get("/api/authors/suggest").param("prefix", "sap"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].authorId", Matchers.is(1)))
+                .andExpect(jsonPath("$[0].lastName", Matchers.is("Sapkowski")));
+    }
+
+    @Test
+    public void suggestWithBlankPrefixOrTooBigLimitShouldReturnBadRequest() throws Exception {
+        mockMvc.perform(get("/api/authors/suggest").param("prefix", " "))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/api/authors/suggest").param("prefix", "sap")
+                .param("limit", String.valueOf(AuthorRestController.MAX_SUGGEST_LIMIT + 1)))
+                .andExpect(status().isBadRequest());
 
+        verifyNoMoreInteractions(authorService);
+    }
 }
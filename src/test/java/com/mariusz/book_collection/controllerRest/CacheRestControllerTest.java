@@ -0,0 +1,69 @@
+package com.mariusz.book_collection.controllerRest;
+
+import com.mariusz.book_collection.entity.CacheRegionStatistics;
+import com.mariusz.book_collection.service.CacheStatisticsService;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.util.Arrays;
+
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@RunWith(MockitoJUnitRunner.class)
+public class CacheRestControllerTest {
+
+    private MockMvc mockMvc;
+
+    @Mock
+    private CacheStatisticsService cacheStatisticsService;
+
+    @InjectMocks
+    private CacheRestController cacheRestController;
+
+    @Before
+    public void setup() {
+        mockMvc = MockMvcBuilders.standaloneSetup(cacheRestController).build();
+    }
+
+    @Test
+    public void statisticsShouldReturnCountersOfEveryRegion() throws Exception {
+        given(cacheStatisticsService.isEnabled()).willReturn(true);
+        given(cacheStatisticsService.getCacheStatistics()).willReturn(Arrays.asList(
+                new CacheRegionStatistics("com.mariusz.book_collection.entity.Author", 7, 2, 2),
+                new CacheRegionStatistics(CacheStatisticsService.QUERY_CACHE, 3, 1, 1)));
+
+        mockMvc.perform(get("/api/cache/statistics"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(2)))
+                .andExpect(jsonPath("$[0].region", is("com.mariusz.book_collection.entity.Author")))
+                .andExpect(jsonPath("$[0].hits", is(7)))
+                .andExpect(jsonPath("$[0].misses", is(2)))
+                .andExpect(jsonPath("$[1].region", is("query")));
+
+        verify(cacheStatisticsService, times(1)).getCacheStatistics();
+    }
+
+    @Test
+    public void statisticsShouldBeNotFoundWhenTurnedOff() throws Exception {
+        given(cacheStatisticsService.isEnabled()).willReturn(false);
+
+        mockMvc.perform(get("/api/cache/statistics"))
+                .andExpect(status().isNotFound());
+
+        verify(cacheStatisticsService, never()).getCacheStatistics();
+    }
+}
@@ -1,24 +1,43 @@
 package com.mariusz.book_collection.controllerRest;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.mariusz.book_collection.entity.Author;
+import com.github.fge.jsonpatch.JsonPatch;
+import com.github.fge.jsonpatch.mergepatch.JsonMergePatch;
+import com.mariusz.book_collection.catalog.CatalogVersion;
 import com.mariusz.book_collection.entity.Book;
-import com.mariusz.book_collection.service.AuthorService;
+import com.mariusz.book_collection.entity.BookBulkUpdate;
+import com.mariusz.book_collection.entity.BookBulkUpdateResult;
+import com.mariusz.book_collection.entity.BookCursorPage;
+import com.mariusz.book_collection.entity.BookModification;
+import com.mariusz.book_collection.entity.BookShelfMove;
+import com.mariusz.book_collection.entity.BookView;
+import com.mariusz.book_collection.patch.InvalidPatchException;
+import com.mariusz.book_collection.service.BookBatchService;
+import com.mariusz.book_collection.service.BookExportService;
+import com.mariusz.book_collection.service.BookPatchService;
 import com.mariusz.book_collection.service.BookService;
+import com.mariusz.book_collection.service.BookUpdateService;
+import com.mariusz.book_collection.service.PreconditionFailedException;
+import com.mariusz.book_collection.service.UpdateConflictException;
 import org.hamcrest.Matchers;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.MockitoJUnitRunner;
 import org.springframework.boot.test.json.JacksonTester;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.mock.web.MockHttpServletResponse;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
@@ -43,7 +62,19 @@ public class RestBookControllerTest {
     private BookService bookService;
 
     @Mock
-    private AuthorService authorService;
+    private BookExportService bookExportService;
+
+    @Mock
+    private BookBatchService bookBatchService;
+
+    @Mock
+    private BookPatchService bookPatchService;
+
+    @Mock
+    private BookUpdateService bookUpdateService;
+
+    @Spy
+    private CatalogVersion catalogVersion = new CatalogVersion();
 
     @InjectMocks
     private RestBookController restBookController;
@@ -79,6 +110,76 @@ public class RestBookControllerTest {
                 .isEqualToIgnoringCase(jacksonTester.write(book).getJson());
     }
 
+    @Test
+    public void bookResponseShouldHaveEntityTagFromVersion() throws Exception {
+        //given
+        Book book = new Book(1L, "Pinokio", null, null);
+        book.setVersion(3L);
+        book.setUpdated(LocalDateTime.of(2018, 7, 1, 12, 0));
+        given(bookService.findBookById(1L)).willReturn(Optional.of(book));
+
+        //when
+        MockHttpServletResponse response = mockMvc
+                .perform(get("/api/books/1"))
+                .andReturn()
+                .getResponse();
+
+        //then
+        assertThat(response.getStatus()).isEqualTo(HttpStatus.OK.value());
+        assertThat(response.getHeader(HttpHeaders.ETAG))
+                .isEqualTo(ConditionalRequests.entityTag("book", 1L, 3L, null));
+        assertThat(response.getHeader(HttpHeaders.LAST_MODIFIED)).isNotNull();
+    }
+
+    @Test
+    public void matchingEntityTagShouldReturnNotModifiedWithoutLoadingBook() throws Exception {
+        //given
+        BookModification modification = mock(BookModification.class);
+        given(modification.getId()).willReturn(1L);
+        given(modification.getVersion()).willReturn(3L);
+        given(modification.getAuthorVersion()).willReturn(1L);
+        given(bookService.findBookModificationById(1L)).willReturn(Optional.of(modification));
+
+        //when
+        mockMvc.perform(get("/api/books/1")
+                .header(HttpHeaders.IF_NONE_MATCH, ConditionalRequests.entityTag("book", 1L, 3L, 1L)))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+
+        //then
+        verify(bookService, never()).findBookById(anyLong());
+    }
+
+    @Test
+    public void staleEntityTagShouldReturnBook() throws Exception {
+        //given
+        Book book = new Book(1L, "Pinokio", null, null);
+        book.setVersion(4L);
+        BookModification modification = mock(BookModification.class);
+        given(modification.getId()).willReturn(1L);
+        given(modification.getVersion()).willReturn(4L);
+        given(modification.getAuthorVersion()).willReturn(null);
+        given(bookService.findBookModificationById(1L)).willReturn(Optional.of(modification));
+        given(bookService.findBookById(1L)).willReturn(Optional.of(book));
+
+        //when
+        mockMvc.perform(get("/api/books/1")
+                .header(HttpHeaders.IF_NONE_MATCH, ConditionalRequests.entityTag("book", 1L, 3L, null)))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, ConditionalRequests.entityTag("book", 1L, 4L, null)))
+                .andExpect(jsonPath("$.title", is("Pinokio")));
+    }
+
+    @Test
+    public void unchangedCatalogShouldReturnNotModifiedBookList() throws Exception {
+        given(catalogVersion.current()).willReturn(new CatalogVersion.Snapshot(7L, 0L));
+
+        mockMvc.perform(get("/api/books").header(HttpHeaders.IF_NONE_MATCH, "\"catalog-7\""))
+                .andExpect(status().isNotModified());
+
+        verify(bookService, never()).findAllBooks();
+    }
+
     @Test
     public void typedIncorrectIdShouldReturnEmptyOptionalAndNotFoundStatus() throws Exception {
 
@@ -101,8 +202,8 @@ public class RestBookControllerTest {
     public void typedRequestShouldReturnAllBooks() throws Exception {
 
         //given
-        Book book1 = new Book(1L,"Pinokio","312312423","Story about wooden boy.");
-        Book book2 = new Book(2L,"Martian","322312423","Story about mars and a man.");
+        BookView book1 = bookView(1L,"Pinokio","312312423","Story about wooden boy.");
+        BookView book2 = bookView(2L,"Martian","322312423","Story about mars and a man.");
 
         //when
         when(bookService.findAllBooks()).thenReturn(new ArrayList<>(Arrays.asList(book1, book2)));
@@ -136,6 +237,57 @@ public class RestBookControllerTest {
         verifyNoMoreInteractions(bookService);
     }
 
+    @Test
+    public void typedLimitShouldReturnPageWithNextCursor() throws Exception {
+
+        //given
+        BookView book1 = bookView(3L,"Pinokio","312312423","Story about wooden boy.");
+        BookView book2 = bookView(4L,"Martian","322312423","Story about mars and a man.");
+
+        given(bookService.findBooksAfter(2L, 2))
+                .willReturn(new BookCursorPage(Arrays.asList(book1, book2), 4L));
+
+        //when
+        mockMvc.perform(get("/api/books?after=2&limit=2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.books", hasSize(2)))
+                .andExpect(jsonPath("$.books[0].id", Matchers.is(3)))
+                .andExpect(jsonPath("$.nextCursor", Matchers.is(4)));
+
+        //then
+        verify(bookService, times(1)).findBooksAfter(2L, 2);
+        verifyNoMoreInteractions(bookService);
+    }
+
+    @Test
+    public void typedTooBigLimitShouldReturnBadRequest() throws Exception {
+
+        mockMvc.perform(get("/api/books?limit=" + (RestBookController.MAX_PAGE_LIMIT + 1)))
+                .andExpect(status().isBadRequest());
+
+        verifyZeroInteractions(bookService);
+    }
+
+    @Test
+    public void exportShouldWriteServiceOutputAsNdjson() throws Exception {
+
+        //given
+        given(bookExportService.exportBooks(any(OutputStream.class))).willAnswer(invocation -> {
+            OutputStream outputStream = invocation.getArgument(0);
+            outputStream.write("{\"id\":1}\n{\"id\":2}\n".getBytes(StandardCharsets.UTF_8));
+            return 2L;
+        });
+
+        //when
+        mockMvc.perform(get("/api/books/export"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(BookExportService.NDJSON_MEDIA_TYPE))
+                .andExpect(content().string("{\"id\":1}\n{\"id\":2}\n"));
+
+        //then
+        verifyZeroInteractions(bookService);
+    }
+
     @Test
     public void typedRequestShouldCreateNewBook() throws Exception {
 
@@ -160,6 +312,138 @@ public class RestBookControllerTest {
                 .isEqualTo(jacksonTester.write(book).getJson());
     }
 
+    @Test
+    public void jsonPatchShouldReturnPatchedBook() throws Exception {
+        Book book = new Book(1L, "Game of Thrones", null, null);
+        given(bookPatchService.patchBook(eq(1L), any(JsonPatch.class), any())).willReturn(Optional.of(book));
+
+        mockMvc.perform(patch("/api/books/1")
+                .contentType(BookPatchService.JSON_PATCH_MEDIA_TYPE)
+                .content("[{\"op\":\"replace\",\"path\":\"/title\",\"value\":\"Game of Thrones\"}]"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.title", is("Game of Thrones")));
+    }
+
+    @Test
+    public void jsonPatchWithFailingOperationShouldReturnConflict() throws Exception {
+        given(bookPatchService.patchBook(eq(1L), any(JsonPatch.class), any()))
+                .willThrow(new UpdateConflictException("test failed", null));
+
+        mockMvc.perform(patch("/api/books/1")
+                .contentType(BookPatchService.JSON_PATCH_MEDIA_TYPE)
+                .content("[{\"op\":\"test\",\"path\":\"/title\",\"value\":\"Other\"}]"))
+                .andExpect(status().isConflict());
+    }
+
+    @Test
+    public void mergePatchOfNotPatchablePropertyShouldReturnUnprocessableEntity() throws Exception {
+        given(bookPatchService.patchBook(eq(1L), any(JsonMergePatch.class), any())).willThrow(new InvalidPatchException("id"));
+
+        mockMvc.perform(patch("/api/books/1")
+                .contentType(BookPatchService.MERGE_PATCH_MEDIA_TYPE)
+                .content("{\"id\":2}"))
+                .andExpect(status().isUnprocessableEntity());
+    }
+
+    @Test
+    public void plainJsonPatchShouldBeReadAsMergePatch() throws Exception {
+        given(bookPatchService.patchBook(eq(2L), any(JsonMergePatch.class), any())).willReturn(Optional.empty());
+
+        mockMvc.perform(patch("/api/books/2")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"title\":\"Game of Thrones\"}"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    public void typedBatchRequestShouldReturnGeneratedIds() throws Exception {
+
+        //given
+        given(bookBatchService.addBooks(anyList())).willReturn(Arrays.asList(51L, 52L));
+
+        //when
+        mockMvc.perform(post("/api/books/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("[{\"title\":\"Pinokio\"},{\"title\":\"Martian\"}]"))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$", hasSize(2)))
+                .andExpect(jsonPath("$[0]", is(51)))
+                .andExpect(jsonPath("$[1]", is(52)));
+
+        //then
+        verify(bookBatchService, times(1)).addBooks(anyList());
+        verifyZeroInteractions(bookService);
+    }
+
+    @Test
+    public void typedEmptyBatchRequestShouldReturnBadRequest() throws Exception {
+
+        mockMvc.perform(post("/api/books/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("[]"))
+                .andExpect(status().isBadRequest());
+
+        verifyZeroInteractions(bookBatchService);
+    }
+
+    @Test
+    public void batchPatchShouldReturnUpdatedCount() throws Exception {
+        given(bookBatchService.updateBooks(any(BookBulkUpdate.class))).willReturn(new BookBulkUpdateResult(2, 1));
+
+        mockMvc.perform(patch("/api/books/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"ids\":[1,2],\"changes\":{\"description\":\"Story\"}}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.updated", is(2)))
+                .andExpect(jsonPath("$.chunks", is(1)));
+    }
+
+    @Test
+    public void batchPatchWithoutFilterShouldReturnBadRequest() throws Exception {
+        mockMvc.perform(patch("/api/books/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"ids\":[],\"changes\":{\"description\":\"Story\"}}"))
+                .andExpect(status().isBadRequest());
+
+        verifyZeroInteractions(bookBatchService);
+    }
+
+    @Test
+    public void batchShelfMoveShouldReturnMovedCount() throws Exception {
+        given(bookBatchService.moveBooks(new BookShelfMove(null, 1L, 2L)))
+                .willReturn(Optional.of(new BookBulkUpdateResult(7, 1)));
+
+        mockMvc.perform(patch("/api/books/batch/shelf")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"fromShelfId\":1,\"toShelfId\":2}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.updated", is(7)));
+    }
+
+    @Test
+    public void batchShelfMoveToUnknownShelfShouldReturnNotFound() throws Exception {
+        given(bookBatchService.moveBooks(any(BookShelfMove.class))).willReturn(Optional.empty());
+
+        mockMvc.perform(patch("/api/books/batch/shelf")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"ids\":[1,2],\"toShelfId\":2}"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    public void batchShelfMoveWithoutTargetOrFilterShouldReturnBadRequest() throws Exception {
+        mockMvc.perform(patch("/api/books/batch/shelf")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"fromShelfId\":1}"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(patch("/api/books/batch/shelf")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"ids\":[],\"toShelfId\":2}"))
+                .andExpect(status().isBadRequest());
+
+        verifyZeroInteractions(bookBatchService);
+    }
+
     @Test
     public void typedPutRequestShouldUpdateExistingBook() throws Exception {
 
@@ -172,11 +456,11 @@ public class RestBookControllerTest {
         returnBook.setId(1L);
         returnBook.setTitle("Game of Throne - Fire and Ice");
 
-        given(bookService.saveOrUpdate(insertBook)).willReturn(returnBook);
+        returnBook.setVersion(2L);
 
-        //when
-        when(bookService.findBookById(1L)).thenReturn(Optional.of(returnBook));
+        given(bookUpdateService.replaceBook(eq(1L), eq(insertBook), any())).willReturn(Optional.of(returnBook));
 
+        //when
         MockHttpServletResponse response = mockMvc.perform(put("/api/books/1")
                 .contentType(MediaType.APPLICATION_JSON).content(jacksonTester
                         .write(insertBook).getJson()))
@@ -186,6 +470,19 @@ public class RestBookControllerTest {
         assertThat(response.getStatus()).isEqualTo(HttpStatus.OK.value());
         assertThat(response.getContentAsString())
                 .isEqualTo(jacksonTester.write(returnBook).getJson());
+        assertThat(response.getHeader(HttpHeaders.ETAG)).isEqualTo(ConditionalRequests.entityTag("book", 1L, 2L, null));
+    }
+
+    @Test
+    public void putWithStaleIfMatchShouldReturnPreconditionFailed() throws Exception {
+        given(bookUpdateService.replaceBook(eq(1L), any(Book.class), any()))
+                .willThrow(new PreconditionFailedException("stale"));
+
+        mockMvc.perform(put("/api/books/1")
+                .header(HttpHeaders.IF_MATCH, ConditionalRequests.entityTag("book", 1L, 1L, null))
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"title\":\"Game of Thrones\"}"))
+                .andExpect(status().isPreconditionFailed());
     }
 
     @Test
@@ -202,17 +499,34 @@ public class RestBookControllerTest {
     @Test
     public void shouldReturnBooksListByPartTitle() throws Exception {
 
-        given(bookService.findBookByTitle(anyString())).willReturn(Collections.singletonList(new Book(1L, "Powrót zwiadowcy","","")));
+        given(bookService.findBookByTitle(anyString(), anyInt())).willReturn(Collections.singletonList(bookView(1L, "Powrót zwiadowcy","","")));
 
         mockMvc.perform(get("/api/books/search?title=zwiad").contentType(MediaType.APPLICATION_JSON))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$[0].title", is("Powrót zwiadowcy")));
+
+        verify(bookService).findBookByTitle("zwiad", 50);
+    }
+
+    @Test
+    public void searchShouldPassLimitAndRejectOneOutOfRange() throws Exception {
+
+        given(bookService.findBookByTitle("zwiad", 5)).willReturn(Collections.emptyList());
+
+        mockMvc.perform(get("/api/books/search?title=zwiad&limit=5"))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/api/books/search?title=zwiad&limit=0"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/api/books/search?title=zwiad&limit=1001"))
+                .andExpect(status().isBadRequest());
+
+        verify(bookService, times(1)).findBookByTitle(anyString(), anyInt());
     }
 
     @Test
     public void shouldReturnEmptyList() throws Exception {
 
-        given(bookService.findBookByTitle(anyString())).willReturn(Collections.emptyList());
+        given(bookService.findBookByTitle(anyString(), anyInt())).willReturn(Collections.emptyList());
 
         mockMvc.perform(get("/api/books/search?title=zwiad").contentType(MediaType.APPLICATION_JSON))
                 .andExpect(status().isOk())
@@ -221,7 +535,7 @@ public class RestBookControllerTest {
 
     @Test
     public void shouldReturnBooksListByAuthorId() throws Exception {
-        Book book = new Book(1L, "Powrót zwiadowcy","","");
+        BookView book = bookView(1L, "Powrót zwiadowcy","","");
 
         given(bookService.findBooksByAuthorId(1L)).willReturn(Collections.singletonList(book));
 
@@ -232,13 +546,16 @@ public class RestBookControllerTest {
 
     @Test
     public void shouldReturnBooksListByAuthorName() throws Exception {
-        Book book = new Book(1L, "Powrót zwiadowcy","","");
+        BookView book = bookView(1L, "Powrót zwiadowcy","","");
 
-        given(authorService.findByLastName(anyString())).willReturn(Collections.singletonList(new Author(1L, "Andrzej", "Sapkowski")));
-        given(bookService.findBookByAuthors(anyList())).willReturn(Collections.singletonList(book));
+        given(bookService.findBooksByAuthorLastName("sapkowski")).willReturn(Collections.singletonList(book));
 
         mockMvc.perform(get("/api/books/author?name=sapkowski").contentType(MediaType.APPLICATION_JSON))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$[0].title", is("Powrót zwiadowcy")));
     }
-}
\ No newline at end of file
+
+    private static BookView bookView(Long id, String title, String isbn, String description) {
+        return new BookView(id, title, null, isbn, null, description, null, null);
+    }
+}
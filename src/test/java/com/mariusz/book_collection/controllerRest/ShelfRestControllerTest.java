@@ -1,7 +1,11 @@
 package com.mariusz.book_collection.controllerRest;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mariusz.book_collection.catalog.CatalogVersion;
+import com.mariusz.book_collection.entity.BookView;
 import com.mariusz.book_collection.entity.Shelf;
+import com.mariusz.book_collection.entity.ShelfBooksPage;
+import com.mariusz.book_collection.entity.ShelfView;
 import com.mariusz.book_collection.service.ShelfService;
 import org.hamcrest.Matchers;
 import org.junit.Before;
@@ -9,16 +13,20 @@ import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.MockitoJUnitRunner;
 import org.springframework.boot.test.json.JacksonTester;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.mock.web.MockHttpServletResponse;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 
+import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.Optional;
 
 import static org.assertj.core.api.Java6Assertions.assertThat;
@@ -38,6 +46,9 @@ public class ShelfRestControllerTest {
     @Mock
     private ShelfService shelfService;
 
+    @Spy
+    private CatalogVersion catalogVersion = new CatalogVersion();
+
     @InjectMocks
     private ShelfRestController shelfRestController;
 
@@ -70,6 +81,26 @@ public class ShelfRestControllerTest {
                 .isEqualToIgnoringCase(jacksonTester.write(shelf).getJson());
     }
 
+    @Test
+    public void matchingEntityTagShouldReturnNotModifiedShelf() throws Exception {
+        //given
+        Shelf shelf = new Shelf(1L,"Sypialnia");
+        shelf.setVersion(2L);
+        shelf.setUpdated(LocalDateTime.of(2018, 7, 1, 12, 0));
+        given(shelfService.findShelfById(1L)).willReturn(Optional.of(shelf));
+
+        //when
+        MockHttpServletResponse response = mockMvc
+                .perform(get("/api/shelfs/1")
+                        .header(HttpHeaders.IF_NONE_MATCH, ConditionalRequests.entityTag("shelf", 1L, shelf.getVersion())))
+                .andReturn()
+                .getResponse();
+
+        //then
+        assertThat(response.getStatus()).isEqualTo(HttpStatus.NOT_MODIFIED.value());
+        assertThat(response.getContentAsString()).isEmpty();
+    }
+
     @Test
     public void typedIncorrectIdShouldReturnStatusNotFound() throws Exception {
 
@@ -95,8 +126,8 @@ public class ShelfRestControllerTest {
     public void typedRequestShouldReturnAllShelfs() throws Exception {
 
         //given
-        Shelf shelf1 = new Shelf(1L,"Sypialnia 1");
-        Shelf shelf2 = new Shelf(2L,"Sypialnia 2");
+        ShelfView shelf1 = new ShelfView(1L,"Sypialnia 1", null, null);
+        ShelfView shelf2 = new ShelfView(2L,"Sypialnia 2", null, null);
 
         //when
         when(shelfService.getAllShelfs()).thenReturn(new ArrayList<>(Arrays.asList(shelf1, shelf2)));
@@ -127,4 +158,34 @@ public class ShelfRestControllerTest {
         verifyNoMoreInteractions(shelfService);
     }
 
-}
\ No newline at end of file
+    @Test
+    public void shelfBooksShouldReturnPageWithCount() throws Exception {
+        BookView book = new BookView(5L, "Pinokio", null, null, null, null, null, null);
+        given(shelfService.findShelfBooks(1L, 4L, 1))
+                .willReturn(Optional.of(new ShelfBooksPage(1L, 3L, Collections.singletonList(book), 5L)));
+
+        mockMvc.perform(get("/api/shelfs/1/books").param("after", "4").param("limit", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.bookCount", Matchers.is(3)))
+                .andExpect(jsonPath("$.books", hasSize(1)))
+                .andExpect(jsonPath("$.books[0].title", Matchers.is("Pinokio")))
+                .andExpect(jsonPath("$.nextCursor", Matchers.is(5)));
+    }
+
+    @Test
+    public void shelfBooksOfUnknownShelfShouldReturnNotFound() throws Exception {
+        given(shelfService.findShelfBooks(1L, null, Integer.parseInt(ShelfRestController.DEFAULT_PAGE_LIMIT)))
+                .willReturn(Optional.empty());
+
+        mockMvc.perform(get("/api/shelfs/1/books"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    public void shelfBooksWithTooBigLimitShouldReturnBadRequest() throws Exception {
+        mockMvc.perform(get("/api/shelfs/1/books").param("limit", String.valueOf(ShelfRestController.MAX_PAGE_LIMIT + 1)))
+                .andExpect(status().isBadRequest());
+
+        verifyZeroInteractions(shelfService);
+    }
+}
@@ -0,0 +1,120 @@
+package com.mariusz.book_collection.controllerRest;
+
+import com.mariusz.book_collection.catalog.CatalogVersion;
+import com.mariusz.book_collection.entity.CatalogStatisticsView;
+import com.mariusz.book_collection.entity.ConnectionHoldView;
+import com.mariusz.book_collection.entity.ConnectionHoldView.RequestHold;
+import com.mariusz.book_collection.service.CatalogStatisticsService;
+import com.mariusz.book_collection.service.ConnectionStatisticsService;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.time.LocalDate;
+import java.util.Collections;
+
+import static org.hamcrest.Matchers.is;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@RunWith(MockitoJUnitRunner.class)
+public class StatisticsRestControllerTest {
+
+    private MockMvc mockMvc;
+
+    @Mock
+    private CatalogStatisticsService catalogStatisticsService;
+
+    @Spy
+    private CatalogVersion catalogVersion = new CatalogVersion();
+
+    @Mock
+    private ConnectionStatisticsService connectionStatisticsService;
+
+    @InjectMocks
+    private StatisticsRestController statisticsRestController;
+
+    @Before
+    public void setup() {
+        mockMvc = MockMvcBuilders.standaloneSetup(statisticsRestController).build();
+    }
+
+    @Test
+    public void statisticsShouldReturnTotals() throws Exception {
+        given(catalogStatisticsService.getCatalogStatistics()).willReturn(new CatalogStatisticsView(3, 2, 1,
+                Collections.singletonMap(1L, 3L), Collections.singletonMap(10L, 2L),
+                Collections.singletonMap(LocalDate.of(2018, 7, 2), 3L)));
+
+        mockMvc.perform(get("/api/statistics"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.books", is(3)))
+                .andExpect(jsonPath("$.authors", is(2)))
+                .andExpect(jsonPath("$.booksPerAuthor.1", is(3)))
+                .andExpect(jsonPath("$.booksPerShelf.10", is(2)));
+    }
+
+    @Test
+    public void matchingCatalogTagShouldReturnNotModified() throws Exception {
+        given(catalogVersion.current()).willReturn(new CatalogVersion.Snapshot(4L, 0L));
+
+        mockMvc.perform(get("/api/statistics").header(HttpHeaders.IF_NONE_MATCH, "\"catalog-4\""))
+                .andExpect(status().isNotModified());
+
+        verifyZeroInteractions(catalogStatisticsService);
+    }
+
+    @Test
+    public void earlierCatalogChangeShouldReturnNotModifiedSinceItsDate() throws Exception {
+        long changed = 1_500_000_000_000L;
+        given(catalogVersion.current()).willReturn(new CatalogVersion.Snapshot(4L, changed));
+
+        mockMvc.perform(get("/api/statistics").header(HttpHeaders.IF_MODIFIED_SINCE, changed))
+                .andExpect(status().isNotModified());
+
+        verifyZeroInteractions(catalogStatisticsService);
+    }
+
+    @Test
+    public void catalogChangeInCurrentSecondShouldNotBeComparedByDate() throws Exception {
+        long changed = System.currentTimeMillis();
+        given(catalogVersion.current()).willReturn(new CatalogVersion.Snapshot(4L, changed));
+
+        mockMvc.perform(get("/api/statistics").header(HttpHeaders.IF_MODIFIED_SINCE, changed + 60_000))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist(HttpHeaders.LAST_MODIFIED))
+                .andExpect(header().string(HttpHeaders.ETAG, "\"catalog-4\""));
+    }
+
+    @Test
+    public void connectionsShouldReturnHoldTimePerRequest() throws Exception {
+        given(connectionStatisticsService.getConnectionHold()).willReturn(new ConnectionHoldView(5, 0, 2, 1.5, 4.0,
+                Collections.singletonMap("GET /api/books/{id}", new RequestHold(5, 5, 1.5, 4.0))));
+
+        mockMvc.perform(get("/api/statistics/connections"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.checkouts", is(5)))
+                .andExpect(jsonPath("$.maxInUse", is(2)))
+                .andExpect(jsonPath("$.requests['GET /api/books/{id}'].maxRequestHoldMillis", is(4.0)));
+    }
+
+    @Test
+    public void deleteConnectionsShouldResetHoldTime() throws Exception {
+        mockMvc.perform(delete("/api/statistics/connections"))
+                .andExpect(status().isNoContent());
+
+        verify(connectionStatisticsService).resetConnectionHold();
+    }
+}
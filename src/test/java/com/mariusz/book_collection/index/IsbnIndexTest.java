@@ -0,0 +1,61 @@
+package com.mariusz.book_collection.index;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.assertj.core.api.Java6Assertions.assertThat;
+
+public class IsbnIndexTest {
+
+    private IsbnIndex isbnIndex;
+
+    @Before
+    public void setUp() {
+        isbnIndex = new IsbnIndex();
+    }
+
+    @Test
+    public void indexedIsbnShouldReturnBookId() {
+        isbnIndex.put(1L, 9788376489117L);
+
+        assertThat(isbnIndex.findBookId(9788376489117L)).isEqualTo(1L);
+        assertThat(isbnIndex.findBookId(9780804429573L)).isEqualTo(IsbnIndex.NO_BOOK);
+    }
+
+    @Test
+    public void changedIsbnShouldReplaceOldOne() {
+        isbnIndex.put(1L, 9788376489117L);
+        isbnIndex.put(1L, 9780804429573L);
+
+        assertThat(isbnIndex.findBookId(9788376489117L)).isEqualTo(IsbnIndex.NO_BOOK);
+        assertThat(isbnIndex.findBookId(9780804429573L)).isEqualTo(1L);
+        assertThat(isbnIndex.size()).isEqualTo(1);
+    }
+
+    @Test
+    public void removedBookShouldNotBeFound() {
+        isbnIndex.put(1L, 9788376489117L);
+        isbnIndex.remove(1L);
+
+        assertThat(isbnIndex.findBookId(9788376489117L)).isEqualTo(IsbnIndex.NO_BOOK);
+    }
+
+    @Test
+    public void bookWithoutValidIsbnShouldBeRemovedFromIndex() {
+        isbnIndex.put(1L, 9788376489117L);
+        isbnIndex.put(1L, null);
+
+        assertThat(isbnIndex.findBookId(9788376489117L)).isEqualTo(IsbnIndex.NO_BOOK);
+        assertThat(isbnIndex.size()).isZero();
+    }
+
+    @Test
+    public void initialLoadShouldNotOverwriteNewerEntryOrTakenIsbn() {
+        isbnIndex.put(1L, 9780804429573L);
+
+        assertThat(isbnIndex.putIfAbsent(1L, 9788376489117L)).isFalse();
+        assertThat(isbnIndex.putIfAbsent(2L, 9780804429573L)).isFalse();
+        assertThat(isbnIndex.findBookId(9780804429573L)).isEqualTo(1L);
+        assertThat(isbnIndex.findBookId(9788376489117L)).isEqualTo(IsbnIndex.NO_BOOK);
+    }
+}
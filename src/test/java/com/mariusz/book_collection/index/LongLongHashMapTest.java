@@ -0,0 +1,59 @@
+package com.mariusz.book_collection.index;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Java6Assertions.assertThat;
+
+public class LongLongHashMapTest {
+
+    @Test
+    public void storedValueShouldBeReturnedAndMissingKeyShouldNot() {
+        LongLongHashMap map = new LongLongHashMap(4);
+
+        map.put(9788376489117L, 1L);
+        map.put(0L, 2L);
+
+        assertThat(map.get(9788376489117L)).isEqualTo(1L);
+        assertThat(map.get(0L)).isEqualTo(2L);
+        assertThat(map.get(1234567899L)).isEqualTo(LongLongHashMap.MISSING);
+        assertThat(map.size()).isEqualTo(2);
+    }
+
+    @Test
+    public void putShouldReplaceValueAndReturnPreviousOne() {
+        LongLongHashMap map = new LongLongHashMap(4);
+
+        assertThat(map.put(5L, 1L)).isEqualTo(LongLongHashMap.MISSING);
+        assertThat(map.put(5L, 2L)).isEqualTo(1L);
+        assertThat(map.get(5L)).isEqualTo(2L);
+        assertThat(map.size()).isEqualTo(1);
+    }
+
+    @Test
+    public void mapShouldBehaveLikeHashMapAfterManyPutsAndRemoves() {
+        LongLongHashMap map = new LongLongHashMap(4);
+        Map<Long, Long> expected = new HashMap<>();
+        Random random = new Random(42);
+
+        for (int i = 0; i < 50000; i++) {
+            long key = random.nextInt(5000);
+            if (random.nextInt(3) == 0) {
+                Long removed = expected.remove(key);
+                assertThat(map.remove(key)).isEqualTo(removed == null ? LongLongHashMap.MISSING : removed);
+            } else {
+                expected.put(key, (long) i);
+                map.put(key, i);
+            }
+        }
+
+        assertThat(map.size()).isEqualTo(expected.size());
+        for (long key = 0; key < 5000; key++) {
+            Long value = expected.get(key);
+            assertThat(map.get(key)).isEqualTo(value == null ? LongLongHashMap.MISSING : value);
+        }
+    }
+}
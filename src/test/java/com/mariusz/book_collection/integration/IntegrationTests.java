@@ -1,11 +1,23 @@
 package com.mariusz.book_collection.integration;
 
 import com.mariusz.book_collection.entity.Author;
+import com.mariusz.book_collection.entity.AuthorForm;
+import com.mariusz.book_collection.entity.AuthorSuggestion;
 import com.mariusz.book_collection.entity.Book;
+import com.mariusz.book_collection.entity.BookCursorPage;
+import com.mariusz.book_collection.entity.BookShelfMove;
+import com.mariusz.book_collection.entity.BookView;
+import com.mariusz.book_collection.entity.CacheRegionStatistics;
+import com.mariusz.book_collection.entity.CatalogStatisticsView;
 import com.mariusz.book_collection.entity.Shelf;
+import com.mariusz.book_collection.entity.ShelfBooksPage;
 import com.mariusz.book_collection.repository.AuthorRepository;
 import com.mariusz.book_collection.repository.BookRepository;
 import com.mariusz.book_collection.repository.ShelfRepository;
+import com.mariusz.book_collection.service.AuthorService;
+import com.mariusz.book_collection.service.BookBatchService;
+import com.mariusz.book_collection.service.BookUpdateService;
+import com.mariusz.book_collection.statistics.CatalogStatisticsSynchronizer;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -17,12 +29,35 @@ import org.springframework.core.ParameterizedTypeReference;
 import org.springframework.http.*;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.junit4.SpringRunner;
-
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.StreamUtils;
+import org.springframework.web.context.WebApplicationContext;
+import org.springframework.web.servlet.resource.ResourceUrlEncodingFilter;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPInputStream;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
+import static org.junit.Assert.fail;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @RunWith(SpringRunner.class)
 @SpringBootTest(webEnvironment = WebEnvironment.RANDOM_PORT)
@@ -41,6 +76,24 @@ public class IntegrationTests {
     @Autowired
     private AuthorRepository authorRepository;
 
+    @Autowired
+    private WebApplicationContext webApplicationContext;
+
+    @Autowired
+    private BookUpdateService bookUpdateService;
+
+    @Autowired
+    private AuthorService authorService;
+
+    @Autowired
+    private CatalogStatisticsSynchronizer catalogStatisticsSynchronizer;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private BookBatchService bookBatchService;
+
 @Before
 public void setUp(){
     bookRepository.deleteAll();
@@ -105,6 +158,52 @@ public void setUp(){
         bookRepository.deleteAll();
     }
 
+    @Test
+    public void getBooksWithLimit_willWalkThroughAllBooksWithCursor() {
+        Book book = new Book();
+        book.setTitle("Pinokio 2");
+        Book book2 = new Book();
+        book2.setTitle("80 days around the world.");
+        Book book3 = new Book();
+        book3.setTitle("Przygody Tomka");
+        bookRepository.saveAll(Arrays.asList(book, book2, book3));
+
+        ResponseEntity<BookCursorPage> firstPage = restTemplate
+                .getForEntity("/api/books?limit=2", BookCursorPage.class);
+        assertThat(firstPage.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(firstPage.getBody().getBooks()).extracting(BookView::getId).containsExactly(book.getId(), book2.getId());
+        assertThat(firstPage.getBody().getNextCursor()).isEqualTo(book2.getId());
+
+        ResponseEntity<BookCursorPage> lastPage = restTemplate
+                .getForEntity("/api/books?limit=2&after="+firstPage.getBody().getNextCursor(), BookCursorPage.class);
+        assertThat(lastPage.getBody().getBooks()).extracting(BookView::getId).containsExactly(book3.getId());
+        assertThat(lastPage.getBody().getNextCursor()).isNull();
+        bookRepository.deleteAll();
+    }
+
+    @Test
+    public void exportBooks_willReturnOneJsonLinePerBookWithAuthor() {
+        Author author = new Author("Andrzej","Sapkowski");
+        authorRepository.save(author);
+        Book book = new Book();
+        book.setTitle("Pinokio");
+        book.setAuthor(author);
+        Book book2 = new Book();
+        book2.setTitle("Przygody Tomka");
+        bookRepository.saveAll(Arrays.asList(book, book2));
+
+        ResponseEntity<String> response = restTemplate.getForEntity("/api/books/export", String.class);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(response.getHeaders().getContentType().toString()).startsWith("application/x-ndjson");
+        String[] lines = response.getBody().split("\n");
+        assertThat(lines).hasSize(2);
+        assertThat(lines[0]).contains("\"title\":\"Pinokio\"").contains("\"lastName\":\"Sapkowski\"");
+        assertThat(lines[1]).contains("\"title\":\"Przygody Tomka\"");
+        bookRepository.deleteAll();
+        authorRepository.deleteAll();
+    }
+
     @Test
     public void getBooksByAuthor_willReturnAllBooksWithSpecifiedAuthor() {
         Book book = new Book();
@@ -261,6 +360,67 @@ public void setUp(){
 
     }
 
+    @Test
+    public void searchBooks_willRankResultsAndFollowChangedTitle() {
+        Book book = new Book();
+        book.setTitle("Zwiadowcy. Wyprawa.");
+        bookRepository.save(book);
+
+        Book book1 = new Book();
+        book1.setTitle("Zwiad");
+        bookRepository.save(book1);
+
+        Book book2 = new Book();
+        book2.setTitle("Pinokio");
+        book2.setDescription("Nie był zwiadowcą");
+        bookRepository.save(book2);
+
+        ParameterizedTypeReference<List<Book>> bookList = new ParameterizedTypeReference<List<Book>>() {
+        };
+        ResponseEntity<List<Book>> response = restTemplate.exchange(
+                "/api/books/search?title=zwiad", HttpMethod.GET, null, bookList);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(response.getBody()).containsExactly(book1, book, book2);
+
+        book1.setTitle("Nowa nadzieja");
+        bookRepository.save(book1);
+
+        response = restTemplate.exchange("/api/books/search?title=zwiad&limit=1", HttpMethod.GET, null, bookList);
+        assertThat(response.getBody()).containsExactly(book);
+
+        response = restTemplate.exchange("/api/books/search?title=nadzieja", HttpMethod.GET, null, bookList);
+        assertThat(response.getBody()).containsExactly(book1);
+    }
+
+    @Test
+    public void getShelf_willReturnChangedDescriptionAndCountCacheHits() {
+        Shelf shelf = shelfRepository.save(new Shelf(null, "Salon"));
+
+        restTemplate.getForEntity("/api/shelfs/" + shelf.getId(), Shelf.class);
+        shelf.setDescription("Sypialnia");
+        shelfRepository.save(shelf);
+        ResponseEntity<Shelf> afterUpdate = restTemplate.getForEntity("/api/shelfs/" + shelf.getId(), Shelf.class);
+        restTemplate.getForEntity("/api/shelfs/" + shelf.getId(), Shelf.class);
+
+        assertThat(afterUpdate.getBody().getDescription()).isEqualTo("Sypialnia");
+
+        ResponseEntity<List<CacheRegionStatistics>> statistics = restTemplate.exchange(
+                "/api/cache/statistics",
+                HttpMethod.GET,
+                null,
+                new ParameterizedTypeReference<List<CacheRegionStatistics>>() {
+                });
+        assertThat(statistics.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(statistics.getBody()).extracting(CacheRegionStatistics::getRegion)
+                .contains(Author.class.getName(), Shelf.class.getName(), "query");
+        CacheRegionStatistics shelfStatistics = statistics.getBody().stream()
+                .filter(region -> region.getRegion().equals(Shelf.class.getName()))
+                .findFirst().get();
+        assertThat(shelfStatistics.getHits()).isGreaterThanOrEqualTo(1);
+        assertThat(shelfStatistics.getPuts()).isGreaterThanOrEqualTo(1);
+    }
+
     @Test
     public void getBooksByAuthorWithoutParameters_willReturnEnmptyList() {
         bookRepository.deleteAll();
@@ -329,7 +489,7 @@ public void setUp(){
         Shelf shelf = new Shelf();
         shelf.setDescription("Bedroom");
         shelfRepository.save(shelf);
-        ResponseEntity<Shelf> response = restTemplate.getForEntity("/api/shelfs/1", Shelf.class);
+        ResponseEntity<Shelf> response = restTemplate.getForEntity("/api/shelfs/" + shelf.getId(), Shelf.class);
 
         assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
         assertThat(response.getBody().getDescription()).isEqualToIgnoringCase("Bedroom");
@@ -356,6 +516,123 @@ public void setUp(){
     }
 
 
+    @Test
+    public void postBookBatch_willSaveAllBooksAndReturnTheirIds() {
+        Author author = new Author("Andrzej","Sapkowski");
+        authorRepository.save(author);
+
+        List<Book> books = new ArrayList<>();
+        for (int i = 0; i < 120; i++) {
+            Book book = new Book();
+            book.setTitle("Wiedźmin " + i);
+            book.setAuthor(author);
+            books.add(book);
+        }
+
+        ResponseEntity<List<Long>> response = restTemplate.exchange(
+                "/api/books/batch",
+                HttpMethod.POST,
+                new HttpEntity<>(books),
+                new ParameterizedTypeReference<List<Long>>() {
+                });
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.CREATED);
+        assertThat(response.getBody()).hasSize(120).doesNotContainNull();
+        Book last = bookRepository.findById(response.getBody().get(119)).orElse(new Book());
+        assertThat(last.getTitle()).isEqualTo("Wiedźmin 119");
+        assertThat(last.getAuthor().getLastName()).isEqualTo("Sapkowski");
+        assertThat(bookRepository.count()).isEqualTo(120);
+        bookRepository.deleteAll();
+        authorRepository.deleteAll();
+    }
+
+    @Test
+    public void addBooks_failingInLaterChunkWillSaveNoBook() {
+        List<Book> books = new ArrayList<>();
+        for (int i = 0; i < 120; i++) {
+            books.add(new Book(null, i == 110 ? null : "Wiedźmin " + i, null, null));
+        }
+
+        try {
+            bookBatchService.addBooks(books);
+            fail("book without title was saved");
+        } catch (RuntimeException e) {
+            assertThat(bookRepository.count()).isZero();
+        }
+    }
+
+    @Test
+    public void patchBatch_willUpdateBooksOfAuthorInChunksAndKeepSearchInSync() throws Exception {
+        //given
+        MockMvc mockMvc = MockMvcBuilders.webAppContextSetup(webApplicationContext).build();
+        Author sapkowski = authorRepository.save(new Author("Andrzej", "Sapkowski"));
+        Author flanagan = authorRepository.save(new Author("John", "Flanagan"));
+        List<Book> books = new ArrayList<>();
+        List<Book> others = new ArrayList<>();
+        for (int i = 0; i < 120; i++) {
+            Book book = new Book(null, "Wiedźmin " + i, null, "Saga");
+            book.setAuthor(sapkowski);
+            books.add(book);
+            Book other = new Book(null, "Zwiadowcy " + i, null, "Saga");
+            other.setAuthor(flanagan);
+            others.add(other);
+        }
+        for (int i = 0; i < 120; i++) {
+            bookRepository.save(books.get(i));
+            bookRepository.save(others.get(i));
+        }
+        Book other = others.get(0);
+        String update = "{\"authorId\":" + sapkowski.getAuthorId() + ",\"changes\":{\"description\":\"Saga o wiedźminie\"}}";
+
+        //when
+        mockMvc.perform(patch("/api/books/batch").contentType(MediaType.APPLICATION_JSON).content(update))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.updated").value(120))
+                .andExpect(jsonPath("$.chunks").value(3));
+        mockMvc.perform(patch("/api/books/batch").contentType(MediaType.APPLICATION_JSON).content(update))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.updated").value(0));
+        ResponseEntity<List<BookView>> found = restTemplate.exchange("/api/books/search?title=wiedzminie&limit=1000",
+                HttpMethod.GET, null, new ParameterizedTypeReference<List<BookView>>() {
+                });
+
+        //then
+        Book first = bookRepository.findById(books.get(0).getId()).get();
+        assertThat(first.getDescription()).isEqualTo("Saga o wiedźminie");
+        assertThat(first.getVersion()).isEqualTo(books.get(0).getVersion() + 1);
+        assertThat(bookRepository.findById(other.getId()).get().getDescription()).isEqualTo("Saga");
+        assertThat(found.getBody()).hasSize(120);
+        bookRepository.deleteAll();
+        authorRepository.deleteAll();
+    }
+
+    @Test
+    public void patchBatch_willUpdateGivenIdsAndRejectIsbn() throws Exception {
+        //given
+        MockMvc mockMvc = MockMvcBuilders.webAppContextSetup(webApplicationContext).build();
+        List<Book> books = bookRepository.saveAll(Arrays.asList(
+                new Book(null, "Pinokio", null, "Story"),
+                new Book(null, "Martian", null, "Story"),
+                new Book(null, "Hobbit", null, "Story")));
+        String ids = books.get(0).getId() + "," + books.get(2).getId();
+
+        //when
+        mockMvc.perform(patch("/api/books/batch").contentType(MediaType.APPLICATION_JSON)
+                .content("{\"ids\":[" + ids + "],\"changes\":{\"description\":null}}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.updated").value(2));
+        mockMvc.perform(patch("/api/books/batch").contentType(MediaType.APPLICATION_JSON)
+                .content("{\"ids\":[" + ids + "],\"changes\":{\"isbn\":\"9788376489117\"}}"))
+                .andExpect(status().isUnprocessableEntity());
+
+        //then
+        assertThat(bookRepository.findById(books.get(0).getId()).get().getDescription()).isNull();
+        assertThat(bookRepository.findById(books.get(1).getId()).get().getDescription()).isEqualTo("Story");
+        assertThat(bookRepository.findById(books.get(2).getId()).get().getDescription()).isNull();
+        assertThat(bookRepository.findById(books.get(2).getId()).get().getIsbn()).isNull();
+        bookRepository.deleteAll();
+    }
+
     @Test
     public void putBook_willUpdateExistingBook() {
         //given
@@ -381,6 +658,170 @@ public void setUp(){
         bookRepository.deleteAll();
     }
 
+    @Test
+    public void getBookById_withCurrentETagWillReturnNotModifiedUntilAuthorChanges() {
+        Author author = authorRepository.save(new Author("Andrzej", "Sapkowski"));
+        Book book = new Book();
+        book.setTitle("Wiedzmin");
+        book.setAuthor(author);
+        bookRepository.save(book);
+        ResponseEntity<Book> first = restTemplate.getForEntity("/api/books/" + book.getId(), Book.class);
+        HttpHeaders headers = new HttpHeaders();
+        headers.setIfNoneMatch(first.getHeaders().getETag());
+
+        ResponseEntity<Book> unchanged = restTemplate.exchange("/api/books/" + book.getId(),
+                HttpMethod.GET, new HttpEntity<>(headers), Book.class);
+        author.setFirstName("A.");
+        authorRepository.save(author);
+        ResponseEntity<Book> changed = restTemplate.exchange("/api/books/" + book.getId(),
+                HttpMethod.GET, new HttpEntity<>(headers), Book.class);
+
+        assertThat(first.getHeaders().getETag()).isNotNull();
+        assertThat(first.getHeaders().getLastModified()).isPositive();
+        assertThat(unchanged.getStatusCode()).isEqualTo(HttpStatus.NOT_MODIFIED);
+        assertThat(unchanged.getBody()).isNull();
+        assertThat(changed.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(changed.getBody().getAuthor().getFirstName()).isEqualTo("A.");
+        assertThat(changed.getHeaders().getETag()).isNotEqualTo(first.getHeaders().getETag());
+        bookRepository.deleteAll();
+    }
+
+    @Test
+    public void getBooks_withCurrentETagWillReturnNotModifiedUntilCatalogChanges() {
+        Book book = new Book();
+        book.setTitle("Pinokio");
+        bookRepository.save(book);
+        ResponseEntity<String> first = restTemplate.getForEntity("/api/books", String.class);
+        HttpHeaders headers = new HttpHeaders();
+        headers.setIfNoneMatch(first.getHeaders().getETag());
+
+        ResponseEntity<String> unchanged = restTemplate.exchange("/api/books", HttpMethod.GET,
+                new HttpEntity<>(headers), String.class);
+        shelfRepository.save(new Shelf(null, "Bedroom"));
+        ResponseEntity<String> changed = restTemplate.exchange("/api/books", HttpMethod.GET,
+                new HttpEntity<>(headers), String.class);
+
+        assertThat(unchanged.getStatusCode()).isEqualTo(HttpStatus.NOT_MODIFIED);
+        assertThat(changed.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(changed.getHeaders().getETag()).isNotEqualTo(first.getHeaders().getETag());
+        bookRepository.deleteAll();
+    }
+
+    @Test
+    public void patchBook_willSaveMergePatchAndRejectFailedJsonPatch() throws Exception {
+        //given
+        MockMvc mockMvc = MockMvcBuilders.webAppContextSetup(webApplicationContext).build();
+        Book book = bookRepository.save(new Book(null, "Game of Throne", "9788376489117", "Fire and Ice"));
+
+        //when
+        mockMvc.perform(patch("/api/books/" + book.getId())
+                .contentType("application/merge-patch+json")
+                .content("{\"title\":\"Game of Thrones\",\"description\":null}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.title").value("Game of Thrones"));
+        mockMvc.perform(patch("/api/books/" + book.getId())
+                .contentType("application/json-patch+json")
+                .content("[{\"op\":\"test\",\"path\":\"/title\",\"value\":\"Game of Throne\"},"
+                        + "{\"op\":\"replace\",\"path\":\"/isbn\",\"value\":\"978-0-8044-2957-3\"}]"))
+                .andExpect(status().isConflict());
+
+        //then
+        Book patched = bookRepository.findById(book.getId()).get();
+        assertThat(patched.getTitle()).isEqualTo("Game of Thrones");
+        assertThat(patched.getDescription()).isNull();
+        assertThat(patched.getIsbn13()).isEqualTo(9788376489117L);
+        bookRepository.deleteAll();
+    }
+
+    @Test
+    public void updateBook_withIsbnOfAnotherBookWillReturnConflict() throws Exception {
+        //given
+        MockMvc mockMvc = MockMvcBuilders.webAppContextSetup(webApplicationContext).build();
+        bookRepository.save(new Book(null, "Game of Throne", "9788376489117", null));
+        Book book = bookRepository.save(new Book(null, "A Clash of Kings", "9780804429573", null));
+
+        //when
+        ResponseEntity<Book> put = restTemplate.exchange("/api/books/" + book.getId(), HttpMethod.PUT,
+                new HttpEntity<>(new Book(null, "A Clash of Kings", "978-83-7648-911-7", null)), Book.class);
+        mockMvc.perform(patch("/api/books/" + book.getId())
+                .contentType("application/merge-patch+json")
+                .content("{\"isbn\":\"9788376489117\"}"))
+                .andExpect(status().isConflict());
+
+        //then
+        assertThat(put.getStatusCode()).isEqualTo(HttpStatus.CONFLICT);
+        assertThat(bookRepository.findById(book.getId()).get().getIsbn13()).isEqualTo(9780804429573L);
+        bookRepository.deleteAll();
+    }
+
+    @Test
+    public void createBook_withUnknownAuthorWillReturnBadRequest() {
+        //given
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+
+        //when
+        ResponseEntity<String> post = restTemplate.postForEntity("/api/books",
+                new HttpEntity<>("{\"title\":\"Game of Throne\",\"author\":{\"authorId\":987654}}", headers), String.class);
+
+        //then
+        assertThat(post.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+        assertThat(bookRepository.count()).isZero();
+    }
+
+    @Test
+    public void putBook_withStaleIfMatchWillReturnPreconditionFailed() {
+        //given
+        Book book = bookRepository.save(new Book(null, "Game of Throne", null, null));
+        String etag = restTemplate.getForEntity("/api/books/" + book.getId(), Book.class).getHeaders().getETag();
+        HttpHeaders headers = new HttpHeaders();
+        headers.setIfMatch(etag);
+
+        //when
+        ResponseEntity<Book> first = restTemplate.exchange("/api/books/" + book.getId(), HttpMethod.PUT,
+                new HttpEntity<>(new Book(null, "Game of Thrones", null, null), headers), Book.class);
+        ResponseEntity<Book> second = restTemplate.exchange("/api/books/" + book.getId(), HttpMethod.PUT,
+                new HttpEntity<>(new Book(null, "A Clash of Kings", null, null), headers), Book.class);
+
+        //then
+        assertThat(first.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(first.getHeaders().getETag()).isNotEqualTo(etag);
+        assertThat(second.getStatusCode()).isEqualTo(HttpStatus.PRECONDITION_FAILED);
+        Book saved = bookRepository.findById(book.getId()).get();
+        assertThat(saved.getTitle()).isEqualTo("Game of Thrones");
+        assertThat(saved.getVersion()).isEqualTo(book.getVersion() + 1);
+        bookRepository.deleteAll();
+    }
+
+    @Test
+    public void updateBook_losingToConcurrentUpdateWillBeAppliedAgainWithoutLosingIt() {
+        //given
+        Book book = bookRepository.save(new Book(null, "Zwiadowcy", null, "Ruiny Gorlanu"));
+        TransactionTemplate concurrentWriter = new TransactionTemplate(transactionManager);
+        concurrentWriter.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        AtomicInteger attempts = new AtomicInteger();
+
+        //when
+        Book updated = bookUpdateService.updateBook(book.getId(), current -> true, current -> {
+            if (attempts.incrementAndGet() == 1) {
+                concurrentWriter.execute(status -> {
+                    Book concurrent = bookRepository.findById(book.getId()).get();
+                    concurrent.setTitle("Zwiadowcy 1");
+                    return concurrent;
+                });
+            }
+            current.setDescription(current.getDescription() + ", Płonący most");
+        }).get();
+
+        //then
+        Book saved = bookRepository.findById(book.getId()).get();
+        assertThat(attempts.get()).isEqualTo(2);
+        assertThat(updated.getVersion()).isEqualTo(book.getVersion() + 2);
+        assertThat(saved.getTitle()).isEqualTo("Zwiadowcy 1");
+        assertThat(saved.getDescription()).isEqualTo("Ruiny Gorlanu, Płonący most");
+        bookRepository.deleteAll();
+    }
+
     @Test
     public void getShelfs_willReturnAllShelfs() {
         Shelf shelf1 = new Shelf();
@@ -429,6 +870,25 @@ public void setUp(){
         bookRepository.deleteAll();
     }
 
+    @Test
+    public void getBookByIsbn_willFollowChangedIsbn() {
+        Book book = new Book();
+        book.setTitle("Pinokio");
+        book.setIsbn("978-83-7648-911-7");
+        bookRepository.save(book);
+
+        book.setIsbn("0-8044-2957-X");
+        bookRepository.save(book);
+
+        ResponseEntity<Book> oldIsbn = restTemplate.getForEntity("/api/books/book?isbn=9788376489117", Book.class);
+        ResponseEntity<Book> newIsbn = restTemplate.getForEntity("/api/books/book?isbn=978-0-8044-2957-3", Book.class);
+
+        assertThat(oldIsbn.getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND);
+        assertThat(newIsbn.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(newIsbn.getBody().getId()).isEqualTo(book.getId());
+        bookRepository.deleteAll();
+    }
+
     @Test
     public void getBookByIsbn_willgetStatusNotFound() {
         ResponseEntity<Book> response = restTemplate.getForEntity("/api/books/book?isbn=12-23-12", Book.class);
@@ -489,4 +949,304 @@ public void setUp(){
         assertThat(response.getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND);
 
     }
+
+    @Test
+    public void suggestAuthors_willReturnAuthorAddedByService() {
+        AuthorForm form = new AuthorForm();
+        form.setFirstName("Stanisław");
+        form.setLastName("Lem");
+        Author author = authorService.addNewAuthor(form);
+
+        ResponseEntity<List<AuthorSuggestion>> response = restTemplate.exchange("/api/authors/suggest?prefix=stanislaw", HttpMethod.GET, null,
+                new ParameterizedTypeReference<List<AuthorSuggestion>>() {
+                });
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(response.getBody()).containsExactly(new AuthorSuggestion(author.getAuthorId(), "Stanisław", "Lem"));
+
+        authorRepository.delete(author);
+        assertThat(authorService.suggestAuthors("lem", 10)).isEmpty();
+    }
+
+    @Test
+    public void getShelfBooks_willPageOnlyBooksOfShelf() {
+        Shelf salon = shelfRepository.save(new Shelf(null, "Salon"));
+        Shelf bedroom = shelfRepository.save(new Shelf(null, "Sypialnia"));
+        List<Book> books = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            Book book = new Book(null, "Zwiadowcy " + i, null, null);
+            book.setShelf(i < 3 ? salon : bedroom);
+            books.add(book);
+        }
+        bookRepository.saveAll(books);
+
+        ShelfBooksPage first = restTemplate.getForObject("/api/shelfs/" + salon.getId() + "/books?limit=2", ShelfBooksPage.class);
+        ShelfBooksPage second = restTemplate.getForObject("/api/shelfs/" + salon.getId() + "/books?limit=2&after="
+                + first.getNextCursor(), ShelfBooksPage.class);
+
+        assertThat(first.getBookCount()).isEqualTo(3);
+        assertThat(first.getBooks()).extracting(BookView::getTitle).containsExactly("Zwiadowcy 0", "Zwiadowcy 1");
+        assertThat(second.getBooks()).extracting(BookView::getTitle).containsExactly("Zwiadowcy 2");
+        assertThat(second.getNextCursor()).isNull();
+        assertThat(restTemplate.getForEntity("/api/shelfs/" + (bedroom.getId() + 100) + "/books", String.class)
+                .getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND);
+    }
+
+    @Test
+    public void patchBatchShelf_willMoveWholeShelfInChunksAndKeepCountsCurrent() throws Exception {
+        //given
+        MockMvc mockMvc = MockMvcBuilders.webAppContextSetup(webApplicationContext).build();
+        Shelf salon = shelfRepository.save(new Shelf(null, "Salon"));
+        Shelf bedroom = shelfRepository.save(new Shelf(null, "Sypialnia"));
+        List<Book> books = new ArrayList<>();
+        for (int i = 0; i < 120; i++) {
+            Book book = new Book(null, "Wiedźmin " + i, null, null);
+            book.setShelf(salon);
+            books.add(book);
+        }
+        Book other = new Book(null, "Zwiadowcy", null, null);
+        books.add(other);
+        bookRepository.saveAll(books);
+        String salonUrl = "/api/shelfs/" + salon.getId() + "/books";
+        String etag = restTemplate.getForEntity(salonUrl, String.class).getHeaders().getETag();
+        String move = "{\"fromShelfId\":" + salon.getId() + ",\"toShelfId\":" + bedroom.getId() + "}";
+
+        //when
+        mockMvc.perform(patch("/api/books/batch/shelf").contentType(MediaType.APPLICATION_JSON).content(move))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.updated").value(120))
+                .andExpect(jsonPath("$.chunks").value(3));
+        mockMvc.perform(patch("/api/books/batch/shelf").contentType(MediaType.APPLICATION_JSON)
+                .content("{\"ids\":[" + other.getId() + "," + books.get(0).getId() + "],\"toShelfId\":" + bedroom.getId() + "}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.updated").value(1));
+        HttpHeaders headers = new HttpHeaders();
+        headers.setIfNoneMatch(etag);
+        ResponseEntity<ShelfBooksPage> salonBooks = restTemplate.exchange(salonUrl, HttpMethod.GET,
+                new HttpEntity<>(headers), ShelfBooksPage.class);
+
+        //then
+        assertThat(salonBooks.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(salonBooks.getBody().getBookCount()).isZero();
+        assertThat(restTemplate.getForObject("/api/shelfs/" + bedroom.getId() + "/books", ShelfBooksPage.class)
+                .getBookCount()).isEqualTo(121);
+        assertThat(bookRepository.findById(books.get(0).getId()).get().getVersion())
+                .isEqualTo(books.get(0).getVersion() + 1);
+        mockMvc.perform(patch("/api/books/batch/shelf").contentType(MediaType.APPLICATION_JSON)
+                .content("{\"fromShelfId\":" + salon.getId() + ",\"toShelfId\":" + (bedroom.getId() + 100) + "}"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    public void moveBooks_concurrentWithShelfChangeWillMoveCountsOfMovedRowsOnly() throws Exception {
+        //given
+        Shelf salon = shelfRepository.save(new Shelf(null, "Salon"));
+        Shelf bedroom = shelfRepository.save(new Shelf(null, "Sypialnia"));
+        Shelf attic = shelfRepository.save(new Shelf(null, "Strych"));
+        Book lent = new Book(null, "Wiedźmin", null, null);
+        lent.setShelf(salon);
+        Book other = new Book(null, "Zwiadowcy", null, null);
+        other.setShelf(salon);
+        bookRepository.saveAll(Arrays.asList(lent, other));
+        CountDownLatch locked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Thread writer = new Thread(() -> new TransactionTemplate(transactionManager).execute(status -> {
+            Book book = bookRepository.findById(lent.getId()).get();
+            book.setShelf(attic);
+            bookRepository.saveAndFlush(book);
+            locked.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return null;
+        }));
+        writer.start();
+        locked.await();
+
+        //when
+        Thread mover = new Thread(() -> bookBatchService.moveBooks(new BookShelfMove(null, salon.getId(), bedroom.getId())));
+        mover.start();
+        Thread.sleep(200);
+        release.countDown();
+        writer.join();
+        mover.join();
+
+        //then
+        CatalogStatisticsView statistics = restTemplate.getForObject("/api/statistics", CatalogStatisticsView.class);
+        List<Book> books = bookRepository.findAll();
+        for (Shelf shelf : Arrays.asList(salon, bedroom, attic)) {
+            long onShelf = books.stream().filter(book -> shelf.getId().equals(book.getShelf().getId())).count();
+            assertThat(statistics.getBooksPerShelf().getOrDefault(shelf.getId(), 0L)).isEqualTo(onShelf);
+        }
+        assertThat(catalogStatisticsSynchronizer.reconcile()).isTrue();
+        assertThat(restTemplate.getForObject("/api/statistics", CatalogStatisticsView.class)).isEqualTo(statistics);
+    }
+
+    @Test
+    public void getStatistics_willFollowWritesAndMatchRebuild() throws Exception {
+        //given
+        MockMvc mockMvc = MockMvcBuilders.webAppContextSetup(webApplicationContext).build();
+        Author sapkowski = authorRepository.save(new Author("Andrzej", "Sapkowski"));
+        authorRepository.save(new Author("John", "Flanagan"));
+        Shelf salon = shelfRepository.save(new Shelf(null, "Salon"));
+        Shelf bedroom = shelfRepository.save(new Shelf(null, "Sypialnia"));
+        List<Book> books = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            Book book = new Book(null, "Wiedźmin " + i, null, null);
+            book.setAuthor(sapkowski);
+            book.setShelf(salon);
+            books.add(book);
+        }
+        books.add(new Book(null, "Pinokio", null, null));
+        bookRepository.saveAll(books);
+        bookRepository.delete(books.get(2));
+
+        //when
+        mockMvc.perform(patch("/api/books/batch/shelf").contentType(MediaType.APPLICATION_JSON)
+                .content("{\"ids\":[" + books.get(0).getId() + "],\"toShelfId\":" + bedroom.getId() + "}"))
+                .andExpect(status().isOk());
+        CatalogStatisticsView statistics = restTemplate.getForObject("/api/statistics", CatalogStatisticsView.class);
+
+        //then
+        assertThat(statistics.getBooks()).isEqualTo(3);
+        assertThat(statistics.getAuthors()).isEqualTo(2);
+        assertThat(statistics.getShelves()).isEqualTo(2);
+        assertThat(statistics.getBooksPerAuthor()).containsOnly(entry(sapkowski.getAuthorId(), 2L));
+        assertThat(statistics.getBooksPerShelf()).containsOnly(entry(salon.getId(), 1L), entry(bedroom.getId(), 1L));
+        assertThat(statistics.getBooksAddedPerDay()).containsOnly(entry(books.get(0).getCreated().toLocalDate(), 3L));
+        assertThat(catalogStatisticsSynchronizer.reconcile()).isTrue();
+        assertThat(restTemplate.getForObject("/api/statistics", CatalogStatisticsView.class)).isEqualTo(statistics);
+    }
+
+    @Test
+    public void streamBooksV2_willReturnAllBooksInIdOrderAcrossPages() {
+        //given
+        List<Book> books = new ArrayList<>();
+        for (int i = 0; i < 1200; i++) {
+            books.add(new Book(null, "Tom " + i, null, null));
+        }
+        bookRepository.saveAll(books);
+
+        //when
+        ResponseEntity<String> response = restTemplate.getForEntity("/api/v2/books", String.class);
+
+        //then
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(response.getHeaders().getContentType().toString()).startsWith("application/x-ndjson");
+        String[] lines = response.getBody().split("\n");
+        assertThat(lines).hasSize(1200);
+        assertThat(lines[0]).contains("\"id\":" + books.get(0).getId()).contains("\"title\":\"Tom 0\"");
+        assertThat(lines[1199]).contains("\"id\":" + books.get(1199).getId()).contains("\"title\":\"Tom 1199\"");
+        bookRepository.deleteAll();
+    }
+
+    @Test
+    public void getBookV2_willReturnBookOrNotFound() {
+        Book book = bookRepository.save(new Book(null, "Pinokio", null, null));
+
+        ResponseEntity<Book> found = restTemplate.getForEntity("/api/v2/books/" + book.getId(), Book.class);
+        ResponseEntity<Book> missing = restTemplate.getForEntity("/api/v2/books/" + (book.getId() + 1000), Book.class);
+
+        assertThat(found.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(found.getBody().getTitle()).isEqualTo("Pinokio");
+        assertThat(missing.getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND);
+        bookRepository.deleteAll();
+    }
+
+    @Test
+    public void getShelfBooksV2_withTooLargeLimitWillReturnBadRequest() {
+        Shelf shelf = shelfRepository.save(new Shelf(null, "Salon"));
+
+        ResponseEntity<String> response = restTemplate.getForEntity("/api/v2/shelfs/" + shelf.getId() + "/books?limit=1001", String.class);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+        shelfRepository.deleteAll();
+    }
+
+    @Test
+    public void bookListView_willRenderRequestedPageSortedByTitle() {
+        //given
+        bookRepository.saveAll(Arrays.asList(new Book(null, "Wiedźmin", null, null),
+                new Book(null, "Pinokio", null, null), new Book(null, "Zwiadowcy", null, null)));
+
+        //when
+        String firstPage = restTemplate.getForObject("/books/bookList?size=2&sort=title", String.class);
+        String lastPage = restTemplate.getForObject("/books/bookList?size=2&sort=title&page=1", String.class);
+
+        //then
+        assertThat(firstPage).contains("Pinokio").contains("Wiedźmin").doesNotContain("Zwiadowcy")
+                .contains("Page 1 of 2 (3)").contains("page=1");
+        assertThat(firstPage.indexOf("Pinokio")).isLessThan(firstPage.indexOf("Wiedźmin"));
+        assertThat(lastPage).contains("Zwiadowcy").doesNotContain("Pinokio").contains("Page 2 of 2 (3)");
+        bookRepository.deleteAll();
+    }
+
+    @Test
+    public void authorListView_withUnknownSortWillSortByIdDescending() {
+        //given
+        authorRepository.saveAll(Arrays.asList(new Author("Jan", "Kowalski"), new Author("Paweł", "Nowak")));
+
+        //when
+        String page = restTemplate.getForObject("/authors/authorList?sort=created&dir=desc", String.class);
+
+        //then
+        assertThat(page.indexOf("Nowak")).isLessThan(page.indexOf("Kowalski"));
+        assertThat(page).contains("Page 1 of 1 (2)");
+        authorRepository.deleteAll();
+    }
+
+    @Test
+    public void stylesheet_isLinkedByContentHashAndServedGzippedAsImmutable() throws Exception {
+        //given
+        String page = restTemplate.getForObject("/books/bookList", String.class);
+        Matcher link = Pattern.compile("/css/style-[0-9a-f]{32}\\.css").matcher(page);
+        assertThat(link.find()).isTrue();
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(HttpHeaders.ACCEPT_ENCODING, "gzip");
+
+        //when
+        ResponseEntity<byte[]> versioned = restTemplate.exchange(link.group(), HttpMethod.GET, new HttpEntity<>(headers), byte[].class);
+        ResponseEntity<byte[]> plain = restTemplate.getForEntity("/css/style.css", byte[].class);
+
+        //then
+        assertThat(versioned.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(versioned.getHeaders().getCacheControl()).contains("immutable");
+        assertThat(versioned.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING)).isEqualTo("gzip");
+        String css = StreamUtils.copyToString(new GZIPInputStream(new ByteArrayInputStream(versioned.getBody())), StandardCharsets.UTF_8);
+        assertThat(css).isEqualTo(new String(plain.getBody(), StandardCharsets.UTF_8)).doesNotContain("/*").doesNotContain("\n");
+        assertThat(plain.getHeaders().getCacheControl()).isEqualTo("no-cache");
+        assertThat(plain.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING)).isNull();
+    }
+
+    @Test
+    public void stylesheet_withMockMvcWillSendEncodingVaryAndCacheHeaders() throws Exception {
+        //given
+        MockMvc mockMvc = MockMvcBuilders.webAppContextSetup(webApplicationContext)
+                .addFilters(webApplicationContext.getBean(ResourceUrlEncodingFilter.class))
+                .build();
+        String page = mockMvc.perform(get("/books/bookList"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        Matcher link = Pattern.compile("href=\"(/css/style-[0-9a-f]{32}\\.css)\"").matcher(page);
+        assertThat(link.find()).isTrue();
+
+        //then
+        mockMvc.perform(get(link.group(1)).header(HttpHeaders.ACCEPT_ENCODING, "gzip, deflate"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CONTENT_ENCODING, "gzip"))
+                .andExpect(header().string(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING))
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "public, max-age=31536000, immutable"))
+                .andExpect(header().exists(HttpHeaders.ETAG));
+        mockMvc.perform(get(link.group(1)).header(HttpHeaders.ACCEPT_ENCODING, "gzip;q=0, deflate"))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist(HttpHeaders.CONTENT_ENCODING))
+                .andExpect(header().string(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING));
+        mockMvc.perform(get("/css/style.css").header(HttpHeaders.ACCEPT_ENCODING, "gzip"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CONTENT_ENCODING, "gzip"))
+                .andExpect(header().string(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING))
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "no-cache"));
+    }
 }
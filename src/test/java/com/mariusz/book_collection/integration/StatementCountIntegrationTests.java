@@ -0,0 +1,360 @@
+package com.mariusz.book_collection.integration;
+
+import com.mariusz.book_collection.catalog.RenderedPageCache;
+import com.mariusz.book_collection.entity.Author;
+import com.mariusz.book_collection.entity.Book;
+import com.mariusz.book_collection.entity.ConnectionHoldView;
+import com.mariusz.book_collection.entity.Shelf;
+import com.mariusz.book_collection.repository.AuthorRepository;
+import com.mariusz.book_collection.repository.BookRepository;
+import com.mariusz.book_collection.repository.ShelfRepository;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/***
+ * Number of SQL statements run by each read endpoint, with books of several authors in the database.
+ * A list that loads authors one by one fails here before it gets slow in production.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(webEnvironment = WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("test")
+public class StatementCountIntegrationTests {
+
+    private static final int AUTHORS = 3;
+    private static final int BOOKS_PER_AUTHOR = 2;
+
+    @Autowired
+    private TestRestTemplate restTemplate;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private AuthorRepository authorRepository;
+
+    @Autowired
+    private ShelfRepository shelfRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private WebApplicationContext webApplicationContext;
+
+    @Autowired
+    private RenderedPageCache renderedPageCache;
+
+    private Statistics statistics;
+    private List<Book> books;
+    private Author author;
+
+    @Before
+    public void setUp() {
+        bookRepository.deleteAll();
+        authorRepository.deleteAll();
+        shelfRepository.deleteAll();
+
+        books = new ArrayList<>();
+        for (int i = 0; i < AUTHORS; i++) {
+            Author bookAuthor = authorRepository.save(new Author("Jan", "Kowalski" + i));
+            for (int j = 0; j < BOOKS_PER_AUTHOR; j++) {
+                Book book = new Book();
+                book.setTitle("Zwiadowcy " + i + "." + j);
+                book.setAuthor(bookAuthor);
+                books.add(book);
+            }
+        }
+        books.get(0).setIsbn("9788376489117");
+        bookRepository.saveAll(books);
+        author = books.get(0).getAuthor();
+
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        assertThat(statistics.isStatisticsEnabled()).isTrue();
+    }
+
+    @Test
+    public void getAllBooks_runsOneStatement() {
+        assertStatements("/api/books", 1);
+    }
+
+    @Test
+    public void getBooksPage_runsOneStatement() {
+        assertStatements("/api/books?limit=4", 1);
+    }
+
+    @Test
+    public void getBook_runsOneStatement() {
+        assertStatements("/api/books/" + books.get(0).getId(), 1);
+    }
+
+    @Test
+    public void getBook_notModifiedRunsOneStatementWithoutLoadingBook() {
+        String url = "/api/books/" + books.get(0).getId();
+        String etag = restTemplate.getForEntity(url, String.class).getHeaders().getETag();
+        HttpHeaders headers = new HttpHeaders();
+        headers.setIfNoneMatch(etag);
+        statistics.clear();
+
+        ResponseEntity<String> response = restTemplate.exchange(url, HttpMethod.GET, new HttpEntity<>(headers), String.class);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.NOT_MODIFIED);
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+        assertThat(statistics.getEntityLoadCount()).isZero();
+    }
+
+    @Test
+    public void patchBook_runsUpdateOnlyWhenValueChanged() throws Exception {
+        MockMvc mockMvc = MockMvcBuilders.webAppContextSetup(webApplicationContext).build();
+        String url = "/api/books/" + books.get(0).getId();
+
+        statistics.clear();
+        mockMvc.perform(patch(url).contentType("application/merge-patch+json").content("{\"title\":\"Zwiadowcy 0.0\"}"))
+                .andExpect(status().isOk());
+        assertThat(statistics.getEntityUpdateCount()).isZero();
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+
+        statistics.clear();
+        mockMvc.perform(patch(url).contentType("application/merge-patch+json").content("{\"title\":\"Ruiny Gorlanu\"}"))
+                .andExpect(status().isOk());
+        assertThat(statistics.getEntityUpdateCount()).isEqualTo(1);
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(2);
+    }
+
+    @Test
+    public void getAllBooks_notModifiedRunsNoStatement() {
+        String etag = restTemplate.getForEntity("/api/books", String.class).getHeaders().getETag();
+        HttpHeaders headers = new HttpHeaders();
+        headers.setIfNoneMatch(etag);
+        statistics.clear();
+
+        ResponseEntity<String> response = restTemplate.exchange("/api/books", HttpMethod.GET, new HttpEntity<>(headers), String.class);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.NOT_MODIFIED);
+        assertThat(statistics.getPrepareStatementCount()).isZero();
+    }
+
+    @Test
+    public void getStatistics_runsNoStatement() {
+        assertStatements("/api/statistics", 0);
+    }
+
+    @Test
+    public void getBookByIsbn_runsOneStatement() {
+        assertStatements("/api/books/book?isbn=9788376489117", 1);
+    }
+
+    @Test
+    public void searchBooks_runsOneStatement() {
+        assertStatements("/api/books/search?title=zwiadowcy", 1);
+    }
+
+    @Test
+    public void getBooksByAuthorId_runsOneStatement() {
+        assertStatements("/api/books/author?authorId=" + author.getAuthorId(), 1);
+    }
+
+    @Test
+    public void getBooksByAuthorName_runsOneStatement() {
+        assertStatements("/api/books/author?name=" + author.getLastName(), 1);
+    }
+
+    @Test
+    public void exportBooks_runsOneStatement() {
+        assertStatements("/api/books/export", 1);
+    }
+
+    @Test
+    public void bookListView_runsOneStatement() {
+        assertStatements("/books/bookList", 1);
+    }
+
+    @Test
+    public void bookListView_runsCountOnlyForFullPage() {
+        assertStatements("/books/bookList?size=4", 2);
+        assertStatements("/books/bookList?size=4&page=1", 1);
+    }
+
+    @Test
+    public void bookListView_secondTimeRunsNoStatementFromRenderedPageCache() {
+        String url = "/books/bookList?sort=title";
+        String rendered = restTemplate.getForObject(url, String.class);
+
+        assertStatements(url, 0);
+        assertThat(restTemplate.getForObject(url, String.class)).isEqualTo(rendered);
+    }
+
+    @Test
+    public void bookDetailsView_afterBookChangedRunsStatementAgain() {
+        String url = "/books/" + books.get(0).getId();
+        assertStatements(url, 1);
+        assertStatements(url, 0);
+
+        books.get(0).setTitle("Ruiny Gorlanu");
+        bookRepository.save(books.get(0));
+
+        assertStatements(url, 1);
+        assertThat(restTemplate.getForObject(url, String.class)).contains("Ruiny Gorlanu");
+    }
+
+    @Test
+    public void getShelfAndAuthor_secondTimeRunNoStatementFromSecondLevelCache() {
+        Shelf shelf = shelfRepository.save(new Shelf(null, "Salon"));
+        entityManagerFactory.getCache().evictAll();
+
+        assertStatements("/api/shelfs/" + shelf.getId(), 1);
+        assertStatements("/api/shelfs/" + shelf.getId(), 0);
+        assertThat(statistics.getSecondLevelCacheHitCount()).isEqualTo(1);
+        assertStatements("/api/authors/" + author.getAuthorId(), 1);
+        assertStatements("/api/authors/" + author.getAuthorId(), 0);
+    }
+
+    @Test
+    public void getShelfBooks_runsOneStatementForBooksAndOneForCount() {
+        Shelf shelf = shelfRepository.save(new Shelf(null, "Salon"));
+        books.get(0).setShelf(shelf);
+        bookRepository.save(books.get(0));
+
+        assertStatements("/api/shelfs/" + shelf.getId() + "/books", 2);
+    }
+
+    @Test
+    public void shelfByDescription_secondTimeRunsNoStatementFromQueryCache() {
+        shelfRepository.save(new Shelf(null, "Sypialnia"));
+        shelfRepository.findByDescription("Sypialnia");
+        statistics.clear();
+
+        assertThat(shelfRepository.findByDescription("Sypialnia")).isPresent();
+
+        assertThat(statistics.getPrepareStatementCount()).isZero();
+        assertThat(statistics.getQueryCacheHitCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void shelfByDescription_afterShelfWriteRunsStatementAgain() {
+        Shelf shelf = shelfRepository.save(new Shelf(null, "Sypialnia"));
+        shelfRepository.findByDescription("Sypialnia");
+        shelf.setDescription("Sypialnia 2");
+        shelfRepository.save(shelf);
+        statistics.clear();
+
+        assertThat(shelfRepository.findByDescription("Sypialnia")).isNotPresent();
+        assertThat(shelfRepository.findByDescription("Sypialnia 2")).isPresent();
+
+        assertThat(statistics.getQueryCacheHitCount()).isZero();
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(2);
+    }
+
+    @Test
+    public void bookDetailsView_notModifiedRunsOneStatementWithoutLoadingBook() {
+        String url = "/books/" + books.get(0).getId();
+        String etag = restTemplate.getForEntity(url, String.class).getHeaders().getETag();
+        renderedPageCache.clear();
+
+        assertNotModified(url, etag, 1);
+        assertThat(statistics.getEntityLoadCount()).isZero();
+    }
+
+    @Test
+    public void authorDetailsView_notModifiedRunsNoStatementFromSecondLevelCache() {
+        String url = "/authors/" + author.getAuthorId();
+        restTemplate.getForEntity(url, String.class);
+        String etag = restTemplate.getForEntity(url, String.class).getHeaders().getETag();
+        renderedPageCache.clear();
+
+        assertNotModified(url, etag, 0);
+    }
+
+    @Test
+    public void bookListView_notModifiedFromRenderedPageCacheRunsNoStatement() {
+        String url = "/books/bookList?sort=isbn";
+        String etag = restTemplate.getForEntity(url, String.class).getHeaders().getETag();
+
+        assertNotModified(url, etag, 0);
+    }
+
+    @Test
+    public void bookDetailsView_afterShelfChangedReturnsNewPage() {
+        Shelf shelf = shelfRepository.save(new Shelf(null, "Salon"));
+        books.get(0).setShelf(shelf);
+        bookRepository.save(books.get(0));
+        String url = "/books/" + books.get(0).getId();
+        String etag = restTemplate.getForEntity(url, String.class).getHeaders().getETag();
+
+        shelf.setDescription("Sypialnia");
+        shelfRepository.save(shelf);
+        HttpHeaders headers = new HttpHeaders();
+        headers.setIfNoneMatch(etag);
+        ResponseEntity<String> response = restTemplate.exchange(url, HttpMethod.GET, new HttpEntity<>(headers), String.class);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(response.getHeaders().getETag()).isNotEqualTo(etag);
+        assertThat(response.getBody()).contains("Sypialnia");
+    }
+
+    @Test
+    public void getBook_holdsOneConnectionPerRequestAndGivesItBack() {
+        String url = "/api/books/" + books.get(0).getId();
+        restTemplate.delete("/api/statistics/connections");
+
+        restTemplate.getForEntity(url, String.class);
+        restTemplate.getForEntity(url, String.class);
+        ConnectionHoldView connections = restTemplate.getForObject("/api/statistics/connections", ConnectionHoldView.class);
+
+        ConnectionHoldView.RequestHold getBook = connections.getRequests().get("GET /api/books/{id}");
+        assertThat(getBook.getRequests()).isEqualTo(2);
+        assertThat(getBook.getCheckouts()).isEqualTo(2);
+        assertThat(connections.getInUse()).isZero();
+    }
+
+    private void assertNotModified(String url, String etag, long expectedStatements) {
+        assertThat(etag).isNotNull();
+        HttpHeaders headers = new HttpHeaders();
+        headers.setIfNoneMatch(etag);
+        statistics.clear();
+
+        ResponseEntity<String> response = restTemplate.exchange(url, HttpMethod.GET, new HttpEntity<>(headers), String.class);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.NOT_MODIFIED);
+        assertThat(response.getBody()).isNull();
+        assertThat(statistics.getPrepareStatementCount())
+                .as("statements run by conditional GET %s", url)
+                .isEqualTo(expectedStatements);
+    }
+
+    private void assertStatements(String url, long expected) {
+        statistics.clear();
+
+        ResponseEntity<String> response = restTemplate.getForEntity(url, String.class);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(statistics.getPrepareStatementCount())
+                .as("statements run by GET %s", url)
+                .isEqualTo(expected);
+    }
+}
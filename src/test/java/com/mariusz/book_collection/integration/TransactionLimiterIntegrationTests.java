@@ -0,0 +1,105 @@
+package com.mariusz.book_collection.integration;
+
+import com.mariusz.book_collection.concurrency.ConnectionPoolLimiter;
+import com.mariusz.book_collection.concurrency.DatabaseBusyException;
+import com.mariusz.book_collection.entity.Book;
+import com.mariusz.book_collection.repository.AuthorRepository;
+import com.mariusz.book_collection.repository.BookRepository;
+import com.mariusz.book_collection.repository.ShelfRepository;
+import com.mariusz.book_collection.service.BookExportService;
+import com.mariusz.book_collection.service.BookUpdateService;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.io.ByteArrayOutputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assert.fail;
+
+/***
+ * With the limiter on, writes and exports wait for a permit like every other transaction.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = {
+        "book.limiter.enabled=true",
+        "book.limiter.permits=1",
+        "book.limiter.acquire-timeout=200"})
+@ActiveProfiles("test")
+public class TransactionLimiterIntegrationTests {
+
+    private static final long ACQUIRE_TIMEOUT = 200;
+
+    @Autowired
+    private ConnectionPoolLimiter limiter;
+
+    @Autowired
+    private BookUpdateService bookUpdateService;
+
+    @Autowired
+    private BookExportService bookExportService;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private AuthorRepository authorRepository;
+
+    @Autowired
+    private ShelfRepository shelfRepository;
+
+    private Book book;
+
+    @Before
+    public void setUp() {
+        bookRepository.deleteAll();
+        authorRepository.deleteAll();
+        shelfRepository.deleteAll();
+        book = new Book();
+        book.setTitle("Pinokio");
+        book = bookRepository.save(book);
+    }
+
+    @Test
+    public void writeShouldWaitForPermit() {
+        limiter.acquire();
+        try {
+            long start = System.currentTimeMillis();
+            try {
+                bookUpdateService.updateBook(book.getId(), current -> true, current -> current.setTitle("Krzyżacy"));
+                fail("update ran without a permit");
+            } catch (DatabaseBusyException e) {
+                assertThat(System.currentTimeMillis() - start).isGreaterThanOrEqualTo(ACQUIRE_TIMEOUT);
+            }
+        } finally {
+            limiter.release();
+        }
+
+        assertThat(bookUpdateService.updateBook(book.getId(), current -> true, current -> current.setTitle("Krzyżacy")))
+                .hasValueSatisfying(updated -> assertThat(updated.getTitle()).isEqualTo("Krzyżacy"));
+        assertThat(limiter.getAvailablePermits()).isEqualTo(1);
+    }
+
+    @Test
+    public void exportShouldWaitForPermit() throws Exception {
+        limiter.acquire();
+        try {
+            long start = System.currentTimeMillis();
+            try {
+                bookExportService.exportBooks(new ByteArrayOutputStream());
+                fail("export ran without a permit");
+            } catch (DatabaseBusyException e) {
+                assertThat(System.currentTimeMillis() - start).isGreaterThanOrEqualTo(ACQUIRE_TIMEOUT);
+            }
+        } finally {
+            limiter.release();
+        }
+
+        assertThat(bookExportService.exportBooks(new ByteArrayOutputStream())).isEqualTo(1);
+        assertThat(limiter.getAvailablePermits()).isEqualTo(1);
+    }
+}
@@ -0,0 +1,52 @@
+package com.mariusz.book_collection.isbn;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Java6Assertions.assertThat;
+
+public class IsbnCanonicalizerTest {
+
+    @Test
+    public void validIsbn13ShouldBeReturnedAsNumber() {
+        assertThat(IsbnCanonicalizer.toIsbn13("978-83-7648-911-7")).isEqualTo(9788376489117L);
+        assertThat(IsbnCanonicalizer.toIsbn13("9788376489117")).isEqualTo(9788376489117L);
+    }
+
+    @Test
+    public void validIsbn10ShouldBeConvertedToIsbn13() {
+        assertThat(IsbnCanonicalizer.toIsbn13("83-7648-911-9")).isEqualTo(9788376489117L);
+        assertThat(IsbnCanonicalizer.toIsbn13("0-8044-2957-X")).isEqualTo(9780804429573L);
+        assertThat(IsbnCanonicalizer.toIsbn13("080442957x")).isEqualTo(9780804429573L);
+    }
+
+    @Test
+    public void wrongCheckDigitShouldBeInvalid() {
+        assertThat(IsbnCanonicalizer.toIsbn13("9788376489118")).isEqualTo(IsbnCanonicalizer.INVALID);
+        assertThat(IsbnCanonicalizer.toIsbn13("83-7648-911-8")).isEqualTo(IsbnCanonicalizer.INVALID);
+        assertThat(IsbnCanonicalizer.toIsbn13("123-456-789-0")).isEqualTo(IsbnCanonicalizer.INVALID);
+    }
+
+    @Test
+    public void wrongLengthOrPrefixShouldBeInvalid() {
+        assertThat(IsbnCanonicalizer.toIsbn13("12-23-12")).isEqualTo(IsbnCanonicalizer.INVALID);
+        assertThat(IsbnCanonicalizer.toIsbn13("97883764891170")).isEqualTo(IsbnCanonicalizer.INVALID);
+        assertThat(IsbnCanonicalizer.toIsbn13("1234567890128")).isEqualTo(IsbnCanonicalizer.INVALID);
+        assertThat(IsbnCanonicalizer.toIsbn13("0-8044-295X-7")).isEqualTo(IsbnCanonicalizer.INVALID);
+        assertThat(IsbnCanonicalizer.toIsbn13("")).isEqualTo(IsbnCanonicalizer.INVALID);
+        assertThat(IsbnCanonicalizer.toIsbn13(null)).isEqualTo(IsbnCanonicalizer.INVALID);
+    }
+
+    @Test
+    public void normalizeShouldKeepOnlyDigitsAndCheckX() {
+        assertThat(IsbnCanonicalizer.normalize("978-83-7648-911-7")).isEqualTo("9788376489117");
+        assertThat(IsbnCanonicalizer.normalize("ISBN 0-8044-2957-x")).isEqualTo("080442957X");
+        assertThat(IsbnCanonicalizer.normalize("12-X-3")).isEqualTo("123");
+    }
+
+    @Test
+    public void normalizeShouldReturnSameInstanceWhenThereIsNothingToRemove() {
+        String isbn = "9788376489117";
+
+        assertThat(IsbnCanonicalizer.normalize(isbn)).isSameAs(isbn);
+    }
+}
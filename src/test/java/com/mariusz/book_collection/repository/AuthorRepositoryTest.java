@@ -1,11 +1,13 @@
 package com.mariusz.book_collection.repository;
 
 import com.mariusz.book_collection.entity.Author;
+import com.mariusz.book_collection.entity.AuthorSuggestion;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
 import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.junit4.SpringRunner;
 
@@ -37,4 +39,42 @@ public class AuthorRepositoryTest {
         assertThat(find.get().getFirstName()).isEqualTo("Andrzej");
         testEntityManager.flush();
     }
+
+    @Test
+    public void suggestionsShouldMatchBeginningOfFirstOrLastName(){
+        testEntityManager.persist(new Author("Andrzej", "Sapkowski"));
+        Author pilipiuk = testEntityManager.persist(new Author("Andrzej", "Pilipiuk"));
+        testEntityManager.persist(new Author("Jan", "Brzechwa"));
+        testEntityManager.flush();
+
+        assertThat(authorRepository.findSuggestions("andrz%", PageRequest.of(0, 1)))
+                .containsExactly(new AuthorSuggestion(pilipiuk.getAuthorId(), "Andrzej", "Pilipiuk"));
+        assertThat(authorRepository.findSuggestions("brz%", PageRequest.of(0, 10))).hasSize(1);
+        assertThat(authorRepository.findSuggestions("rzech%", PageRequest.of(0, 10))).isEmpty();
+    }
+
+    @Test
+    public void suggestionsShouldMatchBothNamesInEitherOrder(){
+        Author sapkowski = testEntityManager.persist(new Author("Andrzej", "Sapkowski"));
+        testEntityManager.persist(new Author("Andrzej", "Pilipiuk"));
+        testEntityManager.flush();
+
+        AuthorSuggestion expected = new AuthorSuggestion(sapkowski.getAuthorId(), "Andrzej", "Sapkowski");
+        assertThat(authorRepository.findSuggestions("andrzej sa%", PageRequest.of(0, 10))).containsExactly(expected);
+        assertThat(authorRepository.findSuggestions("sapkowski a%", PageRequest.of(0, 10))).containsExactly(expected);
+    }
+
+    @Test
+    public void suggestionsShouldMatchEscapedWildcardsLiterally(){
+        Author underscore = testEntityManager.persist(new Author("Jan", "A_b"));
+        testEntityManager.persist(new Author("Jan", "Axb"));
+        Author percent = testEntityManager.persist(new Author("Jan", "100%"));
+        testEntityManager.persist(new Author("Jan", "1000"));
+        testEntityManager.flush();
+
+        assertThat(authorRepository.findSuggestions("a!_%", PageRequest.of(0, 10)))
+                .containsExactly(new AuthorSuggestion(underscore.getAuthorId(), "Jan", "A_b"));
+        assertThat(authorRepository.findSuggestions("100!%%", PageRequest.of(0, 10)))
+                .containsExactly(new AuthorSuggestion(percent.getAuthorId(), "Jan", "100%"));
+    }
 }
@@ -1,14 +1,18 @@
 package com.mariusz.book_collection.repository;
 
+import com.mariusz.book_collection.entity.Author;
 import com.mariusz.book_collection.entity.Book;
+import com.mariusz.book_collection.entity.BookView;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
 import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.junit4.SpringRunner;
 
+import java.util.List;
 import java.util.Optional;
 
 import static org.assertj.core.api.Java6Assertions.assertThat;
@@ -111,6 +115,45 @@ public class BookRepositoryTest {
         testEntityManager.flush();
     }
 
+    @Test
+    public void booksAfterCursorShouldBeReturnedInIdOrder(){
+        Book first = testEntityManager.persist(createBook());
+        Book second = testEntityManager.persist(createBook());
+        Book third = testEntityManager.persist(createBook());
+        testEntityManager.flush();
+
+        List<BookView> page = bookRepository.findViewsAfter(first.getId(), PageRequest.of(0, 1));
+
+        assertThat(page).extracting(BookView::getId).containsExactly(second.getId());
+        assertThat(bookRepository.findViewsAfter(second.getId(), PageRequest.of(0, 5)))
+                .extracting(BookView::getId).containsExactly(third.getId());
+    }
+
+    @Test
+    public void bookViewsShouldContainAuthorOnlyWhenBookHasOne(){
+        Author author = testEntityManager.persist(new Author("Andrzej", "Sapkowski"));
+        Book withAuthor = createBook();
+        withAuthor.setTitle("Krew elfów");
+        withAuthor.setAuthor(author);
+        testEntityManager.persist(withAuthor);
+        Book withoutAuthor = testEntityManager.persist(createBook());
+        testEntityManager.flush();
+        testEntityManager.clear();
+
+        List<BookView> views = bookRepository.findAllViews();
+
+        assertThat(views).extracting(BookView::getId).containsExactly(withAuthor.getId(), withoutAuthor.getId());
+        assertThat(views.get(0).getTitle()).isEqualTo("Krew elfów");
+        assertThat(views.get(0).getIsbn()).isEqualTo("1236547899");
+        assertThat(views.get(0).getAuthor().getAuthorId()).isEqualTo(author.getAuthorId());
+        assertThat(views.get(0).getAuthor().getLastName()).isEqualTo("Sapkowski");
+        assertThat(views.get(1).getAuthor()).isNull();
+        assertThat(bookRepository.findViewsByTitleContaining("ELF", PageRequest.of(0, 5)))
+                .extracting(BookView::getId).containsExactly(withAuthor.getId());
+        assertThat(bookRepository.findViewsByAuthorId(author.getAuthorId()))
+                .extracting(BookView::getId).containsExactly(withAuthor.getId());
+    }
+
 
     private Book createBook(){
         Book book = new Book();
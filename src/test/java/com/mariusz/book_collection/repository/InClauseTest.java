@@ -0,0 +1,37 @@
+package com.mariusz.book_collection.repository;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Java6Assertions.assertThat;
+
+public class InClauseTest {
+
+    @Test
+    public void padShouldRepeatLastValueUpToPowerOfTwo() {
+        assertThat(InClause.pad(Collections.singletonList(1L))).containsExactly(1L);
+        assertThat(InClause.pad(Arrays.asList(1L, 2L))).containsExactly(1L, 2L);
+        assertThat(InClause.pad(Arrays.asList(1L, 2L, 3L))).containsExactly(1L, 2L, 3L, 3L);
+        assertThat(InClause.pad(Arrays.asList(1L, 2L, 3L, 4L, 5L))).hasSize(8).endsWith(5L, 5L, 5L, 5L);
+    }
+
+    @Test
+    public void paddedChunksShouldNotExceedMaxSize() {
+        List<Long> values = new ArrayList<>();
+        for (long value = 0; value < InClause.MAX_SIZE * 2 + 100; value++) {
+            values.add(value);
+        }
+
+        List<List<Long>> chunks = InClause.paddedChunks(values);
+
+        assertThat(chunks).hasSize(3);
+        assertThat(chunks.get(0)).hasSize(InClause.MAX_SIZE);
+        assertThat(chunks.get(1)).hasSize(InClause.MAX_SIZE);
+        assertThat(chunks.get(2)).hasSize(128);
+        assertThat(InClause.paddedChunks(Collections.emptyList())).isEmpty();
+    }
+}
@@ -0,0 +1,110 @@
+package com.mariusz.book_collection.search;
+
+import com.mariusz.book_collection.entity.AuthorSuggestion;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Java6Assertions.assertThat;
+
+public class AuthorSuggestIndexTest {
+
+    private AuthorSuggestIndex index;
+
+    @Before
+    public void setUp() {
+        index = new AuthorSuggestIndex();
+        index.put(1L, "Andrzej", "Sapkowski");
+        index.put(2L, "Stanisław", "Lem");
+        index.put(3L, "Andrzej", "Pilipiuk");
+        index.put(4L, "Anna", "Łaszkiewicz");
+    }
+
+    @Test
+    public void suggestShouldMatchFirstAndLastNamePrefix() {
+        assertThat(ids(index.suggest("andrzej", 10))).containsExactly(3L, 1L);
+        assertThat(ids(index.suggest("sap", 10))).containsExactly(1L);
+        assertThat(ids(index.suggest("an", 10))).containsExactly(3L, 1L, 4L);
+    }
+
+    @Test
+    public void suggestShouldMatchBothNamesInAnyOrder() {
+        assertThat(ids(index.suggest("Lem  Stan", 10))).containsExactly(2L);
+        assertThat(ids(index.suggest("stanislaw l", 10))).containsExactly(2L);
+        assertThat(ids(index.suggest("andrzej s", 10))).containsExactly(1L);
+    }
+
+    @Test
+    public void suggestShouldIgnoreCaseAndAccents() {
+        assertThat(ids(index.suggest("LASZ", 10))).containsExactly(4L);
+        assertThat(index.suggest("Łasz", 10).get(0).getLastName()).isEqualTo("Łaszkiewicz");
+    }
+
+    @Test
+    public void suggestShouldReturnOnlyLimit() {
+        assertThat(ids(index.suggest("a", 2))).containsExactly(3L, 1L);
+        assertThat(index.suggest("a", 0)).isEmpty();
+        assertThat(index.suggest("  ", 10)).isEmpty();
+    }
+
+    @Test
+    public void renamedAuthorShouldNotMatchOldName() {
+        index.put(1L, "Andrzej", "Ziemiański");
+
+        assertThat(index.suggest("sap", 10)).isEmpty();
+        assertThat(ids(index.suggest("ziem", 10))).containsExactly(1L);
+        assertThat(index.size()).isEqualTo(4);
+    }
+
+    @Test
+    public void removedAuthorShouldNotBeSuggested() {
+        index.remove(3L);
+        index.remove(5L);
+
+        assertThat(ids(index.suggest("andrzej", 10))).containsExactly(1L);
+        assertThat(index.size()).isEqualTo(3);
+    }
+
+    @Test
+    public void indexShouldGrowBeyondInitialCapacity() {
+        for (long id = 10; id < 1010; id++) {
+            index.put(id, "Jan", "Kowalski" + id);
+        }
+
+        assertThat(ids(index.suggest("kowalski10", 5))).containsExactly(10L, 100L, 1000L, 1001L, 1002L);
+        assertThat(index.size()).isEqualTo(1004);
+    }
+
+    @Test
+    public void loadShouldSortAllKeysAndKeepAuthorsChangedMeanwhile() {
+        AuthorSuggestIndex loading = new AuthorSuggestIndex();
+        loading.put(1L, "Andrzej", "Ziemiański");
+        loading.remove(3L);
+
+        loading.putAllIfAbsent(Arrays.asList(
+                new AuthorSuggestion(3L, "Andrzej", "Pilipiuk"),
+                new AuthorSuggestion(1L, "Andrzej", "Sapkowski"),
+                new AuthorSuggestion(2L, "Stanisław", "Lem"),
+                new AuthorSuggestion(5L, "Adam", "Mickiewicz")));
+        loading.markLoaded();
+
+        assertThat(ids(loading.suggest("a", 10))).containsExactly(5L, 1L);
+        assertThat(loading.suggest("sap", 10)).isEmpty();
+        assertThat(ids(loading.suggest("lem", 10))).containsExactly(2L);
+        assertThat(loading.size()).isEqualTo(3);
+    }
+
+    @Test
+    public void authorWithoutFirstNameShouldBeSuggested() {
+        index.put(6L, null, "Homer");
+
+        assertThat(ids(index.suggest("hom", 10))).containsExactly(6L);
+    }
+
+    private static List<Long> ids(List<AuthorSuggestion> suggestions) {
+        return suggestions.stream().map(AuthorSuggestion::getAuthorId).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,84 @@
+package com.mariusz.book_collection.search;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.assertj.core.api.Java6Assertions.assertThat;
+
+public class BookSearchIndexTest {
+
+    private BookSearchIndex index;
+
+    @Before
+    public void setUp() {
+        index = new BookSearchIndex();
+        index.put(1L, "Powrót Zwiadowcy.", null);
+        index.put(2L, "Zwiad. Nowa nadzieja.", "");
+        index.put(3L, "Zwiadowcy. Wyprawa.", "Halt i Will");
+        index.put(4L, "Pinokio", "Drewniany chłopiec, nie zwiadowca");
+    }
+
+    @Test
+    public void searchShouldIgnoreCaseAndRankTitlePrefixFirst() {
+        assertThat(index.search("zwIaD", 10)).containsExactly(2L, 3L, 1L, 4L);
+    }
+
+    @Test
+    public void searchShouldIgnoreAccents() {
+        assertThat(index.search("powrot", 10)).containsExactly(1L);
+        assertThat(index.search("chlopiec", 10)).containsExactly(4L);
+    }
+
+    @Test
+    public void searchShouldReturnOnlyTopResults() {
+        assertThat(index.search("zwiad", 2)).containsExactly(2L, 3L);
+    }
+
+    @Test
+    public void shortQueryShouldStillMatchSubstrings() {
+        assertThat(index.search("ok", 10)).containsExactly(4L);
+    }
+
+    @Test
+    public void allTrigramsHaveToMatchInOrder() {
+        assertThat(index.search("zwiadnowa", 10)).isEmpty();
+        assertThat(index.search("wyprawa zwiad", 10)).isEmpty();
+        assertThat(index.search("", 10)).isEmpty();
+    }
+
+    @Test
+    public void changedTitleShouldReplaceOldOne() {
+        index.put(2L, "Nowa nadzieja", "");
+
+        assertThat(index.search("zwiad", 10)).containsExactly(3L, 1L, 4L);
+        assertThat(index.search("nowa", 10)).containsExactly(2L);
+        assertThat(index.size()).isEqualTo(4);
+    }
+
+    @Test
+    public void removedBookShouldNotBeFound() {
+        index.remove(3L);
+
+        assertThat(index.search("zwiad", 10)).containsExactly(2L, 1L, 4L);
+        assertThat(index.size()).isEqualTo(3);
+    }
+
+    @Test
+    public void initialLoadShouldNotOverwriteNewerVersion() {
+        index.putIfAbsent(2L, "Stary tytuł", "");
+
+        assertThat(index.search("stary", 10)).isEmpty();
+    }
+
+    @Test
+    public void manyUpdatesShouldKeepSearchResultsCorrect() {
+        for (int i = 0; i < 5000; i++) {
+            index.put(10L + i % 100, "Tom " + i, "");
+        }
+
+        assertThat(index.size()).isEqualTo(104);
+        assertThat(index.search("tom 4999", 10)).containsExactly(109L);
+        assertThat(index.search("tom 0", 10)).isEmpty();
+        assertThat(index.search("zwiad", 10)).containsExactly(2L, 3L, 1L, 4L);
+    }
+}
@@ -0,0 +1,57 @@
+package com.mariusz.book_collection.search;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Java6Assertions.assertThat;
+
+public class PostingListTest {
+
+    @Test
+    public void cursorShouldReturnAddedDocsInOrder() {
+        PostingList list = new PostingList();
+        list.add(0);
+        list.add(3);
+        list.add(200);
+        list.add(70000);
+
+        PostingList.Cursor cursor = list.cursor();
+
+        assertThat(cursor.nextDoc()).isEqualTo(0);
+        assertThat(cursor.nextDoc()).isEqualTo(3);
+        assertThat(cursor.nextDoc()).isEqualTo(200);
+        assertThat(cursor.nextDoc()).isEqualTo(70000);
+        assertThat(cursor.nextDoc()).isEqualTo(PostingList.NO_MORE_DOCS);
+        assertThat(list.size()).isEqualTo(4);
+    }
+
+    @Test
+    public void smallGapsShouldTakeOneByte() {
+        PostingList list = new PostingList();
+        for (int doc = 0; doc < 1000; doc += 2) {
+            list.add(doc);
+        }
+
+        assertThat(list.sizeInBytes()).isEqualTo(500);
+    }
+
+    @Test
+    public void advanceShouldSkipToFirstDocNotSmallerThanTarget() {
+        PostingList list = new PostingList();
+        list.add(1);
+        list.add(5);
+        list.add(9);
+
+        PostingList.Cursor cursor = list.cursor();
+
+        assertThat(cursor.advance(4)).isEqualTo(5);
+        assertThat(cursor.advance(5)).isEqualTo(5);
+        assertThat(cursor.advance(10)).isEqualTo(PostingList.NO_MORE_DOCS);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void docsOutOfOrderShouldBeRejected() {
+        PostingList list = new PostingList();
+        list.add(5);
+        list.add(5);
+    }
+}
@@ -1,13 +1,17 @@
 package com.mariusz.book_collection.service;
 
 import com.mariusz.book_collection.entity.Author;
+import com.mariusz.book_collection.entity.AuthorSuggestion;
+import com.mariusz.book_collection.entity.AuthorView;
 import com.mariusz.book_collection.mapper.AuthorFormMapper;
 import com.mariusz.book_collection.repository.AuthorRepository;
+import com.mariusz.book_collection.search.AuthorSuggestIndex;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnitRunner;
+import org.springframework.data.domain.PageRequest;
 
 import java.util.Arrays;
 import java.util.Collections;
@@ -15,8 +19,11 @@ import java.util.List;
 import java.util.Optional;
 
 import static org.assertj.core.api.Java6Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 
@@ -29,9 +36,12 @@ public class AuthorServiceImplTest {
     private AuthorService authorService;
     private AuthorFormMapper authorFormMapper;
 
+    @Mock
+    private AuthorSuggestIndex authorSuggestIndex;
+
     @Before
     public void setUp(){
-        authorService = new AuthorServiceImpl(authorRepository, authorFormMapper);
+        authorService = new AuthorServiceImpl(authorRepository, authorFormMapper, authorSuggestIndex);
     }
 
     @Test
@@ -63,28 +73,26 @@ public class AuthorServiceImplTest {
 
     @Test
     public void getAllAuthors_shouldReturnList(){
-        Author author = new Author();
-        author.setAuthorId(1L);
-        Author author2 = new Author();
-        author2.setAuthorId(2L);
+        AuthorView author = new AuthorView(1L, "Andrzej", "Sapkowski", null, null);
+        AuthorView author2 = new AuthorView(2L, "Paolo", "Coelio", null, null);
 
-        given(authorRepository.findAll()).willReturn(Arrays.asList(author, author2));
+        given(authorRepository.findAllViews()).willReturn(Arrays.asList(author, author2));
 
-        List<Author> authors = authorService.findAll();
+        List<AuthorView> authors = authorService.findAll();
 
         assertThat(authors.size()).isEqualTo(2);
         assertThat(authors.contains(author)).isTrue();
-        verify(authorRepository, times(1)).findAll();
+        verify(authorRepository, times(1)).findAllViews();
     }
 
     @Test
     public void getAllAuthors_shouldReturnEmptyList(){
-        given(authorRepository.findAll()).willReturn(Collections.emptyList());
+        given(authorRepository.findAllViews()).willReturn(Collections.emptyList());
 
-        List<Author> authors = authorService.findAll();
+        List<AuthorView> authors = authorService.findAll();
 
         assertThat(authors.isEmpty()).isTrue();
-        verify(authorRepository, times(1)).findAll();
+        verify(authorRepository, times(1)).findAllViews();
     }
 
     @Test
@@ -114,6 +122,27 @@ public class AuthorServiceImplTest {
         verify(authorRepository, times(1)).findAllByLastName(anyString());
     }
 
+    @Test
+    public void suggestAuthors_shouldUseIndexWhenLoaded(){
+        AuthorSuggestion author = new AuthorSuggestion(1L, "Andrzej", "Sapkowski");
+        given(authorSuggestIndex.isLoaded()).willReturn(true);
+        given(authorSuggestIndex.suggest("sap", 5)).willReturn(Collections.singletonList(author));
 
+        List<AuthorSuggestion> authors = authorService.suggestAuthors("sap", 5);
 
-}
\ No newline at end of file
+        assertThat(authors).containsExactly(author);
+        verify(authorRepository, never()).findSuggestions(anyString(), any());
+    }
+
+    @Test
+    public void suggestAuthors_shouldQueryRepositoryBeforeIndexIsLoaded(){
+        AuthorSuggestion author = new AuthorSuggestion(1L, "Andrzej", "Sapkowski");
+        given(authorRepository.findSuggestions("sap!_!%!! a%", PageRequest.of(0, 5)))
+                .willReturn(Collections.singletonList(author));
+
+        List<AuthorSuggestion> authors = authorService.suggestAuthors(" Sap_%!   A ", 5);
+
+        assertThat(authors).containsExactly(author);
+        verify(authorSuggestIndex, never()).suggest(anyString(), anyInt());
+    }
+}
@@ -0,0 +1,108 @@
+package com.mariusz.book_collection.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.fge.jsonpatch.JsonPatch;
+import com.github.fge.jsonpatch.mergepatch.JsonMergePatch;
+import com.mariusz.book_collection.entity.Book;
+import com.mariusz.book_collection.patch.InvalidPatchException;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import java.io.IOException;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.given;
+
+@RunWith(MockitoJUnitRunner.class)
+public class BookPatchServiceImplTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private BookPatchService bookPatchService;
+
+    @Mock
+    private BookUpdateService bookUpdateService;
+
+    private Book book;
+
+    @Before
+    public void setup() {
+        bookPatchService = new BookPatchServiceImpl(bookUpdateService);
+        book = new Book(1L, "Zwiadowcy", "9788376489117", "Ruiny Gorlanu");
+        given(bookUpdateService.updateBook(eq(1L), any(), any())).willAnswer(invocation -> {
+            Consumer<Book> change = invocation.getArgument(2);
+            change.accept(book);
+            return Optional.of(book);
+        });
+    }
+
+    @Test
+    public void jsonPatch_willReplaceTitleAndRemoveDescription() throws Exception {
+        Optional<Book> patched = bookPatchService.patchBook(1L, jsonPatch(
+                "[{\"op\":\"test\",\"path\":\"/title\",\"value\":\"Zwiadowcy\"},"
+                        + "{\"op\":\"replace\",\"path\":\"/title\",\"value\":\"Zwiadowcy 1\"},"
+                        + "{\"op\":\"remove\",\"path\":\"/description\"}]"), book -> true);
+
+        assertThat(patched).contains(book);
+        assertThat(book.getTitle()).isEqualTo("Zwiadowcy 1");
+        assertThat(book.getDescription()).isNull();
+        assertThat(book.getIsbn()).isEqualTo("9788376489117");
+    }
+
+    @Test
+    public void jsonPatch_withIsbnWillUpdateIsbn13() throws Exception {
+        bookPatchService.patchBook(1L, jsonPatch("[{\"op\":\"replace\",\"path\":\"/isbn\",\"value\":\"978-0-8044-2957-3\"}]"), book -> true);
+
+        assertThat(book.getIsbn()).isEqualTo("9780804429573");
+        assertThat(book.getIsbn13()).isEqualTo(9780804429573L);
+    }
+
+    @Test(expected = UpdateConflictException.class)
+    public void jsonPatch_withFailingTestWillThrowException() throws Exception {
+        try {
+            bookPatchService.patchBook(1L, jsonPatch(
+                    "[{\"op\":\"test\",\"path\":\"/title\",\"value\":\"Other\"},"
+                            + "{\"op\":\"replace\",\"path\":\"/title\",\"value\":\"Zwiadowcy 1\"}]"), book -> true);
+        } finally {
+            assertThat(book.getTitle()).isEqualTo("Zwiadowcy");
+        }
+    }
+
+    @Test(expected = InvalidPatchException.class)
+    public void jsonPatch_addingNotPatchablePropertyWillThrowException() throws Exception {
+        bookPatchService.patchBook(1L, jsonPatch("[{\"op\":\"add\",\"path\":\"/id\",\"value\":2}]"), book -> true);
+    }
+
+    @Test
+    public void mergePatch_willChangeOnlyGivenProperties() throws Exception {
+        bookPatchService.patchBook(1L, mergePatch("{\"description\":\"Płonący most\"}"), book -> true);
+
+        assertThat(book.getTitle()).isEqualTo("Zwiadowcy");
+        assertThat(book.getDescription()).isEqualTo("Płonący most");
+    }
+
+    @Test(expected = InvalidPatchException.class)
+    public void mergePatch_removingTitleWillThrowException() throws Exception {
+        bookPatchService.patchBook(1L, mergePatch("{\"title\":null}"), book -> true);
+    }
+
+    @Test(expected = InvalidPatchException.class)
+    public void mergePatch_withNumberTitleWillThrowException() throws Exception {
+        bookPatchService.patchBook(1L, mergePatch("{\"title\":12}"), book -> true);
+    }
+
+    private JsonPatch jsonPatch(String json) throws IOException {
+        return objectMapper.readValue(json, JsonPatch.class);
+    }
+
+    private JsonMergePatch mergePatch(String json) throws IOException {
+        return objectMapper.readValue(json, JsonMergePatch.class);
+    }
+}
@@ -1,16 +1,20 @@
 package com.mariusz.book_collection.service;
 
 
-import com.mariusz.book_collection.entity.Author;
 import com.mariusz.book_collection.entity.Book;
+import com.mariusz.book_collection.entity.BookCursorPage;
+import com.mariusz.book_collection.entity.BookView;
 import com.mariusz.book_collection.entity.Shelf;
+import com.mariusz.book_collection.index.IsbnIndex;
 import com.mariusz.book_collection.mapper.BookFormMapper;
 import com.mariusz.book_collection.repository.BookRepository;
+import com.mariusz.book_collection.search.BookSearchIndex;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnitRunner;
+import org.springframework.data.domain.PageRequest;
 
 import java.util.Arrays;
 import java.util.Collections;
@@ -31,9 +35,15 @@ public class BookServiceImplTest {
     @Mock
     private BookFormMapper bookFormMapper;
 
+    @Mock
+    private IsbnIndex isbnIndex;
+
+    @Mock
+    private BookSearchIndex bookSearchIndex;
+
     @Before
     public void setup() {
-        bookService = new BookServiceImpl(bookRepository, bookFormMapper);
+        bookService = new BookServiceImpl(bookRepository, bookFormMapper, isbnIndex, bookSearchIndex);
 
         Book book = new Book();
         book.setId(1L);
@@ -102,7 +112,7 @@ public class BookServiceImplTest {
         book1.setDescription("Ludzie widzą tylko to co chcą widzieć. Zajrzyj głębiej...");
         book1.setIsbn("9788376489117");
 
-        given(bookRepository.findByIsbn("9788376489117")).willReturn(Optional.of(book1));
+        given(bookRepository.findByIsbn13(9788376489117L)).willReturn(Optional.of(book1));
         Optional<Book> result = bookService.findBookByIsbn("9788376489117");
 
         assertThat(result.isPresent()).isTrue();
@@ -116,7 +126,7 @@ public class BookServiceImplTest {
             assertThat(book.getIsbn()).isEqualTo("9788376489117");
         }
 
-        verify(bookRepository, times(1)).findByIsbn("9788376489117");
+        verify(bookRepository, times(1)).findByIsbn13(9788376489117L);
         reset(bookRepository);
     }
 
@@ -128,7 +138,7 @@ public class BookServiceImplTest {
         book1.setDescription("Ludzie widzą tylko to co chcą widzieć. Zajrzyj głębiej...");
         book1.setIsbn("9788376489117");
 
-        given(bookRepository.findByIsbn("9788376489117")).willReturn(Optional.of(book1));
+        given(bookRepository.findByIsbn13(9788376489117L)).willReturn(Optional.of(book1));
 
         Optional<Book> result = bookService.findBookByIsbn("978-837-648-911-7");
 
@@ -141,21 +151,75 @@ public class BookServiceImplTest {
             assertThat(book.getIsbn()).isEqualTo("9788376489117");
         }
 
-        verify(bookRepository, times(1)).findByIsbn("9788376489117");
+        verify(bookRepository, times(1)).findByIsbn13(9788376489117L);
         reset(bookRepository);
     }
 
+    @Test
+    public void shouldFindBookStoredWithIsbn13ByItsIsbn10() {
+        Book book1 = new Book(1L, "Królestwo czerwonego łabędzia", "9788376489117", "");
+
+        given(bookRepository.findByIsbn13(9788376489117L)).willReturn(Optional.of(book1));
+
+        Optional<Book> result = bookService.findBookByIsbn("83-7648-911-9");
+
+        assertThat(result.isPresent()).isTrue();
+        assertThat(result.get().getId()).isEqualTo(1L);
+    }
+
 
     @Test
     public void shouldReturnEnptyOptionalWhenProvideIncorrectIsbn() {
-        Optional<Book> result = bookService.findBookByIsbn("0000000000");
+        Optional<Book> result = bookService.findBookByIsbn("1111111112");
 
         assertThat(result.isPresent()).isFalse();
 
-        verify(bookRepository, times(1)).findByIsbn("0000000000");
+        verify(bookRepository, times(1)).findByIsbn("1111111112");
+        verify(bookRepository, never()).findByIsbn13(anyLong());
         reset(bookRepository);
     }
 
+    @Test
+    public void loadedIndexShouldResolveIsbnWithoutIsbnQuery() {
+        Book book1 = new Book(7L, "Królestwo czerwonego łabędzia", "9788376489117", "");
+
+        given(isbnIndex.isLoaded()).willReturn(true);
+        given(isbnIndex.findBookId(9788376489117L)).willReturn(7L);
+        given(bookRepository.findById(7L)).willReturn(Optional.of(book1));
+
+        Optional<Book> result = bookService.findBookByIsbn("978-837-648-911-7");
+
+        assertThat(result.isPresent()).isTrue();
+        assertThat(result.get().getId()).isEqualTo(7L);
+        verify(bookRepository, never()).findByIsbn(anyString());
+        verify(bookRepository, never()).findByIsbn13(anyLong());
+    }
+
+    @Test
+    public void loadedIndexShouldReturnEmptyOptionalWithoutDatabaseForUnknownIsbn() {
+        given(isbnIndex.isLoaded()).willReturn(true);
+        given(isbnIndex.findBookId(9788376489117L)).willReturn(IsbnIndex.NO_BOOK);
+
+        Optional<Book> result = bookService.findBookByIsbn("9788376489117");
+
+        assertThat(result.isPresent()).isFalse();
+        verifyZeroInteractions(bookRepository);
+    }
+
+    @Test
+    public void staleIndexEntryShouldFallBackToIsbnQuery() {
+        Book changedBook = new Book(7L, "Królestwo czerwonego łabędzia", "1111111112", "");
+
+        given(isbnIndex.isLoaded()).willReturn(true);
+        given(isbnIndex.findBookId(9788376489117L)).willReturn(7L);
+        given(bookRepository.findById(7L)).willReturn(Optional.of(changedBook));
+
+        Optional<Book> result = bookService.findBookByIsbn("9788376489117");
+
+        assertThat(result.isPresent()).isFalse();
+        verify(bookRepository, times(1)).findByIsbn13(9788376489117L);
+    }
+
     @Test
     public void shouldReturnBookWhenProvideCorrectId() {
         Optional<Book> result = bookService.findBookById(1L);
@@ -183,30 +247,50 @@ public class BookServiceImplTest {
 
     @Test
     public void shouldReturnListOfTwoElementsWhenGetAllMethodCalled(){
-        Book book1 = new Book();
-        book1.setId(1L);
-        book1.setTitle("Królestwo czerwonego łabędzia");
-        book1.setDescription("Ludzie widzą tylko to co chcą widzieć. Zajrzyj głębiej...");
-        book1.setIsbn("9788376489117");
+        BookView book1 = bookView(1L, "Królestwo czerwonego łabędzia");
+        BookView book2 = bookView(2L, "Test title");
 
-        Book book2 = new Book();
-        book2.setId(2L);
-        book2.setTitle("Test title");
-        book2.setDescription("Desctiption that will be tested...");
-        book2.setIsbn("1234567899");
-
-        given(bookRepository.findAll()).willReturn(Arrays.asList(book1, book2));
+        given(bookRepository.findAllViews()).willReturn(Arrays.asList(book1, book2));
 
-        List<Book> books = bookService.findAllBooks();
+        List<BookView> books = bookService.findAllBooks();
 
         assertThat(books.size()).isEqualTo(2);
         assertThat(books.stream().anyMatch(book -> book.getId()==1L)).isTrue();
         assertThat(books.stream().anyMatch(book -> book.getId()==2L)).isTrue();
 
-        verify(bookRepository,times(1)).findAll();
+        verify(bookRepository,times(1)).findAllViews();
+        verify(bookRepository, never()).findAll();
         reset(bookRepository);
     }
 
+    @Test
+    public void shouldReturnNextCursorWhenMoreBooksExist(){
+        BookView book1 = bookView(5L, "Pinokio");
+        BookView book2 = bookView(6L, "Martian");
+        BookView book3 = bookView(9L, "Test title");
+
+        given(bookRepository.findViewsAfter(4L, PageRequest.of(0, 3)))
+                .willReturn(Arrays.asList(book1, book2, book3));
+
+        BookCursorPage page = bookService.findBooksAfter(4L, 2);
+
+        assertThat(page.getBooks()).containsExactly(book1, book2);
+        assertThat(page.getNextCursor()).isEqualTo(6L);
+    }
+
+    @Test
+    public void shouldReturnNoCursorOnLastPage(){
+        BookView book1 = bookView(5L, "Pinokio");
+
+        given(bookRepository.findViewsAfter(0L, PageRequest.of(0, 3)))
+                .willReturn(Collections.singletonList(book1));
+
+        BookCursorPage page = bookService.findBooksAfter(null, 2);
+
+        assertThat(page.getBooks()).containsExactly(book1);
+        assertThat(page.getNextCursor()).isNull();
+    }
+
     @Test
     public void shouldReturnBookWithIdWhenSaveBook(){
         Book book = new Book();
@@ -278,51 +362,64 @@ public class BookServiceImplTest {
 
     @Test
     public void shouldReturnListOfBooksByAuthorId() {
-        Book book = new Book();
-        book.setId(1L);
-        book.setTitle("Pinokio");
+        BookView book = bookView(1L, "Pinokio");
 
-        given(bookRepository.findAllByAuthor_AuthorId(anyLong())).willReturn(Collections.singletonList(book));
+        given(bookRepository.findViewsByAuthorId(anyLong())).willReturn(Collections.singletonList(book));
 
-        List<Book> books = bookService.findBooksByAuthorId(1L);
+        List<BookView> books = bookService.findBooksByAuthorId(1L);
 
         assertThat(books.size()).isEqualTo(1);
         assertThat(books.contains(book)).isTrue();
-        verify(bookRepository,times(1)).findAllByAuthor_AuthorId(1L);
+        verify(bookRepository,times(1)).findViewsByAuthorId(1L);
     }
 
     @Test
-    public void souldReturnListOfBooksForListOfAuthors() {
-        Book book = new Book();
-        book.setId(1L);
-        book.setTitle("Pinokio");
-        Book book2 = new Book();
-        book2.setId(2L);
-        book2.setTitle("Lord of the Rings");
+    public void booksByAuthorLastNameShouldRunOneQuery() {
+        BookView book = bookView(1L, "Pinokio");
+        given(bookRepository.findViewsByAuthorLastName("Sapkowski")).willReturn(Collections.singletonList(book));
 
-        given(bookRepository.findAllByAuthorIn(anyList())).willReturn(Arrays.asList(book,book2));
+        assertThat(bookService.findBooksByAuthorLastName("Sapkowski")).containsExactly(book);
+    }
+
+    @Test
+    public void shouldReturnListOfBooksByPartOfTitle() {
+        BookView book = bookView(1L, "Pinokio");
 
-        List<Book> books = bookService.findBookByAuthors(Collections.singletonList(new Author()));
+        given(bookRepository.findViewsByTitleContaining("Pin", PageRequest.of(0, 10)))
+                .willReturn(Collections.singletonList(book));
 
-        assertThat(books.size()).isEqualTo(2);
+        List<BookView> books = bookService.findBookByTitle("Pin", 10);
+        assertThat(books.size()).isEqualTo(1);
         assertThat(books.contains(book)).isTrue();
-        assertThat(books.contains(book2)).isTrue();
 
-        verify(bookRepository, times(1)).findAllByAuthorIn(anyList());
+        verify(bookRepository, times(1)).findViewsByTitleContaining(anyString(), any());
     }
 
     @Test
-    public void shouldReturnListOfBooksByPartOfTitle() {
-        Book book = new Book();
-        book.setId(1L);
-        book.setTitle("Pinokio");
+    public void searchShouldReturnBooksInIndexOrderWhenIndexIsLoaded() {
+        BookView book = bookView(1L, "Zwiadowcy. Wyprawa.");
+        BookView book2 = bookView(2L, "Zwiad");
 
-        given(bookRepository.findAllByTitleIgnoreCaseContains(anyString())).willReturn(Collections.singletonList(book));
+        given(bookSearchIndex.isLoaded()).willReturn(true);
+        given(bookSearchIndex.search("zwiad", 10)).willReturn(new long[]{2L, 1L});
+        given(bookRepository.findViewsByIdIn(Arrays.asList(2L, 1L))).willReturn(Arrays.asList(book, book2));
 
-        List<Book> books = bookService.findBookByTitle("Pin");
-        assertThat(books.size()).isEqualTo(1);
-        assertThat(books.contains(book)).isTrue();
+        List<BookView> books = bookService.findBookByTitle("zwiad", 10);
+
+        assertThat(books).containsExactly(book2, book);
+        verify(bookRepository, never()).findViewsByTitleContaining(anyString(), any());
+    }
+
+    @Test
+    public void searchWithoutIndexHitsShouldNotQueryDatabase() {
+        given(bookSearchIndex.isLoaded()).willReturn(true);
+        given(bookSearchIndex.search("xyz", 10)).willReturn(new long[0]);
+
+        assertThat(bookService.findBookByTitle("xyz", 10)).isEmpty();
+        verifyZeroInteractions(bookRepository);
+    }
 
-        verify(bookRepository, times(1)).findAllByTitleIgnoreCaseContains(anyString());
+    private static BookView bookView(Long id, String title) {
+        return new BookView(id, title, null, null, null, null, null, null);
     }
-}
\ No newline at end of file
+}
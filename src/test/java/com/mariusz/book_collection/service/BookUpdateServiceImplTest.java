@@ -0,0 +1,117 @@
+package com.mariusz.book_collection.service;
+
+import com.mariusz.book_collection.entity.Author;
+import com.mariusz.book_collection.entity.Book;
+import com.mariusz.book_collection.patch.InvalidPatchException;
+import com.mariusz.book_collection.repository.AuthorRepository;
+import com.mariusz.book_collection.repository.BookRepository;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@RunWith(MockitoJUnitRunner.class)
+public class BookUpdateServiceImplTest {
+
+    private static final int MAX_ATTEMPTS = 3;
+
+    private BookUpdateService bookUpdateService;
+
+    @Mock
+    private BookRepository bookRepository;
+
+    @Mock
+    private AuthorRepository authorRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private Book book;
+
+    @Before
+    public void setup() {
+        bookUpdateService = new BookUpdateServiceImpl(bookRepository, authorRepository, transactionManager, MAX_ATTEMPTS);
+        book = new Book(1L, "Zwiadowcy", null, null);
+        given(bookRepository.findById(1L)).willReturn(Optional.of(book));
+    }
+
+    @Test
+    public void updateLosingOptimisticLock_willBeRunAgainOnCurrentBook() {
+        AtomicInteger attempts = new AtomicInteger();
+
+        Optional<Book> updated = bookUpdateService.updateBook(1L, current -> true, current -> {
+            if (attempts.incrementAndGet() == 1) {
+                throw new ObjectOptimisticLockingFailureException(Book.class, 1L);
+            }
+            current.setTitle("Zwiadowcy 2");
+        });
+
+        assertThat(updated).contains(book);
+        assertThat(book.getTitle()).isEqualTo("Zwiadowcy 2");
+        assertThat(attempts.get()).isEqualTo(2);
+        verify(bookRepository, times(2)).findById(1L);
+    }
+
+    @Test
+    public void updateLosingEveryAttempt_willThrowConflict() {
+        try {
+            bookUpdateService.updateBook(1L, current -> true, current -> {
+                throw new ObjectOptimisticLockingFailureException(Book.class, 1L);
+            });
+            fail("conflict expected");
+        } catch (UpdateConflictException e) {
+            assertThat(e.getCause()).isInstanceOf(ObjectOptimisticLockingFailureException.class);
+        }
+        verify(bookRepository, times(MAX_ATTEMPTS)).findById(1L);
+    }
+
+    @Test(expected = PreconditionFailedException.class)
+    public void updateWithFailingPrecondition_willNotChangeBook() {
+        try {
+            bookUpdateService.updateBook(1L, current -> current.getVersion() == 5L, current -> current.setTitle("Zwiadowcy 2"));
+        } finally {
+            assertThat(book.getTitle()).isEqualTo("Zwiadowcy");
+        }
+    }
+
+    @Test
+    public void updateOfMissingBook_willReturnEmptyOptional() {
+        assertThat(bookUpdateService.updateBook(2L, current -> true, current -> fail("no book to change"))).isNotPresent();
+    }
+
+    @Test
+    public void replaceBook_willCopyPropertiesAndAuthor() {
+        Author author = new Author(7L, "John", "Flanagan");
+        given(authorRepository.findById(7L)).willReturn(Optional.of(author));
+        Book replacement = new Book(null, "Ruiny Gorlanu", "9788376489117", "Zwiadowcy 1");
+        replacement.setAuthor(new Author(7L, null, null));
+
+        bookUpdateService.replaceBook(1L, replacement, current -> true);
+
+        assertThat(book.getTitle()).isEqualTo("Ruiny Gorlanu");
+        assertThat(book.getIsbn13()).isEqualTo(9788376489117L);
+        assertThat(book.getDescription()).isEqualTo("Zwiadowcy 1");
+        assertThat(book.getAuthor()).isSameAs(author);
+    }
+
+    @Test(expected = InvalidPatchException.class)
+    public void replaceBookWithUnknownAuthor_willThrowException() {
+        given(authorRepository.findById(7L)).willReturn(Optional.empty());
+        Book replacement = new Book(null, "Ruiny Gorlanu", null, null);
+        replacement.setAuthor(new Author(7L, null, null));
+
+        bookUpdateService.replaceBook(1L, replacement, current -> true);
+    }
+}
@@ -1,6 +1,10 @@
 package com.mariusz.book_collection.service;
 
+import com.mariusz.book_collection.entity.BookView;
 import com.mariusz.book_collection.entity.Shelf;
+import com.mariusz.book_collection.entity.ShelfBooksPage;
+import com.mariusz.book_collection.entity.ShelfView;
+import com.mariusz.book_collection.repository.BookRepository;
 import com.mariusz.book_collection.repository.ShelfRepository;
 import org.junit.Before;
 import org.junit.Test;
@@ -8,6 +12,7 @@ import org.junit.runner.RunWith;
 import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnitRunner;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.data.domain.PageRequest;
 
 import java.util.Arrays;
 import java.util.List;
@@ -25,12 +30,14 @@ public class ShelfServiceImplTest {
     private ShelfService shelfService;
     @Mock
     private ShelfRepository shelfRepository;
+    @Mock
+    private BookRepository bookRepository;
 
 
 
     @Before
     public void setup() {
-        shelfService = new ShelfServiceImpl(shelfRepository);
+        shelfService = new ShelfServiceImpl(shelfRepository, bookRepository);
 
         Shelf shelf1 = new Shelf(1L, "Sypialnia");
         Shelf shelf2 = new Shelf(2L, "Salon");
@@ -39,7 +46,8 @@ public class ShelfServiceImplTest {
 
         when(shelfRepository.findByDescription(shelf1.getDescription())).thenReturn(Optional.of(shelf1));
         when(shelfRepository.findByDescription("")).thenReturn(Optional.empty());
-        when(shelfRepository.findAll()).thenReturn(Arrays.asList(shelf1, shelf2));
+        when(shelfRepository.findAllViews()).thenReturn(Arrays.asList(
+                new ShelfView(1L, "Sypialnia", null, null), new ShelfView(2L, "Salon", null, null)));
 
     }
 
@@ -106,15 +114,53 @@ public class ShelfServiceImplTest {
 
     @Test
     public void shouldReturnListOfTwoElementsWhenGetAllMethodCalled(){
-        List<Shelf> shelfs = shelfService.getAllShelfs();
+        List<ShelfView> shelfs = shelfService.getAllShelfs();
 
         assertThat(shelfs.size()).isEqualTo(2);
         assertThat(shelfs.stream().anyMatch(book -> book.getId()==1L)).isTrue();
         assertThat(shelfs.stream().anyMatch(book -> book.getId()==2L)).isTrue();
 
-        verify(shelfRepository,times(1)).findAll();
+        verify(shelfRepository,times(1)).findAllViews();
+        reset(shelfRepository);
+    }
+
+    @Test
+    public void shelfBooksShouldReturnPageWithCursorAndCount() {
+        given(bookRepository.findViewsOnShelfAfter(1L, 10L, PageRequest.of(0, 3)))
+                .willReturn(Arrays.asList(bookView(11L), bookView(12L), bookView(13L)));
+        given(bookRepository.countOnShelf(1L)).willReturn(7L);
+
+        Optional<ShelfBooksPage> page = shelfService.findShelfBooks(1L, 10L, 2);
+
+        assertThat(page.isPresent()).isTrue();
+        assertThat(page.get().getBookCount()).isEqualTo(7L);
+        assertThat(page.get().getBooks()).hasSize(2);
+        assertThat(page.get().getNextCursor()).isEqualTo(12L);
+        reset(shelfRepository);
+    }
+
+    @Test
+    public void shelfBooksOfLastPageShouldHaveNoCursor() {
+        given(bookRepository.findViewsOnShelfAfter(1L, 0L, PageRequest.of(0, 3)))
+                .willReturn(Arrays.asList(bookView(11L), bookView(12L)));
+        given(bookRepository.countOnShelf(1L)).willReturn(2L);
+
+        Optional<ShelfBooksPage> page = shelfService.findShelfBooks(1L, null, 2);
+
+        assertThat(page.get().getBooks()).hasSize(2);
+        assertThat(page.get().getNextCursor()).isNull();
         reset(shelfRepository);
     }
 
+    @Test
+    public void shelfBooksOfUnknownShelfShouldBeEmpty() {
+        assertFalse(shelfService.findShelfBooks(3L, null, 2).isPresent());
 
-}
\ No newline at end of file
+        verifyZeroInteractions(bookRepository);
+        reset(shelfRepository);
+    }
+
+    private static BookView bookView(Long id) {
+        return new BookView(id, "Pinokio", null, null, null, null, null, null);
+    }
+}
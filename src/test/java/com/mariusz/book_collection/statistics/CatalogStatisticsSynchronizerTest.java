@@ -0,0 +1,101 @@
+package com.mariusz.book_collection.statistics;
+
+import com.mariusz.book_collection.entity.BookFacts;
+import com.mariusz.book_collection.repository.AuthorRepository;
+import com.mariusz.book_collection.repository.BookRepository;
+import com.mariusz.book_collection.repository.ShelfRepository;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import javax.persistence.EntityManagerFactory;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Java6Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.BDDMockito.given;
+
+@RunWith(MockitoJUnitRunner.class)
+public class CatalogStatisticsSynchronizerTest {
+
+    @Mock
+    private BookRepository bookRepository;
+
+    @Mock
+    private AuthorRepository authorRepository;
+
+    @Mock
+    private ShelfRepository shelfRepository;
+
+    @Mock
+    private EntityManagerFactory entityManagerFactory;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private final CatalogStatistics catalogStatistics = new CatalogStatistics();
+    private CatalogStatisticsSynchronizer synchronizer;
+    private int transactions;
+
+    @Before
+    public void setUp() {
+        given(transactionManager.getTransaction(any())).willAnswer(invocation -> {
+            transactions++;
+            return new SimpleTransactionStatus();
+        });
+        given(authorRepository.findAllIds()).willReturn(Collections.singletonList(1L));
+        given(shelfRepository.findAllIds()).willReturn(Collections.emptyList());
+        synchronizer = new CatalogStatisticsSynchronizer(catalogStatistics, bookRepository, authorRepository,
+                shelfRepository, entityManagerFactory, transactionManager);
+    }
+
+    @Test
+    public void load_withWriteDuringFirstReadWillReadAgainInNewTransaction() {
+        // a transaction reads its own snapshot, book 2 is committed while the first one reads
+        given(bookRepository.streamAllFacts()).willAnswer(invocation -> {
+            if (transactions == 1) {
+                if (catalogStatistics.getModifications() == 0) {
+                    catalogStatistics.putBook(2L, 1L, null, null);
+                }
+                return Stream.of(facts(1L));
+            }
+            return Stream.of(facts(1L), facts(2L));
+        });
+
+        synchronizer.load();
+
+        assertThat(transactions).isEqualTo(2);
+        assertThat(catalogStatistics.getView().getBooks()).isEqualTo(2);
+        assertThat(catalogStatistics.getView().getBooksPerAuthor()).containsEntry(1L, 2L);
+    }
+
+    private static BookFacts facts(long id) {
+        return new BookFacts() {
+            @Override
+            public Long getId() {
+                return id;
+            }
+
+            @Override
+            public Long getAuthorId() {
+                return 1L;
+            }
+
+            @Override
+            public Long getShelfId() {
+                return null;
+            }
+
+            @Override
+            public LocalDateTime getCreated() {
+                return null;
+            }
+        };
+    }
+}
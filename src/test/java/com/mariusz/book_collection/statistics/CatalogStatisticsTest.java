@@ -0,0 +1,112 @@
+package com.mariusz.book_collection.statistics;
+
+import com.mariusz.book_collection.entity.CatalogStatisticsView;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+
+import static org.assertj.core.api.Java6Assertions.assertThat;
+import static org.assertj.core.api.Java6Assertions.entry;
+
+public class CatalogStatisticsTest {
+
+    private static final LocalDateTime MONDAY = LocalDateTime.of(2018, 7, 2, 10, 0);
+    private static final LocalDateTime TUESDAY = LocalDateTime.of(2018, 7, 3, 22, 0);
+
+    private CatalogStatistics statistics;
+
+    @Before
+    public void setUp() {
+        statistics = new CatalogStatistics();
+        statistics.putAuthor(1L);
+        statistics.putAuthor(2L);
+        statistics.putShelf(10L);
+        statistics.putBook(100L, 1L, 10L, MONDAY);
+        statistics.putBook(101L, 1L, null, MONDAY);
+        statistics.putBook(102L, 2L, 10L, TUESDAY);
+    }
+
+    @Test
+    public void viewShouldCountBooksPerAuthorShelfAndDay() {
+        CatalogStatisticsView view = statistics.getView();
+
+        assertThat(view.getBooks()).isEqualTo(3);
+        assertThat(view.getAuthors()).isEqualTo(2);
+        assertThat(view.getShelves()).isEqualTo(1);
+        assertThat(view.getBooksPerAuthor()).containsOnly(entry(1L, 2L), entry(2L, 1L));
+        assertThat(view.getBooksPerShelf()).containsOnly(entry(10L, 2L));
+        assertThat(view.getBooksAddedPerDay())
+                .containsOnly(entry(LocalDate.of(2018, 7, 2), 2L), entry(LocalDate.of(2018, 7, 3), 1L));
+    }
+
+    @Test
+    public void changedBookShouldBeCountedOnce() {
+        statistics.putBook(100L, 2L, null, MONDAY);
+        statistics.putBook(100L, 2L, null, MONDAY);
+
+        CatalogStatisticsView view = statistics.getView();
+        assertThat(view.getBooks()).isEqualTo(3);
+        assertThat(view.getBooksPerAuthor()).containsOnly(entry(1L, 1L), entry(2L, 2L));
+        assertThat(view.getBooksPerShelf()).containsOnly(entry(10L, 1L));
+    }
+
+    @Test
+    public void removedBooksShouldDropEmptyGroups() {
+        statistics.removeBook(102L);
+        statistics.removeBook(103L);
+        statistics.removeAuthor(2L);
+
+        CatalogStatisticsView view = statistics.getView();
+        assertThat(view.getBooks()).isEqualTo(2);
+        assertThat(view.getAuthors()).isEqualTo(1);
+        assertThat(view.getBooksPerAuthor()).containsOnly(entry(1L, 2L));
+        assertThat(view.getBooksAddedPerDay()).containsOnly(entry(LocalDate.of(2018, 7, 2), 2L));
+    }
+
+    @Test
+    public void movedBooksShouldChangeShelfCounts() {
+        statistics.putShelf(11L);
+
+        statistics.moveBooks(Arrays.asList(100L, 101L, 999L), 11L);
+
+        assertThat(statistics.getView().getBooksPerShelf()).containsOnly(entry(10L, 1L), entry(11L, 2L));
+    }
+
+    @Test
+    public void bookWithoutAuthorShelfAndDayShouldOnlyCountAsBook() {
+        statistics.putBook(103L, null, null, null);
+        statistics.putBook(104L, null, null, LocalDateTime.of(1969, 12, 31, 12, 0));
+        statistics.removeBook(104L);
+
+        CatalogStatisticsView view = statistics.getView();
+        assertThat(view.getBooks()).isEqualTo(4);
+        assertThat(view.getBooksPerAuthor()).containsOnly(entry(1L, 2L), entry(2L, 1L));
+        assertThat(view.getBooksAddedPerDay()).hasSize(2);
+    }
+
+    @Test
+    public void viewShouldBeSharedUntilNextChange() {
+        CatalogStatisticsView view = statistics.getView();
+
+        assertThat(statistics.getView()).isSameAs(view);
+        statistics.removeShelf(10L);
+        assertThat(statistics.getView()).isNotSameAs(view);
+    }
+
+    @Test
+    public void rebuildShouldBeDroppedWhenChangeCameInMeanwhile() {
+        long modifications = statistics.getModifications();
+        CatalogStatistics.Aggregates rebuilt = new CatalogStatistics.Aggregates();
+        rebuilt.putBook(100L, 1L, 10L, MONDAY.toLocalDate());
+        statistics.putBook(103L, 2L, null, TUESDAY);
+
+        assertThat(statistics.replace(rebuilt, modifications)).isFalse();
+        assertThat(statistics.getView().getBooks()).isEqualTo(4);
+
+        assertThat(statistics.replace(rebuilt, statistics.getModifications())).isTrue();
+        assertThat(statistics.getView().getBooks()).isEqualTo(1);
+    }
+}
@@ -0,0 +1,64 @@
+package com.mariusz.book_collection.statistics;
+
+import com.mariusz.book_collection.entity.ConnectionHoldView;
+import com.mariusz.book_collection.entity.ConnectionHoldView.RequestHold;
+import org.junit.Test;
+
+import static org.assertj.core.api.Java6Assertions.assertThat;
+
+public class ConnectionHoldMetricsTest {
+
+    private static final long MILLI = 1_000_000L;
+
+    private final ConnectionHoldMetrics metrics = new ConnectionHoldMetrics();
+
+    @Test
+    public void requestFinished_willSumCheckoutsOfTheRequest() {
+        metrics.requestStarted();
+        metrics.connectionAcquired();
+        metrics.connectionReleased(2 * MILLI);
+        metrics.connectionAcquired();
+        metrics.connectionReleased(4 * MILLI);
+        metrics.requestFinished("GET /books/{id}");
+        metrics.requestStarted();
+        metrics.requestFinished("GET /books/{id}");
+
+        ConnectionHoldView view = metrics.getView();
+
+        assertThat(view.getCheckouts()).isEqualTo(2);
+        assertThat(view.getAverageHoldMillis()).isEqualTo(3.0);
+        assertThat(view.getMaxHoldMillis()).isEqualTo(4.0);
+        RequestHold request = view.getRequests().get("GET /books/{id}");
+        assertThat(request.getRequests()).isEqualTo(2);
+        assertThat(request.getCheckouts()).isEqualTo(2);
+        assertThat(request.getAverageRequestHoldMillis()).isEqualTo(3.0);
+        assertThat(request.getMaxRequestHoldMillis()).isEqualTo(6.0);
+    }
+
+    @Test
+    public void connectionReleased_outsideRequestWillCountOnlyCheckout() {
+        metrics.connectionAcquired();
+        metrics.connectionAcquired();
+        metrics.connectionReleased(MILLI);
+
+        ConnectionHoldView view = metrics.getView();
+
+        assertThat(view.getCheckouts()).isEqualTo(1);
+        assertThat(view.getInUse()).isEqualTo(1);
+        assertThat(view.getMaxInUse()).isEqualTo(2);
+        assertThat(view.getRequests()).isEmpty();
+    }
+
+    @Test
+    public void reset_willKeepConnectionsInUse() {
+        metrics.connectionAcquired();
+        metrics.requestStarted();
+        metrics.requestFinished("GET /");
+
+        metrics.reset();
+
+        assertThat(metrics.getView().getCheckouts()).isZero();
+        assertThat(metrics.getView().getRequests()).isEmpty();
+        assertThat(metrics.getView().getInUse()).isEqualTo(1);
+    }
+}
@@ -0,0 +1,125 @@
+package com.mariusz.book_collection.stream;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mariusz.book_collection.entity.BookCursorPage;
+import com.mariusz.book_collection.entity.BookView;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.assertj.core.api.Java6Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+public class BookStreamWriterTest {
+
+    private ExecutorService executor;
+    private HttpServletRequest request;
+    private HttpServletResponse response;
+    private AsyncContext async;
+    private ServletOutputStream out;
+
+    @Before
+    public void setUp() throws IOException {
+        executor = Executors.newSingleThreadExecutor();
+        request = mock(HttpServletRequest.class);
+        response = mock(HttpServletResponse.class);
+        async = mock(AsyncContext.class);
+        out = mock(ServletOutputStream.class);
+        given(request.startAsync()).willReturn(async);
+        given(response.getOutputStream()).willReturn(out);
+        given(out.isReady()).willReturn(true);
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void failedFirstPageShouldAnswer500WithErrorLine() throws Exception {
+        BookStreamWriter.PageSource pages = mock(BookStreamWriter.PageSource.class);
+        given(pages.next(any(), anyInt())).willThrow(new IllegalStateException("database down"));
+
+        start(pages).onWritePossible();
+        verify(async, timeout(5000)).complete();
+
+        verify(response).setStatus(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+        verify(out).write(BookStreamWriter.ERROR_LINE);
+        verify(async, times(1)).complete();
+    }
+
+    @Test
+    public void failureAfterFirstPageShouldEndStreamWithErrorLine() throws Exception {
+        BookStreamWriter.PageSource pages = mock(BookStreamWriter.PageSource.class);
+        given(pages.next(null, 500)).willReturn(new BookCursorPage(Collections.singletonList(new BookView()), 1L));
+        given(pages.next(1L, 500)).willThrow(new IllegalStateException("database down"));
+        given(response.isCommitted()).willReturn(true);
+
+        start(pages).onWritePossible();
+        verify(async, timeout(5000)).complete();
+
+        verify(response, never()).setStatus(anyInt());
+        ArgumentCaptor<byte[]> written = ArgumentCaptor.forClass(byte[].class);
+        verify(out, times(2)).write(written.capture());
+        assertThat(written.getAllValues().get(1)).isEqualTo(BookStreamWriter.ERROR_LINE);
+        verify(async, times(1)).complete();
+    }
+
+    @Test
+    public void timeoutShouldStopWritingAndCompleteOnce() throws Exception {
+        BookStreamWriter.PageSource pages = mock(BookStreamWriter.PageSource.class);
+        WriteListener writer = start(pages);
+        ArgumentCaptor<AsyncListener> listener = ArgumentCaptor.forClass(AsyncListener.class);
+        verify(async).addListener(listener.capture());
+        AsyncEvent event = new AsyncEvent(async);
+
+        listener.getValue().onTimeout(event);
+        listener.getValue().onComplete(event);
+        writer.onWritePossible();
+        writer.onError(new IOException("connection reset"));
+
+        verify(out).write(BookStreamWriter.ERROR_LINE);
+        verify(async, times(1)).complete();
+        verify(pages, never()).next(any(), anyInt());
+    }
+
+    @Test
+    public void containerCompletionShouldNotBeCompletedAgain() throws Exception {
+        BookStreamWriter.PageSource pages = mock(BookStreamWriter.PageSource.class);
+        WriteListener writer = start(pages);
+        ArgumentCaptor<AsyncListener> listener = ArgumentCaptor.forClass(AsyncListener.class);
+        verify(async).addListener(listener.capture());
+
+        listener.getValue().onComplete(new AsyncEvent(async));
+        writer.onError(new IOException("connection reset"));
+
+        verify(async, never()).complete();
+    }
+
+    private WriteListener start(BookStreamWriter.PageSource pages) throws IOException {
+        new BookStreamWriter(executor, new ObjectMapper(), 500, 1000).stream(request, response, pages);
+        ArgumentCaptor<WriteListener> writer = ArgumentCaptor.forClass(WriteListener.class);
+        verify(out).setWriteListener(writer.capture());
+        return writer.getValue();
+    }
+}